@@ -0,0 +1,194 @@
+package LMS;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * BKTree class - Burkhard-Keller tree of terms under the Levenshtein distance.
+ * Every child hangs off its parent at its exact distance from the parent's term, so by the
+ * triangle inequality a search for terms within distance d of a query only has to follow
+ * the children whose distance lies in [dist - d, dist + d].
+ * Removed terms are only flagged; the tree is rebuilt once they outnumber the live ones.
+ */
+public class BKTree {
+
+    private Node root;
+    private int liveCount;
+    private int deletedCount;
+
+    /**
+     * Adds a term (does nothing if it is already present)
+     * @param term The term to add
+     */
+    public void add(String term) {
+        if (root == null) {
+            root = new Node(term);
+            liveCount++;
+            return;
+        }
+
+        Node node = root;
+        while (true) {
+            int dist = distance(term, node.term);
+
+            if (dist == 0) {
+                if (node.deleted) {
+                    node.deleted = false;
+                    deletedCount--;
+                    liveCount++;
+                }
+                return;
+            }
+
+            Node child = node.child(dist);
+            if (child == null) {
+                node.setChild(dist, new Node(term));
+                liveCount++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Removes a term
+     * @param term The term to remove
+     */
+    public void remove(String term) {
+        Node node = root;
+
+        while (node != null) {
+            int dist = distance(term, node.term);
+
+            if (dist == 0) {
+                if (!node.deleted) {
+                    node.deleted = true;
+                    liveCount--;
+                    deletedCount++;
+                    if (deletedCount > liveCount) {
+                        rebuild();
+                    }
+                }
+                return;
+            }
+            node = node.child(dist);
+        }
+    }
+
+    /**
+     * Finds all terms within a maximum edit distance of the query
+     * @param query       The term to look for
+     * @param maxDistance Maximum number of single-character insertions, deletions or substitutions
+     * @return The matching terms
+     */
+    public ArrayList<String> search(String query, int maxDistance) {
+        ArrayList<String> matches = new ArrayList<>();
+        if (root == null) {
+            return matches;
+        }
+
+        ArrayList<Node> stack = new ArrayList<>();
+        stack.add(root);
+
+        while (!stack.isEmpty()) {
+            Node node = stack.remove(stack.size() - 1);
+            int dist = distance(query, node.term);
+
+            if (dist <= maxDistance && !node.deleted) {
+                matches.add(node.term);
+            }
+
+            int from = Math.max(1, dist - maxDistance);
+            int to = Math.min(node.children.length - 1, dist + maxDistance);
+            for (int d = from; d <= to; d++) {
+                if (node.children[d] != null) {
+                    stack.add(node.children[d]);
+                }
+            }
+        }
+
+        return matches;
+    }
+
+    public int size() {
+        return liveCount;
+    }
+
+    /**
+     * Levenshtein distance between two strings
+     * @param a First string
+     * @param b Second string
+     * @return Minimum number of single-character edits turning a into b
+     */
+    public static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        return previous[b.length()];
+    }
+
+    private void rebuild() {
+        ArrayList<String> live = new ArrayList<>();
+        collectLive(root, live);
+
+        root = null;
+        liveCount = 0;
+        deletedCount = 0;
+        for (String term : live) {
+            add(term);
+        }
+    }
+
+    private static void collectLive(Node node, ArrayList<String> live) {
+        if (node == null) {
+            return;
+        }
+        if (!node.deleted) {
+            live.add(node.term);
+        }
+        for (Node child : node.children) {
+            collectLive(child, live);
+        }
+    }
+
+    /**
+     * Tree node; children[d] is the subtree of terms at distance d from this term
+     */
+    private static class Node {
+        final String term;
+        boolean deleted;
+        Node[] children;
+
+        Node(String term) {
+            this.term = term;
+            children = new Node[0];
+        }
+
+        Node child(int dist) {
+            return dist < children.length ? children[dist] : null;
+        }
+
+        void setChild(int dist, Node child) {
+            if (dist >= children.length) {
+                children = Arrays.copyOf(children, dist + 1);
+            }
+            children[dist] = child;
+        }
+    }
+}
@@ -14,16 +14,17 @@ public class Book {
     private String title;
     private String subject;
     private String author;
+    // Change through setIssuedStatus so Library's availability bitmap follows
     public boolean isIssued;
     private HoldRequestOperations holdRequestsOperations;
-    static int currentIdNumber = 0;
+    static final IdAllocator ids = new IdAllocator();
 
     public Book(int id, String t, String s, String a, boolean issued) {
-        currentIdNumber++;
         if (id == -1) {
-            bookID = currentIdNumber;
+            bookID = ids.next();
         } else {
             bookID = id;
+            ids.advanceTo(id);
         }
 
         title = t;
@@ -91,6 +92,9 @@ public class Book {
         // Update in database
         DatabaseManager.getInstance().updateBook(bookID, title, author, subject);
 
+        // Keep the search index in step with the new values
+        Library.bookInfoChanged(this);
+
         System.out.println("\nBook is successfully updated.");
     }
 
@@ -126,16 +130,18 @@ public class Book {
     // Setter Methods
     public void setIssuedStatus(boolean s) {
         isIssued = s;
+        Library.availabilityChanged(this);
         // Update in database
-        DatabaseManager.getInstance().updateBookIssuedStatus(bookID, s);
+        DatabaseManager db = DatabaseManager.getInstance();
+        db.write(() -> db.updateBookIssuedStatus(bookID, s));
     }
 
     public static void setIDCount(int n) {
-        currentIdNumber = n;
+        ids.set(n);
     }
 
     public static int getIDCount() {
-        return currentIdNumber;
+        return ids.current();
     }
 
     /**
@@ -199,6 +205,11 @@ public class Book {
      * @param staff The staff member processing the issue
      */
     public void issueBook(Borrower borrower, Staff staff) {
+        // Every database write of the issue is committed together
+        DatabaseManager.getInstance().unitOfWork(() -> issue(borrower, staff));
+    }
+
+    private void issue(Borrower borrower, Staff staff) {
         // First delete expired hold requests
         Date today = new Date();
         ArrayList<HoldRequest> hRequests = holdRequestsOperations.holdRequests;
@@ -275,6 +286,11 @@ public class Book {
      * @param staff The staff member processing the return
      */
     public void returnBook(Borrower borrower, Loan l, Staff staff) {
+        // Every database write of the return is committed together
+        DatabaseManager.getInstance().unitOfWork(() -> receive(borrower, l, staff));
+    }
+
+    private void receive(Borrower borrower, Loan l, Staff staff) {
         l.getBook().setIssuedStatus(false);
         l.setReturnedDate(new Date());
         l.setReceiver(staff);
@@ -291,12 +307,14 @@ public class Book {
     }
 
     /**
-     * Saves this book to the database
+     * Saves this book to the database and takes the id the database gave it.
+     * Call it before the book is added to the library, which files books by id.
      */
     public void saveToDatabase() {
         int newId = DatabaseManager.getInstance().insertBook(title, author, subject, isIssued);
         if (newId != -1) {
             bookID = newId;
+            ids.advanceTo(newId);
         }
     }
 
@@ -0,0 +1,334 @@
+package LMS;
+
+import java.util.*;
+
+/**
+ * BookAutocomplete class - prefix completion for book titles, subjects and authors.
+ * Each field is kept in a compressed (radix) trie keyed by the lower-cased value, so values
+ * sharing a prefix share the nodes for it and edge labels are interned strings.
+ * Every node remembers the largest book count below it, which lets the top-K search
+ * visit the most popular completions first and stop as soon as K are found.
+ */
+public class BookAutocomplete {
+
+    private static final int FIELD_COUNT = 3;
+
+    private Node[] roots;
+    private IdentityHashMap<Book, String[]> indexedValues;
+
+    public BookAutocomplete() {
+        roots = new Node[FIELD_COUNT];
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            roots[f] = new Node("");
+        }
+        indexedValues = new IdentityHashMap<>();
+    }
+
+    /**
+     * Adds a book's title, subject and author (re-adds them if the book is already present)
+     * @param b The book to add
+     */
+    public void add(Book b) {
+        remove(b);
+
+        String[] values = {b.getTitle(), b.getSubject(), b.getAuthor()};
+        indexedValues.put(b, values);
+
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            if (values[f] != null) {
+                insert(roots[f], values[f].toLowerCase(), 0, values[f]);
+            }
+        }
+    }
+
+    /**
+     * Refreshes a book after its title, subject or author has changed
+     * @param b The changed book
+     */
+    public void update(Book b) {
+        if (indexedValues.containsKey(b)) {
+            add(b);
+        }
+    }
+
+    /**
+     * Removes a book's values
+     * @param b The book to remove
+     */
+    public void remove(Book b) {
+        String[] values = indexedValues.remove(b);
+        if (values == null) {
+            return;
+        }
+
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            if (values[f] != null) {
+                delete(roots[f], values[f].toLowerCase(), 0);
+            }
+        }
+    }
+
+    /**
+     * Removes every book
+     */
+    public void clear() {
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            roots[f] = new Node("");
+        }
+        indexedValues.clear();
+    }
+
+    /**
+     * Returns up to k completions of a prefix, most common values first
+     * (ties in alphabetical order)
+     * @param field  BookSearchIndex.TITLE, SUBJECT or AUTHOR
+     * @param prefix The typed prefix (case insensitive)
+     * @param k      Maximum number of completions
+     * @return The completions as originally spelled
+     */
+    public ArrayList<String> complete(int field, String prefix, int k) {
+        ArrayList<String> completions = new ArrayList<>();
+        String key = prefix.toLowerCase();
+
+        // Walk down to the node whose path starts with the prefix
+        Node node = roots[field];
+        String path = "";
+        int pos = 0;
+
+        while (pos < key.length()) {
+            Node child = node.child(key.charAt(pos));
+            if (child == null) {
+                return completions;
+            }
+
+            int common = commonPrefix(child.label, key, pos);
+            if (pos + common < key.length() && common < child.label.length()) {
+                return completions;
+            }
+
+            node = child;
+            path = path + child.label;
+            pos += common;
+        }
+
+        if (k <= 0 || node.maxCount == 0) {
+            return completions;
+        }
+
+        // Best-first search: maxCount is an upper bound for everything below a node
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        queue.add(new Candidate(node, path, node.maxCount, false));
+
+        while (!queue.isEmpty() && completions.size() < k) {
+            Candidate c = queue.poll();
+
+            if (c.isResult) {
+                completions.add(c.node.display);
+                continue;
+            }
+
+            if (c.node.count > 0) {
+                queue.add(new Candidate(c.node, c.path, c.node.count, true));
+            }
+            for (int i = 0; i < c.node.childCount; i++) {
+                Node child = c.node.children[i];
+                queue.add(new Candidate(child, c.path + child.label, child.maxCount, false));
+            }
+        }
+
+        return completions;
+    }
+
+    /**
+     * Counts trie nodes, which is what the memory use scales with
+     * @param field BookSearchIndex.TITLE, SUBJECT or AUTHOR
+     * @return The number of nodes below the root
+     */
+    public int nodeCount(int field) {
+        return countNodes(roots[field]) - 1;
+    }
+
+    // ==================== TRIE OPERATIONS ====================
+
+    private static void insert(Node node, String key, int pos, String display) {
+        if (pos == key.length()) {
+            if (node.count == 0) {
+                node.display = display;
+            }
+            node.count++;
+            node.recomputeMax();
+            return;
+        }
+
+        Node child = node.child(key.charAt(pos));
+
+        if (child == null) {
+            Node leaf = new Node(key.substring(pos).intern());
+            leaf.display = display;
+            leaf.count = 1;
+            leaf.maxCount = 1;
+            node.addChild(leaf);
+        } else {
+            int common = commonPrefix(child.label, key, pos);
+
+            if (common < child.label.length()) {
+                // Split the edge where the new key leaves it
+                Node middle = new Node(child.label.substring(0, common).intern());
+                node.replaceChild(middle);
+                child.label = child.label.substring(common).intern();
+                middle.addChild(child);
+                middle.recomputeMax();
+                child = middle;
+            }
+
+            insert(child, key, pos + common, display);
+        }
+
+        node.recomputeMax();
+    }
+
+    private static void delete(Node node, String key, int pos) {
+        if (pos == key.length()) {
+            if (node.count > 0) {
+                node.count--;
+                if (node.count == 0) {
+                    node.display = null;
+                }
+            }
+            node.recomputeMax();
+            return;
+        }
+
+        Node child = node.child(key.charAt(pos));
+        if (child == null || !key.startsWith(child.label, pos)) {
+            return;
+        }
+
+        delete(child, key, pos + child.label.length());
+
+        // Drop empty leaves and merge chains left behind by the removal
+        if (child.count == 0 && child.childCount == 0) {
+            node.removeChild(child);
+        } else if (child.count == 0 && child.childCount == 1) {
+            Node only = child.children[0];
+            only.label = (child.label + only.label).intern();
+            node.replaceChild(only);
+        }
+
+        node.recomputeMax();
+    }
+
+    private static int commonPrefix(String label, String key, int pos) {
+        int n = Math.min(label.length(), key.length() - pos);
+        int i = 0;
+        while (i < n && label.charAt(i) == key.charAt(pos + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int countNodes(Node node) {
+        int total = 1;
+        for (int i = 0; i < node.childCount; i++) {
+            total += countNodes(node.children[i]);
+        }
+        return total;
+    }
+
+    /**
+     * Trie node; children are kept in a small array sorted by the first character of their label
+     */
+    private static class Node {
+        String label;
+        String display;
+        int count;
+        int maxCount;
+        Node[] children;
+        int childCount;
+
+        Node(String label) {
+            this.label = label;
+            children = new Node[0];
+        }
+
+        Node child(char c) {
+            int i = indexOf(c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        void addChild(Node child) {
+            int i = -indexOf(child.label.charAt(0)) - 1;
+            if (childCount == children.length) {
+                children = Arrays.copyOf(children, Math.max(2, childCount * 2));
+            }
+            System.arraycopy(children, i, children, i + 1, childCount - i);
+            children[i] = child;
+            childCount++;
+        }
+
+        void replaceChild(Node child) {
+            children[indexOf(child.label.charAt(0))] = child;
+        }
+
+        void removeChild(Node child) {
+            int i = indexOf(child.label.charAt(0));
+            System.arraycopy(children, i + 1, children, i, childCount - i - 1);
+            childCount--;
+            children[childCount] = null;
+        }
+
+        void recomputeMax() {
+            int max = count;
+            for (int i = 0; i < childCount; i++) {
+                max = Math.max(max, children[i].maxCount);
+            }
+            maxCount = max;
+        }
+
+        private int indexOf(char c) {
+            int lo = 0, hi = childCount - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                char m = children[mid].label.charAt(0);
+                if (m < c) {
+                    lo = mid + 1;
+                } else if (m > c) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(lo + 1);
+        }
+    }
+
+    /**
+     * Entry of the best-first search queue: either a subtree or a finished completion
+     */
+    private static class Candidate implements Comparable<Candidate> {
+        final Node node;
+        final String path;
+        final int weight;
+        final boolean isResult;
+
+        Candidate(Node node, String path, int weight, boolean isResult) {
+            this.node = node;
+            this.path = path;
+            this.weight = weight;
+            this.isResult = isResult;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (weight != other.weight) {
+                return Integer.compare(other.weight, weight);
+            }
+            int byPath = path.compareTo(other.path);
+            if (byPath != 0) {
+                return byPath;
+            }
+            // A finished completion comes before the longer ones below it
+            return Boolean.compare(other.isResult, isResult);
+        }
+    }
+}
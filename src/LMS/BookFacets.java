@@ -0,0 +1,215 @@
+package LMS;
+
+import java.util.*;
+
+/**
+ * BookFacets class - per-subject and per-author book counts, kept up to date incrementally.
+ * Every distinct subject and author gets a small value id and a posting list of the document
+ * numbers (as assigned by BookSearchIndex) of the books carrying it, so a rare value costs a
+ * few bytes rather than a bitset sized to the catalog. Each field also maps document numbers
+ * to value ids; counting a facet over a result set walks the result's documents once, so its
+ * cost follows the size of the result, not the number of distinct values.
+ */
+public class BookFacets {
+
+    private static final int[] FACET_FIELDS = {BookSearchIndex.SUBJECT, BookSearchIndex.AUTHOR};
+
+    // Marks a document without a value in docValue
+    private static final int NO_VALUE = -1;
+
+    // Indexed by field constant; the TITLE slot stays unused
+    private final Field[] fields;
+
+    public BookFacets() {
+        fields = new Field[BookSearchIndex.AUTHOR + 1];
+        for (int f : FACET_FIELDS) {
+            fields[f] = new Field();
+        }
+    }
+
+    /**
+     * Adds a book's subject and author (replaces them if the document is already present)
+     * @param doc The book's document number in the search index
+     * @param b   The book
+     */
+    public void add(int doc, Book b) {
+        remove(doc);
+        fields[BookSearchIndex.SUBJECT].add(doc, b.getSubject());
+        fields[BookSearchIndex.AUTHOR].add(doc, b.getAuthor());
+    }
+
+    /**
+     * Removes a book's subject and author
+     * @param doc The book's document number in the search index
+     */
+    public void remove(int doc) {
+        for (int f : FACET_FIELDS) {
+            fields[f].remove(doc);
+        }
+    }
+
+    public void clear() {
+        for (int f : FACET_FIELDS) {
+            fields[f].clear();
+        }
+    }
+
+    /**
+     * Counts the books of a result set per value of a facet
+     * @param field BookSearchIndex.SUBJECT or AUTHOR
+     * @param docs  Document numbers of the result set
+     * @return Value to count, largest count first (ties alphabetical); values with no book
+     *         in the result set are left out
+     */
+    public LinkedHashMap<String, Integer> counts(int field, PostingList docs) {
+        return fields[field].counts(docs);
+    }
+
+    /**
+     * Counts every book in the catalog per value of a facet
+     * @param field BookSearchIndex.SUBJECT or AUTHOR
+     * @return Value to count, largest count first (ties alphabetical)
+     */
+    public LinkedHashMap<String, Integer> counts(int field) {
+        return fields[field].counts();
+    }
+
+    /**
+     * Formats the largest counts as "Software Engineering (1,204) / Databases (312)"
+     * @param counts The counts, as returned by counts()
+     * @param limit  Maximum number of values shown
+     * @return The formatted line (empty if there are no counts)
+     */
+    public static String format(LinkedHashMap<String, Integer> counts, int limit) {
+        StringBuilder line = new StringBuilder();
+        int shown = 0;
+
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (shown == limit) {
+                line.append(" / ...");
+                break;
+            }
+            if (shown > 0) {
+                line.append(" / ");
+            }
+            line.append(String.format(Locale.ROOT, "%s (%,d)", entry.getKey(), entry.getValue()));
+            shown++;
+        }
+        return line.toString();
+    }
+
+    private static LinkedHashMap<String, Integer> sorted(ArrayList<Map.Entry<String, Integer>> found) {
+        found.sort((a, b) -> a.getValue().equals(b.getValue())
+                ? a.getKey().compareTo(b.getKey())
+                : Integer.compare(b.getValue(), a.getValue()));
+
+        LinkedHashMap<String, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : found) {
+            counts.put(entry.getKey(), entry.getValue());
+        }
+        return counts;
+    }
+
+    /**
+     * The values of one facet field
+     */
+    private static class Field {
+        private final HashMap<String, Integer> valueIds = new HashMap<>();
+        private final ArrayList<String> values = new ArrayList<>();
+        private final ArrayList<PostingList> valueDocs = new ArrayList<>();
+        private final ArrayDeque<Integer> freeIds = new ArrayDeque<>();
+        private int[] docValue = new int[0];
+
+        // Per value id counts for counts(docs); only the ids in touched are non-zero between calls
+        private int[] tally = new int[0];
+        private int[] touched = new int[0];
+
+        private void add(int doc, String value) {
+            if (value == null) {
+                return;
+            }
+            Integer id = valueIds.get(value);
+            if (id == null) {
+                id = freeIds.isEmpty() ? values.size() : freeIds.pop();
+                if (id == values.size()) {
+                    values.add(value);
+                    valueDocs.add(new PostingList());
+                } else {
+                    values.set(id, value);
+                }
+                valueIds.put(value, id);
+            }
+
+            if (doc >= docValue.length) {
+                int oldLength = docValue.length;
+                docValue = Arrays.copyOf(docValue, Math.max(doc + 1, oldLength * 2));
+                Arrays.fill(docValue, oldLength, docValue.length, NO_VALUE);
+            }
+            docValue[doc] = id;
+            valueDocs.get(id).add(doc);
+        }
+
+        private void remove(int doc) {
+            if (doc < 0 || doc >= docValue.length || docValue[doc] == NO_VALUE) {
+                return;
+            }
+            int id = docValue[doc];
+            docValue[doc] = NO_VALUE;
+
+            PostingList docs = valueDocs.get(id);
+            docs.remove(doc);
+            if (docs.isEmpty()) {
+                valueIds.remove(values.get(id));
+                values.set(id, null);
+                freeIds.push(id);
+            }
+        }
+
+        private void clear() {
+            valueIds.clear();
+            values.clear();
+            valueDocs.clear();
+            freeIds.clear();
+            docValue = new int[0];
+            tally = new int[0];
+            touched = new int[0];
+        }
+
+        private LinkedHashMap<String, Integer> counts(PostingList docs) {
+            if (tally.length < values.size()) {
+                tally = new int[Math.max(values.size(), tally.length * 2)];
+            }
+            int touchedCount = 0;
+
+            for (int i = 0; i < docs.size(); i++) {
+                int doc = docs.get(i);
+                int id = doc >= 0 && doc < docValue.length ? docValue[doc] : NO_VALUE;
+                if (id == NO_VALUE) {
+                    continue;
+                }
+                if (tally[id]++ == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, Math.max(16, touchedCount * 2));
+                    }
+                    touched[touchedCount++] = id;
+                }
+            }
+
+            ArrayList<Map.Entry<String, Integer>> found = new ArrayList<>(touchedCount);
+            for (int i = 0; i < touchedCount; i++) {
+                int id = touched[i];
+                found.add(new AbstractMap.SimpleEntry<>(values.get(id), tally[id]));
+                tally[id] = 0;
+            }
+            return sorted(found);
+        }
+
+        private LinkedHashMap<String, Integer> counts() {
+            ArrayList<Map.Entry<String, Integer>> found = new ArrayList<>(valueIds.size());
+            for (Map.Entry<String, Integer> entry : valueIds.entrySet()) {
+                found.add(new AbstractMap.SimpleEntry<>(entry.getKey(), valueDocs.get(entry.getValue()).size()));
+            }
+            return sorted(found);
+        }
+    }
+}
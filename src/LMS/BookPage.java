@@ -0,0 +1,70 @@
+package LMS;
+
+import java.util.ArrayList;
+
+/**
+ * BookPage class - one page of search results plus the token to ask for the next one.
+ * Tokens are opaque to callers: pass getNextPageToken() back to the method that produced
+ * the page, and pass null to start from the first page.
+ */
+public class BookPage {
+
+    private ArrayList<Book> books;
+    private String nextPageToken;
+
+    public BookPage(ArrayList<Book> books, String nextPageToken) {
+        this.books = books;
+        this.nextPageToken = nextPageToken;
+    }
+
+    /**
+     * Cuts one page out of a list that is already in memory; the token is the offset of the
+     * next page
+     * @param all       Every result, in order
+     * @param pageToken null for the first page, otherwise a token from a previous page
+     * @param pageSize  Books per page (0 or less means everything on one page)
+     * @return The page
+     */
+    public static BookPage fromList(ArrayList<Book> all, String pageToken, int pageSize) {
+        int from = Math.min(parseToken(pageToken), all.size());
+        int to = pageSize <= 0 ? all.size() : (int) Math.min((long) from + pageSize, all.size());
+
+        String next = to < all.size() ? Integer.toString(to) : null;
+        return new BookPage(new ArrayList<>(all.subList(from, to)), next);
+    }
+
+    /**
+     * Reads a token produced by this class or by BookSearchIndex
+     * @param pageToken The token (null for the first page)
+     * @return The position the page starts from
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    static int parseToken(String pageToken) {
+        if (pageToken == null) {
+            return 0;
+        }
+
+        try {
+            int position = Integer.parseInt(pageToken);
+            if (position >= 0) {
+                return position;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Invalid page token: " + pageToken);
+    }
+
+    // Getter Methods
+    public ArrayList<Book> getBooks() {
+        return books;
+    }
+
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public boolean hasNextPage() {
+        return nextPageToken != null;
+    }
+}
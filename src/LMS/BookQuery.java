@@ -0,0 +1,393 @@
+package LMS;
+
+import java.util.*;
+
+/**
+ * BookQuery class - boolean search across book fields, ranked with BM25.
+ *
+ * Syntax:
+ *   title:"clean code" AND subject:software NOT author:"martin"
+ *   (author:fowler OR author:beck) refactoring
+ * Clauses are field:word, field:"phrase" or a bare word/phrase (any field), and each one
+ * keeps the case-insensitive "contains" semantics of searchForBooks.
+ * Operators are AND (also implied between clauses), OR and NOT, in upper case, with
+ * parentheses for grouping; NOT binds tightest, then AND, then OR.
+ *
+ * Matching works on document numbers from BookSearchIndex; only the matches are scored and
+ * a heap of size K keeps the best ones, so large result sets are never sorted as a whole.
+ */
+public class BookQuery {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final String[] FIELD_NAMES = {"title", "subject", "author"};
+
+    private final Node root;
+    private final ArrayList<Clause> scoredClauses;
+
+    // Parser state
+    private final ArrayList<String> lexemes;
+    private int pos;
+
+    /**
+     * Parses a query
+     * @param query The query text
+     * @throws IllegalArgumentException if the query is empty or malformed
+     */
+    public BookQuery(String query) {
+        lexemes = lex(query);
+        scoredClauses = new ArrayList<>();
+        pos = 0;
+
+        if (lexemes.isEmpty()) {
+            throw new IllegalArgumentException("Empty query");
+        }
+
+        root = parseOr(false);
+        if (pos < lexemes.size()) {
+            throw new IllegalArgumentException("Unexpected '" + lexemes.get(pos) + "' in query");
+        }
+    }
+
+    /**
+     * Counts all matching books without scoring them
+     * @param index The index to search
+     * @return The number of matches
+     */
+    public int count(BookSearchIndex index) {
+        return root.evaluate(index).size();
+    }
+
+    /**
+     * Returns the K best matching books, highest BM25 score first
+     * (ties in catalog order)
+     * @param index The index to search
+     * @param k     Maximum number of books
+     * @return The top books
+     */
+    public ArrayList<Book> topK(BookSearchIndex index, int k) {
+        ArrayList<Book> topBooks = new ArrayList<>();
+        if (k <= 0) {
+            return topBooks;
+        }
+
+        PostingList matches = root.evaluate(index);
+        Scorer scorer = new Scorer(index);
+
+        // Min-heap: the root is the weakest of the current top K
+        PriorityQueue<ScoredDoc> heap = new PriorityQueue<>(Comparator.reverseOrder());
+        for (int i = 0; i < matches.size(); i++) {
+            int doc = matches.get(i);
+            ScoredDoc scored = new ScoredDoc(doc, scorer.score(doc));
+
+            if (heap.size() < k) {
+                heap.add(scored);
+            } else if (scored.compareTo(heap.peek()) < 0) {
+                heap.poll();
+                heap.add(scored);
+            }
+        }
+
+        ArrayList<ScoredDoc> best = new ArrayList<>(heap);
+        Collections.sort(best);
+        for (ScoredDoc scored : best) {
+            topBooks.add(index.bookAt(scored.doc));
+        }
+        return topBooks;
+    }
+
+    // ==================== PARSER ====================
+
+    private Node parseOr(boolean negated) {
+        ArrayList<Node> parts = new ArrayList<>();
+        parts.add(parseAnd(negated));
+
+        while (peek("OR")) {
+            pos++;
+            parts.add(parseAnd(negated));
+        }
+        return parts.size() == 1 ? parts.get(0) : new Or(parts);
+    }
+
+    private Node parseAnd(boolean negated) {
+        ArrayList<Node> parts = new ArrayList<>();
+        parts.add(parseUnary(negated));
+
+        while (pos < lexemes.size() && !peek("OR") && !peek(")")) {
+            if (peek("AND")) {
+                pos++;
+            }
+            parts.add(parseUnary(negated));
+        }
+        return parts.size() == 1 ? parts.get(0) : new And(parts);
+    }
+
+    private Node parseUnary(boolean negated) {
+        if (peek("NOT")) {
+            pos++;
+            return new Not(parseUnary(!negated));
+        }
+
+        if (peek("(")) {
+            pos++;
+            Node inner = parseOr(negated);
+            if (!peek(")")) {
+                throw new IllegalArgumentException("Missing ')' in query");
+            }
+            pos++;
+            return inner;
+        }
+
+        if (pos >= lexemes.size() || isOperator(lexemes.get(pos))) {
+            throw new IllegalArgumentException("Expected a search term in query");
+        }
+
+        Clause clause = parseClause(lexemes.get(pos++));
+        if (!negated) {
+            scoredClauses.add(clause);
+        }
+        return clause;
+    }
+
+    private static Clause parseClause(String lexeme) {
+        int field = -1;
+        String text = lexeme;
+
+        int colon = lexeme.indexOf(':');
+        if (colon > 0 && !lexeme.startsWith("\"")) {
+            String name = lexeme.substring(0, colon).toLowerCase();
+            field = Arrays.asList(FIELD_NAMES).indexOf(name);
+            if (field == -1) {
+                throw new IllegalArgumentException("Unknown field '" + name + "' (use title, subject or author)");
+            }
+            text = lexeme.substring(colon + 1);
+        }
+
+        if (text.length() >= 2 && text.startsWith("\"") && text.endsWith("\"")) {
+            text = text.substring(1, text.length() - 1);
+        }
+        if (text.isEmpty()) {
+            throw new IllegalArgumentException("Empty search term in query");
+        }
+        return new Clause(field, text);
+    }
+
+    /**
+     * Splits the query into parentheses, operators and clauses; quoted text stays in one piece
+     */
+    private static ArrayList<String> lex(String query) {
+        ArrayList<String> result = new ArrayList<>();
+        int i = 0;
+
+        while (i < query.length()) {
+            char c = query.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')') {
+                result.add(String.valueOf(c));
+                i++;
+            } else {
+                int start = i;
+                boolean inQuotes = false;
+
+                while (i < query.length()) {
+                    char d = query.charAt(i);
+                    if (d == '"') {
+                        inQuotes = !inQuotes;
+                    } else if (!inQuotes && (Character.isWhitespace(d) || d == '(' || d == ')')) {
+                        break;
+                    }
+                    i++;
+                }
+
+                if (inQuotes) {
+                    throw new IllegalArgumentException("Unterminated quote in query");
+                }
+                result.add(query.substring(start, i));
+            }
+        }
+
+        return result;
+    }
+
+    private boolean peek(String lexeme) {
+        return pos < lexemes.size() && lexemes.get(pos).equals(lexeme);
+    }
+
+    private static boolean isOperator(String lexeme) {
+        return lexeme.equals("AND") || lexeme.equals("OR") || lexeme.equals("NOT") || lexeme.equals(")");
+    }
+
+    // ==================== QUERY TREE ====================
+
+    private interface Node {
+        PostingList evaluate(BookSearchIndex index);
+    }
+
+    private static class Clause implements Node {
+        final int field;
+        final String text;
+
+        Clause(int field, String text) {
+            this.field = field;
+            this.text = text;
+        }
+
+        @Override
+        public PostingList evaluate(BookSearchIndex index) {
+            if (field >= 0) {
+                return index.matchingDocs(field, text);
+            }
+
+            ArrayList<PostingList> lists = new ArrayList<>();
+            for (int f = 0; f < FIELD_NAMES.length; f++) {
+                lists.add(index.matchingDocs(f, text));
+            }
+            return PostingList.union(lists);
+        }
+    }
+
+    private static class And implements Node {
+        final ArrayList<Node> parts;
+
+        And(ArrayList<Node> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public PostingList evaluate(BookSearchIndex index) {
+            PostingList result = null;
+
+            // Intersect the positive parts first, then subtract the negated ones
+            for (Node part : parts) {
+                if (!(part instanceof Not)) {
+                    PostingList docs = part.evaluate(index);
+                    result = result == null ? docs : result.intersect(docs);
+                }
+            }
+            if (result == null) {
+                result = index.allDocs();
+            }
+
+            for (Node part : parts) {
+                if (part instanceof Not && !result.isEmpty()) {
+                    result = result.andNot(((Not) part).inner.evaluate(index));
+                }
+            }
+            return result;
+        }
+    }
+
+    private static class Or implements Node {
+        final ArrayList<Node> parts;
+
+        Or(ArrayList<Node> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public PostingList evaluate(BookSearchIndex index) {
+            ArrayList<PostingList> lists = new ArrayList<>();
+            for (Node part : parts) {
+                lists.add(part.evaluate(index));
+            }
+            return PostingList.union(lists);
+        }
+    }
+
+    private static class Not implements Node {
+        final Node inner;
+
+        Not(Node inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        public PostingList evaluate(BookSearchIndex index) {
+            return index.allDocs().andNot(inner.evaluate(index));
+        }
+    }
+
+    // ==================== SCORING ====================
+
+    /**
+     * BM25 over the words of the non-negated clauses. A field token counts as an occurrence
+     * of a word when it contains it, matching the substring semantics of the clauses.
+     */
+    private class Scorer {
+        final BookSearchIndex index;
+        final ArrayList<Integer> fields = new ArrayList<>();
+        final ArrayList<String> words = new ArrayList<>();
+        final ArrayList<Double> idfs = new ArrayList<>();
+
+        Scorer(BookSearchIndex index) {
+            this.index = index;
+            int n = index.size();
+
+            for (Clause clause : scoredClauses) {
+                for (String word : BookSearchIndex.tokenize(clause.text.toLowerCase())) {
+                    for (int f = 0; f < FIELD_NAMES.length; f++) {
+                        if (clause.field == -1 || clause.field == f) {
+                            int df = index.matchingDocs(f, word).size();
+                            fields.add(f);
+                            words.add(word);
+                            idfs.add(Math.log(1 + (n - df + 0.5) / (df + 0.5)));
+                        }
+                    }
+                }
+            }
+        }
+
+        double score(int doc) {
+            double score = 0;
+            ArrayList<ArrayList<String>> tokens = new ArrayList<>(Collections.nCopies(FIELD_NAMES.length, null));
+
+            for (int i = 0; i < words.size(); i++) {
+                int f = fields.get(i);
+                String value = index.valueAt(doc, f);
+                if (value == null) {
+                    continue;
+                }
+                if (tokens.get(f) == null) {
+                    tokens.set(f, BookSearchIndex.tokenize(value));
+                }
+
+                int tf = 0;
+                for (String token : tokens.get(f)) {
+                    if (token.contains(words.get(i))) {
+                        tf++;
+                    }
+                }
+                if (tf == 0) {
+                    continue;
+                }
+
+                double avg = Math.max(index.averageLength(f), 1);
+                double norm = K1 * (1 - B + B * index.lengthAt(doc, f) / avg);
+                score += idfs.get(i) * tf * (K1 + 1) / (tf + norm);
+            }
+
+            return score;
+        }
+    }
+
+    private static class ScoredDoc implements Comparable<ScoredDoc> {
+        final int doc;
+        final double score;
+
+        ScoredDoc(int doc, double score) {
+            this.doc = doc;
+            this.score = score;
+        }
+
+        // Best first: higher score, then earlier in the catalog
+        @Override
+        public int compareTo(ScoredDoc other) {
+            if (score != other.score) {
+                return Double.compare(other.score, score);
+            }
+            return Integer.compare(doc, other.doc);
+        }
+    }
+}
@@ -0,0 +1,507 @@
+package LMS;
+
+import java.util.*;
+
+/**
+ * BookSearchIndex class - in-memory inverted index over book titles, subjects and authors.
+ * Every lower-cased word token and every trigram (three consecutive characters) points to
+ * the books containing it, so a search only looks at the books that can match instead of
+ * walking the whole catalog.
+ * Results are exactly those of the linear "contains" search, in catalog order.
+ * The distinct tokens of each field are also kept in a BK-tree for typo-tolerant searches.
+ */
+public class BookSearchIndex {
+
+    public static final int TITLE = 0;
+    public static final int SUBJECT = 1;
+    public static final int AUTHOR = 2;
+    private static final int FIELD_COUNT = 3;
+    private static final int GRAM = 3;
+
+    // Documents are numbered in the order they were added, which is the catalog order
+    private ArrayList<Book> docs;
+    private ArrayList<String[]> indexedValues;
+    private ArrayList<int[]> fieldLengths;
+    private long[] totalLengths;
+    private IdentityHashMap<Book, Integer> docIds;
+    private ArrayList<HashMap<String, PostingList>> postings;
+    private ArrayList<HashMap<String, PostingList>> trigrams;
+    private ArrayList<BKTree> terms;
+
+    public BookSearchIndex() {
+        docs = new ArrayList<>();
+        indexedValues = new ArrayList<>();
+        fieldLengths = new ArrayList<>();
+        totalLengths = new long[FIELD_COUNT];
+        docIds = new IdentityHashMap<>();
+        postings = new ArrayList<>();
+        trigrams = new ArrayList<>();
+        terms = new ArrayList<>();
+
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            postings.add(new HashMap<>());
+            trigrams.add(new HashMap<>());
+            terms.add(new BKTree());
+        }
+    }
+
+    /**
+     * Maps the search menu choice to an indexed field
+     * @param choice "1" for title, "2" for subject, "3" for author
+     * @return The field constant, or -1 if the choice is invalid
+     */
+    public static int fieldForChoice(String choice) {
+        if (choice == null) {
+            return -1;
+        }
+
+        switch (choice) {
+            case "1":
+                return TITLE;
+            case "2":
+                return SUBJECT;
+            case "3":
+                return AUTHOR;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Adds a book to the index (re-indexes it if it is already present)
+     * @param b The book to add
+     */
+    public void add(Book b) {
+        if (docIds.containsKey(b)) {
+            update(b);
+            return;
+        }
+
+        int doc = docs.size();
+        docs.add(b);
+        docIds.put(b, doc);
+        indexedValues.add(null);
+        fieldLengths.add(new int[FIELD_COUNT]);
+        indexFields(doc, b);
+    }
+
+    /**
+     * Re-indexes a book after its title, subject or author has changed
+     * @param b The changed book
+     */
+    public void update(Book b) {
+        Integer doc = docIds.get(b);
+        if (doc == null) {
+            return;
+        }
+
+        unindexFields(doc);
+        indexFields(doc, b);
+    }
+
+    /**
+     * Removes a book from the index
+     * @param b The book to remove
+     */
+    public void remove(Book b) {
+        Integer doc = docIds.remove(b);
+        if (doc == null) {
+            return;
+        }
+
+        unindexFields(doc);
+        docs.set(doc, null);
+        indexedValues.set(doc, null);
+        fieldLengths.set(doc, null);
+    }
+
+    /**
+     * Removes all books from the index
+     */
+    public void clear() {
+        docs.clear();
+        indexedValues.clear();
+        fieldLengths.clear();
+        Arrays.fill(totalLengths, 0);
+        docIds.clear();
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            postings.get(f).clear();
+            trigrams.get(f).clear();
+            terms.set(f, new BKTree());
+        }
+    }
+
+    public boolean contains(Book b) {
+        return docIds.containsKey(b);
+    }
+
+    public int size() {
+        return docIds.size();
+    }
+
+    /**
+     * @return Document numbers handed out so far, including those of removed books
+     */
+    public int getDocCount() {
+        return docs.size();
+    }
+
+    /**
+     * Finds all books whose field contains the query, ignoring case.
+     * Queries of three or more characters intersect the posting lists of their trigrams;
+     * shorter ones take every token that contains them. Either way the candidates are a
+     * superset of the answer, and a final "contains" check removes the false positives.
+     * @param field TITLE, SUBJECT or AUTHOR
+     * @param query The text to search for
+     * @return Matching books in catalog order (empty if none)
+     */
+    public ArrayList<Book> search(int field, String query) {
+        PostingList matches = matchingDocs(field, query);
+
+        ArrayList<Book> matchedBooks = new ArrayList<>();
+        for (int i = 0; i < matches.size(); i++) {
+            matchedBooks.add(docs.get(matches.get(i)));
+        }
+
+        return matchedBooks;
+    }
+
+    /**
+     * Same as search, but returns document numbers so callers can combine result sets
+     * without building book lists
+     */
+    PostingList matchingDocs(int field, String query) {
+        String q = query.toLowerCase();
+        PostingList candidates = q.length() >= GRAM ? trigramCandidates(field, q) : tokenCandidates(field, q);
+
+        PostingList matches = new PostingList();
+        for (int i = 0; i < candidates.size(); i++) {
+            int doc = candidates.get(i);
+            String value = indexedValues.get(doc)[field];
+            if (value != null && value.contains(q)) {
+                matches.add(doc);
+            }
+        }
+
+        return matches;
+    }
+
+    /**
+     * @return The document numbers of every indexed book, in catalog order
+     */
+    PostingList allDocs() {
+        PostingList all = new PostingList();
+        for (int doc = 0; doc < docs.size(); doc++) {
+            if (docs.get(doc) != null) {
+                all.add(doc);
+            }
+        }
+        return all;
+    }
+
+    /**
+     * @return The book's document number, or -1 if it is not indexed
+     */
+    int docOf(Book b) {
+        Integer doc = docIds.get(b);
+        return doc == null ? -1 : doc;
+    }
+
+    /**
+     * @return The book's lower-cased title, subject and author as indexed (null if not indexed).
+     *         Re-indexing replaces the array, so a copy taken before a change stays intact.
+     */
+    String[] valuesOf(Book b) {
+        Integer doc = docIds.get(b);
+        return doc == null ? null : indexedValues.get(doc);
+    }
+
+    Book bookAt(int doc) {
+        return docs.get(doc);
+    }
+
+    /**
+     * @return The lower-cased field value as indexed (null if the book had none)
+     */
+    String valueAt(int doc, int field) {
+        return indexedValues.get(doc)[field];
+    }
+
+    /**
+     * @return The number of tokens in a document's field
+     */
+    int lengthAt(int doc, int field) {
+        return fieldLengths.get(doc)[field];
+    }
+
+    /**
+     * @return The average number of tokens per book in a field
+     */
+    double averageLength(int field) {
+        return docIds.isEmpty() ? 0 : (double) totalLengths[field] / docIds.size();
+    }
+
+    /**
+     * Returns one page of the books whose field contains the query, in catalog order.
+     * Only the rarest trigram's posting list is walked, from where the previous page stopped;
+     * each document on it is probed in the other lists and checked with "contains", and the
+     * walk ends as soon as the page is full, so later matches are never computed.
+     * The token is the document number the next page starts from, which stays valid when
+     * books are added or removed in between.
+     * @param field     TITLE, SUBJECT or AUTHOR
+     * @param query     The text to search for
+     * @param pageToken null for the first page, otherwise a token from a previous page
+     * @param pageSize  Books per page (0 or less means everything on one page)
+     * @return The page
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public BookPage searchPage(int field, String query, String pageToken, int pageSize) {
+        int startDoc = BookPage.parseToken(pageToken);
+        int limit = pageSize <= 0 ? Integer.MAX_VALUE : pageSize;
+        String q = query.toLowerCase();
+
+        ArrayList<PostingList> lists;
+        if (q.length() >= GRAM) {
+            lists = trigramLists(field, q);
+            if (lists == null) {
+                return new BookPage(new ArrayList<>(), null);
+            }
+        } else {
+            lists = new ArrayList<>();
+            lists.add(tokenCandidates(field, q));
+        }
+
+        PostingList rarest = lists.get(0);
+        ArrayList<Book> matchedBooks = new ArrayList<>();
+
+        for (int i = rarest.firstAtOrAfter(startDoc); i < rarest.size(); i++) {
+            int doc = rarest.get(i);
+            if (!inAll(lists, doc)) {
+                continue;
+            }
+            String value = indexedValues.get(doc)[field];
+            if (value == null || !value.contains(q)) {
+                continue;
+            }
+
+            // One match past the end of the page tells us there is a next page
+            if (matchedBooks.size() == limit) {
+                return new BookPage(matchedBooks, Integer.toString(doc));
+            }
+            matchedBooks.add(docs.get(doc));
+        }
+
+        return new BookPage(matchedBooks, null);
+    }
+
+    private static boolean inAll(ArrayList<PostingList> lists, int doc) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(doc)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Typo-tolerant search: every word of the query must be within the edit distance of
+     * some token of the field. Only the BK-tree of distinct tokens and the postings of the
+     * tokens it returns are touched, never the books themselves.
+     * Short words get a smaller budget (one edit per three characters) so that, for example,
+     * "a" does not match every one-letter token.
+     * @param field       TITLE, SUBJECT or AUTHOR
+     * @param query       The (possibly misspelled) text to search for
+     * @param maxDistance Maximum number of edits allowed per word
+     * @return Matching books in catalog order (empty if none)
+     */
+    public ArrayList<Book> fuzzySearch(int field, String query, int maxDistance) {
+        ArrayList<Book> matchedBooks = new ArrayList<>();
+        PostingList result = null;
+
+        for (String word : new LinkedHashSet<>(tokenize(query.toLowerCase()))) {
+            int allowed = Math.min(maxDistance, word.length() / 3);
+
+            ArrayList<PostingList> lists = new ArrayList<>();
+            for (String term : terms.get(field).search(word, allowed)) {
+                lists.add(postings.get(field).get(term));
+            }
+
+            PostingList docsForWord = PostingList.union(lists);
+            result = result == null ? docsForWord : result.intersect(docsForWord);
+            if (result.isEmpty()) {
+                return matchedBooks;
+            }
+        }
+
+        if (result != null) {
+            for (int i = 0; i < result.size(); i++) {
+                matchedBooks.add(docs.get(result.get(i)));
+            }
+        }
+        return matchedBooks;
+    }
+
+    private PostingList trigramCandidates(int field, String q) {
+        ArrayList<PostingList> lists = trigramLists(field, q);
+        if (lists == null) {
+            return new PostingList();
+        }
+
+        PostingList result = lists.get(0);
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result = result.intersect(lists.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * @return The posting lists of the query's trigrams, rarest first
+     *         (null if some trigram does not occur at all)
+     */
+    private ArrayList<PostingList> trigramLists(int field, String q) {
+        HashMap<String, PostingList> map = trigrams.get(field);
+
+        // Start from the rarest trigram so the intersections stay small
+        ArrayList<PostingList> lists = new ArrayList<>();
+        for (String gram : gramsOf(q)) {
+            PostingList list = map.get(gram);
+            if (list == null) {
+                return null;
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+        return lists;
+    }
+
+    private PostingList tokenCandidates(int field, String q) {
+        String word = longestToken(q);
+
+        if (word.isEmpty()) {
+            return allDocs();
+        }
+
+        // Any field containing the query has the query's longest word inside one of its tokens
+        ArrayList<PostingList> lists = new ArrayList<>();
+        for (Map.Entry<String, PostingList> entry : postings.get(field).entrySet()) {
+            if (entry.getKey().contains(word)) {
+                lists.add(entry.getValue());
+            }
+        }
+        return PostingList.union(lists);
+    }
+
+    /**
+     * Splits a lower-cased value into its letter/digit tokens
+     * @param value The value to split
+     * @return The tokens in order of appearance
+     */
+    static ArrayList<String> tokenize(String value) {
+        ArrayList<String> tokens = new ArrayList<>();
+        int start = -1;
+
+        for (int i = 0; i <= value.length(); i++) {
+            boolean inWord = i < value.length() && Character.isLetterOrDigit(value.charAt(i));
+
+            if (inWord && start == -1) {
+                start = i;
+            } else if (!inWord && start != -1) {
+                tokens.add(value.substring(start, i));
+                start = -1;
+            }
+        }
+
+        return tokens;
+    }
+
+    private static String longestToken(String value) {
+        String longest = "";
+        for (String token : tokenize(value)) {
+            if (token.length() > longest.length()) {
+                longest = token;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Collects the distinct trigrams of a lower-cased value
+     * @param value The value to split
+     * @return The trigrams (empty if the value is shorter than three characters)
+     */
+    static HashSet<String> gramsOf(String value) {
+        HashSet<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private void indexFields(int doc, Book b) {
+        String[] values = {lower(b.getTitle()), lower(b.getSubject()), lower(b.getAuthor())};
+        indexedValues.set(doc, values);
+
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            if (values[f] == null) {
+                continue;
+            }
+            ArrayList<String> tokens = tokenize(values[f]);
+            fieldLengths.get(doc)[f] = tokens.size();
+            totalLengths[f] += tokens.size();
+
+            for (String token : tokens) {
+                PostingList list = postings.get(f).get(token);
+                if (list == null) {
+                    list = new PostingList();
+                    postings.get(f).put(token, list);
+                    terms.get(f).add(token);
+                }
+                list.add(doc);
+            }
+            for (String gram : gramsOf(values[f])) {
+                trigrams.get(f).computeIfAbsent(gram, k -> new PostingList()).add(doc);
+            }
+        }
+    }
+
+    private void unindexFields(int doc) {
+        String[] values = indexedValues.get(doc);
+
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            if (values[f] == null) {
+                continue;
+            }
+            totalLengths[f] -= fieldLengths.get(doc)[f];
+            fieldLengths.get(doc)[f] = 0;
+
+            for (String token : tokenize(values[f])) {
+                if (removePosting(postings.get(f), token, doc)) {
+                    terms.get(f).remove(token);
+                }
+            }
+            for (String gram : gramsOf(values[f])) {
+                removePosting(trigrams.get(f), gram, doc);
+            }
+        }
+    }
+
+    /**
+     * Removes a document from a key's posting list, dropping the key once no document is left
+     * @return true if the key was dropped
+     */
+    private static boolean removePosting(HashMap<String, PostingList> map, String key, int doc) {
+        PostingList list = map.get(key);
+        if (list != null) {
+            list.remove(doc);
+            if (list.isEmpty()) {
+                map.remove(key);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String lower(String value) {
+        return value == null ? null : value.toLowerCase();
+    }
+}
@@ -144,7 +144,8 @@ public class Borrower extends Person {
      */
     public void saveToDatabase() {
         DatabaseManager db = DatabaseManager.getInstance();
-        db.insertPersonWithId(id, name, password, address, phoneNo);
+        // Only the salted hash is stored
+        db.insertPersonWithId(id, name, Library.getInstance().getCredentials().enroll(this, password), address, phoneNo);
         db.insertBorrower(id);
     }
 
@@ -0,0 +1,91 @@
+package LMS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * CatalogScan class - fork/join scan of a book list for predicates no index can answer.
+ * The list is split in halves until a range is below the threshold; each range is filtered
+ * sequentially and the halves are joined left before right, so the result keeps the order
+ * of the list. Lists below the threshold, or any list on a single-core machine, are
+ * scanned on the calling thread.
+ * The predicate must be safe to call from several threads at once.
+ */
+public class CatalogScan extends RecursiveTask<ArrayList<Book>> {
+
+    private static final long serialVersionUID = 1L;
+
+    // Below this many books a scan is cheaper than the cost of forking it
+    public static final int DEFAULT_THRESHOLD = 4096;
+
+    private final List<Book> books;
+    private final Predicate<Book> predicate;
+    private final int from;
+    private final int to;
+    private final int threshold;
+
+    private CatalogScan(List<Book> books, Predicate<Book> predicate, int from, int to, int threshold) {
+        this.books = books;
+        this.predicate = predicate;
+        this.from = from;
+        this.to = to;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Finds the books matching a predicate with the default threshold
+     * @param books     The books to scan (must not change during the scan)
+     * @param predicate The condition to test
+     * @return Matching books in list order
+     */
+    public static ArrayList<Book> scan(List<Book> books, Predicate<Book> predicate) {
+        return scan(books, predicate, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Finds the books matching a predicate
+     * @param books     The books to scan (must not change during the scan)
+     * @param predicate The condition to test
+     * @param threshold Largest range scanned without splitting it further
+     * @return Matching books in list order
+     */
+    public static ArrayList<Book> scan(List<Book> books, Predicate<Book> predicate, int threshold) {
+        CatalogScan task = new CatalogScan(books, predicate, 0, books.size(), Math.max(1, threshold));
+        if (books.size() <= task.threshold || Runtime.getRuntime().availableProcessors() == 1) {
+            return task.scanRange();
+        }
+        return ForkJoinPool.commonPool().invoke(task);
+    }
+
+    @Override
+    protected ArrayList<Book> compute() {
+        if (to - from <= threshold) {
+            return scanRange();
+        }
+
+        int mid = (from + to) >>> 1;
+        CatalogScan left = new CatalogScan(books, predicate, from, mid, threshold);
+        CatalogScan right = new CatalogScan(books, predicate, mid, to, threshold);
+
+        left.fork();
+        ArrayList<Book> rightMatches = right.compute();
+        ArrayList<Book> matches = left.join();
+
+        matches.addAll(rightMatches);
+        return matches;
+    }
+
+    private ArrayList<Book> scanRange() {
+        ArrayList<Book> matches = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            Book b = books.get(i);
+            if (predicate.test(b)) {
+                matches.add(b);
+            }
+        }
+        return matches;
+    }
+}
@@ -42,7 +42,8 @@ public class Clerk extends Staff {
      */
     public void saveToDatabase() {
         DatabaseManager db = DatabaseManager.getInstance();
-        db.insertPersonWithId(id, name, password, address, phoneNo);
+        // Only the salted hash is stored
+        db.insertPersonWithId(id, name, Library.getInstance().getCredentials().enroll(this, password), address, phoneNo);
         db.insertStaff(id, "Clerk", salary);
         db.insertClerk(id, deskNo);
     }
@@ -0,0 +1,306 @@
+package LMS;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * CredentialStore class - salted password hashes keyed by person id.
+ * A person is enrolled when saved: their password is hashed once with PBKDF2-HMAC-SHA256
+ * under a random salt, and the encoded salt and hash are what the Person table stores.
+ * A person loaded from the database is registered with that stored value, without hashing.
+ * Rows stored before passwords were hashed (and persons only built in memory) still hold the
+ * plain password; it is compared once at the first login and replaced by a hash, which the
+ * hash listener writes back. A stored hash that cannot be decoded locks that one login
+ * until the person is enrolled again, rather than failing the whole load.
+ * Hashes are compared with MessageDigest.isEqual, which takes the same time wherever
+ * the first difference is.
+ * A successful login also opens a session for the length of a desk shift; while it lasts,
+ * the same password is checked against a cheap HMAC instead of re-running PBKDF2.
+ */
+public class CredentialStore {
+
+    private static final int ITERATIONS = 10_000;
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    // Stored form: pbkdf2-sha256$iterations$salt$hash, salt and hash in Base64
+    private static final String SCHEME = "pbkdf2-sha256";
+
+    /**
+     * Receives the new stored form of a password that was upgraded from plain text at login
+     */
+    public interface HashListener {
+        void hashChanged(int id, String stored);
+    }
+
+    // Length of a desk shift, and the most sessions remembered at once
+    private static final long SESSION_MILLIS = 8L * 60 * 60 * 1000;
+    private static final int MAX_SESSIONS = 1024;
+
+    private final SecureRandom random;
+    private final byte[] sessionKey;
+    private final IntObjectMap<Credential> credentials;
+    private final LinkedHashMap<Integer, Session> sessions;
+    private HashListener hashListener;
+
+    private long hashChecks;
+    private long sessionHits;
+
+    public CredentialStore() {
+        random = new SecureRandom();
+        sessionKey = new byte[32];
+        random.nextBytes(sessionKey);
+        credentials = new IntObjectMap<>();
+
+        sessions = new LinkedHashMap<Integer, Session>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Session> eldest) {
+                return size() > MAX_SESSIONS;
+            }
+        };
+    }
+
+    /**
+     * Checks a person's password; at most one PBKDF2 hash is computed
+     * @param p        The person the id belongs to
+     * @param password The password typed in
+     * @return true if it is the person's password
+     */
+    public boolean verify(Person p, String password) {
+        if (p == null || password == null) {
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        byte[] sessionDigest = hmac(password);
+
+        Session session = sessions.get(p.getID());
+        if (session != null && session.owner == p && session.expiresAt > now
+                && MessageDigest.isEqual(session.digest, sessionDigest)) {
+            sessionHits++;
+            return true;
+        }
+
+        Credential credential = credentials.get(p.getID());
+        if (credential == null || credential.owner != p) {
+            // Never saved or loaded: the password is the one the person was built with
+            credential = new Credential(p, p.getPassword(), false);
+            credentials.put(p.getID(), credential);
+        }
+
+        if (credential.locked) {
+            return false;
+        }
+        if (credential.plain != null) {
+            if (!MessageDigest.isEqual(utf8(credential.plain), utf8(password))) {
+                return false;
+            }
+            String stored = enroll(p, password);
+            if (credential.fromDatabase && hashListener != null) {
+                hashListener.hashChanged(p.getID(), stored);
+            }
+        } else {
+            hashChecks++;
+            if (!MessageDigest.isEqual(credential.hash, hash(password, credential.salt, credential.iterations))) {
+                return false;
+            }
+        }
+
+        sessions.put(p.getID(), new Session(p, sessionDigest, now + SESSION_MILLIS));
+        return true;
+    }
+
+    /**
+     * Hashes a person's password and keeps it under their id
+     * @param p        The person to enroll
+     * @param password Their password
+     * @return The stored form to save in the Person table
+     */
+    public String enroll(Person p, String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+
+        hashChecks++;
+        Credential credential = new Credential(p, ITERATIONS, salt, hash(password, salt, ITERATIONS));
+        credentials.put(p.getID(), credential);
+        sessions.remove(p.getID());
+
+        Base64.Encoder b64 = Base64.getEncoder();
+        return SCHEME + "$" + ITERATIONS + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(credential.hash);
+    }
+
+    /**
+     * Registers a person loaded from the database, without hashing anything
+     * @param p      The loaded person
+     * @param stored The password column of their Person row
+     */
+    public void load(Person p, String stored) {
+        if (p == null || stored == null) {
+            return;
+        }
+
+        Credential credential;
+        if (stored.startsWith(SCHEME + "$")) {
+            credential = decode(p, stored.split("\\$", -1));
+            if (credential == null) {
+                // Taking it as plain text would make the stored string itself the password
+                System.out.println("The stored password of person " + p.getID()
+                        + " is unreadable; their login is refused until the password is saved again.");
+                credential = new Credential(p);
+            }
+        } else {
+            credential = new Credential(p, stored, true);
+        }
+        credentials.put(p.getID(), credential);
+        sessions.remove(p.getID());
+    }
+
+    /**
+     * @param p     The person the hash belongs to
+     * @param parts A stored hash split at '$'
+     * @return The credential, or null if the iteration count, salt or hash is malformed
+     */
+    private static Credential decode(Person p, String[] parts) {
+        if (parts.length != 4) {
+            return null;
+        }
+        try {
+            Base64.Decoder b64 = Base64.getDecoder();
+            int iterations = Integer.parseInt(parts[1]);
+            byte[] salt = b64.decode(parts[2]);
+            byte[] hash = b64.decode(parts[3]);
+            if (iterations <= 0 || salt.length == 0 || hash.length == 0) {
+                return null;
+            }
+            return new Credential(p, iterations, salt, hash);
+        } catch (IllegalArgumentException e) {
+            // Covers NumberFormatException as well
+            return null;
+        }
+    }
+
+    /**
+     * @param listener Called when a plain text password from the database is replaced by a hash
+     */
+    public void setHashListener(HashListener listener) {
+        hashListener = listener;
+    }
+
+    /**
+     * Drops a person's credential and session
+     * @param id The person's id
+     */
+    public void forget(int id) {
+        credentials.remove(id);
+        sessions.remove(id);
+    }
+
+    /**
+     * Ends every open session (credentials are kept)
+     */
+    public void endSessions() {
+        sessions.clear();
+    }
+
+    public int size() {
+        return credentials.size();
+    }
+
+    public long getHashCheckCount() {
+        return hashChecks;
+    }
+
+    public long getSessionHitCount() {
+        return sessionHits;
+    }
+
+    private static byte[] hash(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Password hashing is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] hmac(String password) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(sessionKey, "HmacSHA256"));
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Password hashing is not available", e);
+        }
+    }
+
+    /**
+     * Either a salted hash, a plain password still waiting for its first login, or a locked
+     * entry for a stored value that could not be read
+     */
+    private static class Credential {
+        final Person owner;
+        final int iterations;
+        final byte[] salt;
+        final byte[] hash;
+        final String plain;
+        final boolean fromDatabase;
+        final boolean locked;
+
+        Credential(Person owner, int iterations, byte[] salt, byte[] hash) {
+            this.owner = owner;
+            this.iterations = iterations;
+            this.salt = salt;
+            this.hash = hash;
+            this.plain = null;
+            this.fromDatabase = true;
+            this.locked = false;
+        }
+
+        Credential(Person owner, String plain, boolean fromDatabase) {
+            this.owner = owner;
+            this.iterations = 0;
+            this.salt = null;
+            this.hash = null;
+            this.plain = plain;
+            this.fromDatabase = fromDatabase;
+            this.locked = false;
+        }
+
+        Credential(Person owner) {
+            this.owner = owner;
+            this.iterations = 0;
+            this.salt = null;
+            this.hash = null;
+            this.plain = null;
+            this.fromDatabase = true;
+            this.locked = true;
+        }
+    }
+
+    private static class Session {
+        final Person owner;
+        final byte[] digest;
+        final long expiresAt;
+
+        Session(Person owner, byte[] digest, long expiresAt) {
+            this.owner = owner;
+            this.digest = digest;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -3,12 +3,62 @@ package LMS;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
 
 public class DatabaseManager {
 
     private static DatabaseManager instance;
     private static final String DB_URL = "jdbc:sqlite:database/library.db";
     private Connection conn;
+    private int fetchSize = 1000;
+    private StatementCache statements;
+    private int statementCacheSize = 64;
+    private DatabaseProfile profile = DatabaseProfile.DURABLE;
+    private volatile WriteBehindQueue writeBehind;
+    private volatile ReadConnectionPool readers;
+    private int readPoolSize = 0;
+    private boolean changeLog = false;
+
+    // Writes collected by the unit of work open on each thread
+    private final ThreadLocal<ArrayList<Runnable>> unitOfWork = new ThreadLocal<>();
+
+    private static final String BOOK_SELECT = "SELECT id, title, author, subject, isIssued FROM Book";
+
+    private static final String CLERK_SELECT = """
+        SELECT p.id, p.name, p.address, p.phoneNo, s.salary, c.deskNo
+        FROM Person p
+        JOIN Clerk c ON p.id = c.personId
+        JOIN Staff s ON p.id = s.personId
+    """;
+
+    private static final String BORROWER_SELECT = "SELECT id, name, address, phoneNo FROM Person WHERE type='Borrower'";
+
+    private static final String HOLD_SELECT = "SELECT id, bookId, borrowerId, requestDate FROM HoldRequest";
+
+    private static final String LOAN_COLUMNS =
+            "id, borrowerId, bookId, issuerId, issueDate, receiverId, returnDate, finePaid";
+
+    // Loans still on someone's account: not returned, or returned with the fine unpaid
+    private static final String OPEN_LOAN = "(receiverId IS NULL OR IFNULL(finePaid, 0) = 0)";
+
+    // Tables whose changes the ChangeLog triggers record: table, key column, logged as
+    private static final String[][] LOGGED_TABLES = {
+            {"Book", "id", "Book"},
+            {"Person", "id", "Person"},
+            {"Staff", "personId", "Person"},
+            {"Clerk", "personId", "Person"},
+            {"Librarian", "personId", "Person"},
+            {"Loan", "id", "Loan"},
+            {"HoldRequest", "id", "HoldRequest"}
+    };
+
+    /**
+     * ChangeLog table name of the entry written when the triggers are dropped: changes after
+     * it were not logged, so a snapshot from before it cannot be brought up to date
+     */
+    public static final String CHANGE_LOG_GAP = "Gap";
 
     private DatabaseManager() {}
 
@@ -21,14 +71,32 @@ public class DatabaseManager {
 
     /* ==================== CONNECTION ==================== */
 
-    public Connection connect() {
+    public synchronized Connection connect() {
+        StartupProfiler profiler = StartupProfiler.getInstance();
         try {
+            StartupProfiler.Phase phase = profiler.begin("open connection");
             Class.forName("org.sqlite.JDBC");
-            conn = DriverManager.getConnection(DB_URL);
-            createTables();
+            conn = DriverManager.getConnection(DB_URL, profile.writeProperties());
+            statements = new StatementCache(conn, statementCacheSize);
+            // Only WAL lets readers on other connections run while the writer commits
+            if (readPoolSize > 0 && profile.getJournalMode().equalsIgnoreCase("WAL")) {
+                readers = new ReadConnectionPool(this, readPoolSize, statementCacheSize);
+            }
+            phase.end();
+
+            phase = profiler.begin("migrateSchema");
+            migrateSchema();
+            applyChangeLog();
+            phase.end();
+
+            phase = profiler.begin("isDatabaseEmpty");
+            boolean empty = isDatabaseEmpty();
+            phase.end();
 
-            if (isDatabaseEmpty()) {
+            if (empty) {
+                phase = profiler.begin("seedDatabase");
                 seedDatabase();
+                phase.end();
             }
 
             System.out.println("Connected to SQLite database.");
@@ -39,97 +107,485 @@ public class DatabaseManager {
     }
 
 
+    /**
+     * Opens an extra read-only connection to the same database file, for reading
+     * tables on another thread alongside the main connection
+     * @return The connection; the caller closes it
+     */
+    public Connection openReadConnection() {
+        try {
+            Properties props = profile.readProperties();
+            props.setProperty("open_mode", "1"); // SQLITE_OPEN_READONLY
+            return DriverManager.getConnection(DB_URL, props);
+        } catch (SQLException e) {
+            throw new RuntimeException("Database connection failed", e);
+        }
+    }
+
+    /**
+     * Commits any queued writes, turns write-behind off and closes the connection.
+     * Not synchronized: the write-behind thread needs the lock to commit what is queued.
+     * @throws IllegalStateException if queued writes could not be committed (the connection
+     *         is closed all the same)
+     */
     public void closeConnection() {
         try {
-            if (conn != null) conn.close();
-            System.out.println("Database connection closed.");
+            disableWriteBehind();
+        } finally {
+            ReadConnectionPool pool = readers;
+            readers = null;
+            if (pool != null) {
+                pool.close();
+            }
+
+            synchronized (this) {
+                try {
+                    // Statements have to be closed before the connection they were prepared on
+                    if (statements != null) statements.close();
+                    if (conn != null) conn.close();
+                    System.out.println("Database connection closed.");
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Selects the SQLite settings (journal, sync level, caches, busy timeout) used by every
+     * connection opened from now on; the main connection picks it up on the next connect()
+     */
+    public void setProfile(DatabaseProfile p) {
+        profile = p;
+    }
+
+    public DatabaseProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Sets how many prepared statements the main connection keeps open for reuse;
+     * takes effect on the next connect()
+     * @param size Maximum number of cached statements
+     */
+    public void setStatementCacheSize(int size) {
+        statementCacheSize = size;
+    }
+
+    /**
+     * @return The statement cache of the current connection (null before connect())
+     */
+    public StatementCache getStatementCache() {
+        return statements;
+    }
+
+    /**
+     * Returns a cached prepared statement on the main connection. The statement stays
+     * open for the next caller, so it must not be closed (its result sets must be).
+     */
+    private PreparedStatement statement(String sql) throws SQLException {
+        return statements.prepare(sql);
+    }
+
+    private PreparedStatement statement(String sql, int autoGeneratedKeys) throws SQLException {
+        return statements.prepare(sql, autoGeneratedKeys);
+    }
+
+    /* ==================== READ POOL ==================== */
+
+    /**
+     * Sets how many read-only connections serve searches, reports and loads, so they do not
+     * queue behind the main connection; takes effect on the next connect(). The pool is only
+     * used under a WAL profile (without WAL a reader would still block the writer).
+     * @param size Number of read connections (0 reads on the main connection)
+     */
+    public void setReadPoolSize(int size) {
+        readPoolSize = size;
+    }
+
+    /**
+     * @return The read pool of the current connection (null when reads use the main connection)
+     */
+    public ReadConnectionPool getReadPool() {
+        return readers;
+    }
+
+    /**
+     * A query run on whichever connection read() hands it
+     */
+    private interface ReadTask<T> {
+        T run(StatementCache reader) throws SQLException;
+    }
+
+    /**
+     * Runs a query on a leased read connection, or on the main connection when there is no pool.
+     * Statements from reader.prepare() are cached on that connection and must not be closed.
+     * Only for committed data: a read connection does not see the main connection's open
+     * transaction, so reads on the write path stay on the main connection.
+     */
+    private <T> T read(ReadTask<T> task) {
+        try {
+            ReadConnectionPool pool = readers;
+            if (pool == null) {
+                synchronized (this) {
+                    return task.run(statements);
+                }
+            }
+
+            StatementCache reader = pool.lease();
+            try {
+                return task.run(reader);
+            } finally {
+                pool.release(reader);
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new RuntimeException(e);
         }
     }
 
-    /* ==================== TABLE CREATION ==================== */
+    /* ==================== WRITE-BEHIND ==================== */
+
+    /**
+     * Sends writes made through write() to a background thread that commits them in batches.
+     * The database then lags behind the library by at most batchMillis, and a crash can lose
+     * the writes not yet committed; flush() and closeConnection() wait for them.
+     * @param batchMillis Longest time a write waits for others to share its commit
+     * @param batchSize   Most writes committed together
+     */
+    public void enableWriteBehind(int batchMillis, int batchSize) {
+        if (writeBehind == null) {
+            writeBehind = new WriteBehindQueue(this, batchMillis, batchSize);
+        }
+    }
 
-    public void createTables() {
-        try (Statement stmt = conn.createStatement()) {
+    /**
+     * Commits everything queued and goes back to writing immediately
+     * @throws IllegalStateException if queued writes could not be committed
+     */
+    public void disableWriteBehind() {
+        WriteBehindQueue queue = writeBehind;
+        writeBehind = null;
+        if (queue != null) {
+            queue.close();
+        }
+    }
 
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS Person (
-                    id INTEGER PRIMARY KEY,
-                    name TEXT NOT NULL,
-                    password TEXT NOT NULL,
-                    address TEXT,
-                    phoneNo INTEGER,
-                    type TEXT NOT NULL
-                )
-            """);
+    /**
+     * Runs a write now, or queues it when write-behind is on. Inside unitOfWork() the write
+     * is held back and committed with the rest of the unit. Only for writes whose result
+     * nobody waits for; the write must call the methods of this class, not other locks.
+     * @param op The write
+     */
+    public void write(Runnable op) {
+        ArrayList<Runnable> work = unitOfWork.get();
+        if (work != null) {
+            work.add(op);
+            return;
+        }
 
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS Staff (
-                    personId INTEGER PRIMARY KEY,
-                    salary REAL,
-                    FOREIGN KEY (personId) REFERENCES Person(id)
-                )
-            """);
+        WriteBehindQueue queue = writeBehind;
+        if (queue == null || !queue.submit(op)) {
+            op.run();
+        }
+    }
 
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS Librarian (
-                    personId INTEGER PRIMARY KEY,
-                    officeNo INTEGER,
-                    FOREIGN KEY (personId) REFERENCES Person(id)
-                )
-            """);
+    /**
+     * Runs body and commits every write() it makes in one transaction, so a desk transaction
+     * (an issue or a return) costs one commit and is never left half applied. The writes are
+     * applied after body returns, in order, or dropped if body throws. A unit of work opened
+     * inside another one joins it.
+     * @param body The work whose writes belong together
+     */
+    public void unitOfWork(Runnable body) {
+        if (unitOfWork.get() != null) {
+            body.run();
+            return;
+        }
 
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS Clerk (
-                    personId INTEGER PRIMARY KEY,
-                    deskNo INTEGER,
-                    FOREIGN KEY (personId) REFERENCES Person(id)
-                )
-            """);
+        ArrayList<Runnable> work = new ArrayList<>();
+        unitOfWork.set(work);
+        try {
+            body.run();
+        } finally {
+            unitOfWork.remove();
+        }
 
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS Book (
-                    id INTEGER PRIMARY KEY,
-                    title TEXT NOT NULL,
-                    author TEXT NOT NULL,
-                    subject TEXT,
-                    isIssued INTEGER DEFAULT 0
-                )
-            """);
+        if (!work.isEmpty()) {
+            write(() -> runInTransaction(work));
+        }
+    }
 
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS Loan (
-                    id INTEGER PRIMARY KEY,
-                    borrowerId INTEGER,
-                    bookId INTEGER,
-                    issuerId INTEGER,
-                    issueDate INTEGER,
-                    receiverId INTEGER,
-                    returnDate INTEGER,
-                    finePaid INTEGER DEFAULT 0
-                )
-            """);
+    /**
+     * Runs writes all or nothing. Uses a savepoint, so inside a write-behind batch the writes
+     * are nested in the batch transaction and otherwise they get a transaction of their own.
+     */
+    synchronized void runInTransaction(List<Runnable> ops) {
+        try {
+            statement("SAVEPOINT unit_of_work").execute();
+            try {
+                for (Runnable op : ops) {
+                    op.run();
+                }
+            } catch (RuntimeException e) {
+                statement("ROLLBACK TO unit_of_work").execute();
+                statement("RELEASE unit_of_work").execute();
+                throw e;
+            }
+            statement("RELEASE unit_of_work").execute();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to commit unit of work", e);
+        }
+    }
 
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS HoldRequest (
-                    id INTEGER PRIMARY KEY,
-                    bookId INTEGER,
-                    borrowerId INTEGER,
-                    requestDate INTEGER
-                )
-            """);
+    /**
+     * Waits until every queued write is committed (returns at once without write-behind)
+     * @throws IllegalStateException if queued writes failed since the last flush; they are
+     *         kept and getWriteBehindQueue().retryFailed() queues them again
+     */
+    public void flush() {
+        WriteBehindQueue queue = writeBehind;
+        if (queue != null) {
+            queue.flush();
+        }
+    }
 
-            System.out.println("Database tables ready.");
+    /**
+     * @return The write-behind queue, or null when writes are made immediately
+     */
+    public WriteBehindQueue getWriteBehindQueue() {
+        return writeBehind;
+    }
+
+    /**
+     * Runs a batch of writes in one transaction. If the transaction fails it is rolled back
+     * and the writes are run again one at a time, so one bad write does not lose the others.
+     * @return The error of each write, null for those that were applied
+     */
+    synchronized RuntimeException[] runBatch(List<Runnable> ops) {
+        RuntimeException[] errors = new RuntimeException[ops.size()];
+        try {
+            conn.setAutoCommit(false);
+            for (Runnable op : ops) {
+                op.run();
+            }
+            conn.commit();
+            return errors;
+        } catch (RuntimeException | SQLException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException ignored) {
+                // Nothing was started
+            }
+        } finally {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
 
+        for (int i = 0; i < ops.size(); i++) {
+            try {
+                ops.get(i).run();
+            } catch (RuntimeException e) {
+                errors[i] = e;
+            }
+        }
+        return errors;
+    }
+
+    /* ==================== SCHEMA ==================== */
+
+    /*
+     * The schema as numbered steps, applied in order to any database below the latest version.
+     * Add a step for every change; never edit or renumber one that has shipped. Step 1 is all
+     * IF NOT EXISTS, so files created before versioning simply pass through it.
+     */
+    private static final SchemaMigrator MIGRATIONS = new SchemaMigrator()
+            .add(1, "tables and change log", DatabaseManager::createTables)
+            .add(2, "indexes for active loans, holds and loan history", DatabaseManager::createIndexes)
+            .add(3, "database identity", DatabaseManager::createIdentity);
+
+    /**
+     * Creates the tables of a new database, or upgrades an existing one in place
+     * @return The number of migration steps applied
+     */
+    public synchronized int migrateSchema() {
+        try {
+            int applied = MIGRATIONS.migrate(conn);
+            System.out.println("Database tables ready.");
+            return applied;
         } catch (SQLException e) {
             throw new RuntimeException("Failed to create tables", e);
         }
     }
 
+    /**
+     * @return The schema version of the open database
+     */
+    public synchronized int getSchemaVersion() {
+        try {
+            return SchemaMigrator.getVersion(conn);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static int getLatestSchemaVersion() {
+        return MIGRATIONS.getLatestVersion();
+    }
+
+    private static void createTables(Statement stmt) throws SQLException {
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS Person (
+                id INTEGER PRIMARY KEY,
+                name TEXT NOT NULL,
+                password TEXT NOT NULL,
+                address TEXT,
+                phoneNo INTEGER,
+                type TEXT NOT NULL
+            )
+        """);
+
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS Staff (
+                personId INTEGER PRIMARY KEY,
+                salary REAL,
+                FOREIGN KEY (personId) REFERENCES Person(id)
+            )
+        """);
+
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS Librarian (
+                personId INTEGER PRIMARY KEY,
+                officeNo INTEGER,
+                FOREIGN KEY (personId) REFERENCES Person(id)
+            )
+        """);
+
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS Clerk (
+                personId INTEGER PRIMARY KEY,
+                deskNo INTEGER,
+                FOREIGN KEY (personId) REFERENCES Person(id)
+            )
+        """);
+
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS Book (
+                id INTEGER PRIMARY KEY,
+                title TEXT NOT NULL,
+                author TEXT NOT NULL,
+                subject TEXT,
+                isIssued INTEGER DEFAULT 0
+            )
+        """);
+
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS Loan (
+                id INTEGER PRIMARY KEY,
+                borrowerId INTEGER,
+                bookId INTEGER,
+                issuerId INTEGER,
+                issueDate INTEGER,
+                receiverId INTEGER,
+                returnDate INTEGER,
+                finePaid INTEGER DEFAULT 0
+            )
+        """);
+
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS HoldRequest (
+                id INTEGER PRIMARY KEY,
+                bookId INTEGER,
+                borrowerId INTEGER,
+                requestDate INTEGER
+            )
+        """);
+
+        createChangeLog(stmt);
+    }
+
+    /**
+     * Indexes for the queries that otherwise scan a whole table. The row id is part of every
+     * index, so a query that only needs id and the indexed columns never reads the table.
+     */
+    private static void createIndexes(Statement stmt) throws SQLException {
+        // Active loan of a book and borrower (getLoanIdForActiveBook, updateLoanIssueDate);
+        // partial, so it holds only the loans still out. receiverId is always NULL in it, but
+        // without the column SQLite reads the table row to check the condition.
+        stmt.execute("CREATE INDEX IF NOT EXISTS Loan_active ON Loan(bookId, borrowerId, receiverId) WHERE receiverId IS NULL");
+
+        // Open loans in id order, read at startup when the settled ones are left in the database
+        stmt.execute("CREATE INDEX IF NOT EXISTS Loan_open ON Loan(id) WHERE " + OPEN_LOAN);
+
+        // One borrower's loan history page by page
+        stmt.execute("CREATE INDEX IF NOT EXISTS Loan_borrower ON Loan(borrowerId)");
+
+        // Holds on a book in queue order (deleteHoldRequest)
+        stmt.execute("CREATE INDEX IF NOT EXISTS HoldRequest_book ON HoldRequest(bookId, requestDate)");
+
+        // Covers forEachHoldRequest: every column in requestDate order, without a sort
+        stmt.execute("CREATE INDEX IF NOT EXISTS HoldRequest_queue ON HoldRequest(requestDate, bookId, borrowerId)");
+    }
+
+    /**
+     * Creates the ChangeLog table. It is filled by triggers only while the change log is on
+     * (see setChangeLog), so it stays empty unless snapshots are used.
+     */
+    private static void createChangeLog(Statement stmt) throws SQLException {
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS ChangeLog (
+                seq INTEGER PRIMARY KEY AUTOINCREMENT,
+                tableName TEXT NOT NULL,
+                rowId INTEGER NOT NULL
+            )
+        """);
+    }
+
+    /**
+     * A random id given to the database file when it is created, so a snapshot can tell
+     * whether it was written from this database or from another one with the same tables
+     */
+    private static void createIdentity(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS DatabaseIdentity (uuid TEXT NOT NULL)");
+        stmt.execute("INSERT INTO DatabaseIdentity(uuid) SELECT lower(hex(randomblob(16)))");
+    }
+
+    /**
+     * Triggers that record every insert, update or delete in the ChangeLog: the table and
+     * row id it touched, so a snapshot of the library can be brought up to date by re-reading
+     * only those rows. Staff, Clerk and Librarian rows are logged under their Person id.
+     */
+    private static void createChangeLogTriggers(Statement stmt) throws SQLException {
+        for (String[] t : LOGGED_TABLES) {
+            String table = t[0], key = t[1], logAs = t[2];
+
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS " + table + "_log_insert AFTER INSERT ON " + table + " BEGIN "
+                    + "INSERT INTO ChangeLog(tableName, rowId) VALUES ('" + logAs + "', new." + key + "); END");
+
+            // An update that changes the key touches both rows
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS " + table + "_log_update AFTER UPDATE ON " + table + " BEGIN "
+                    + "INSERT INTO ChangeLog(tableName, rowId) VALUES ('" + logAs + "', new." + key + "); "
+                    + "INSERT INTO ChangeLog(tableName, rowId) SELECT '" + logAs + "', old." + key
+                    + " WHERE old." + key + " <> new." + key + "; END");
+
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS " + table + "_log_delete AFTER DELETE ON " + table + " BEGIN "
+                    + "INSERT INTO ChangeLog(tableName, rowId) VALUES ('" + logAs + "', old." + key + "); END");
+        }
+    }
+
+    private static void dropChangeLogTriggers(Statement stmt) throws SQLException {
+        for (String[] t : LOGGED_TABLES) {
+            for (String event : new String[]{"insert", "update", "delete"}) {
+                stmt.execute("DROP TRIGGER IF EXISTS " + t[0] + "_log_" + event);
+            }
+        }
+    }
+
     /* ==================== DATABASE CHECK ==================== */
 
-    public boolean isDatabaseEmpty() {
+    public synchronized boolean isDatabaseEmpty() {
         try (Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM Person")) {
 
@@ -146,7 +602,7 @@ public class DatabaseManager {
 
     /* ==================== SEED DATA ==================== */
 
-    public void seedDatabase() {
+    public synchronized void seedDatabase() {
         try {
             /* ==================== PERSON ==================== */
 
@@ -250,10 +706,11 @@ public class DatabaseManager {
 
     /* ==================== PERSON ==================== */
 
-    public int insertPerson(String name, String password, String address, int phoneNo, String type) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                "INSERT INTO Person(name, password, address, phoneNo, type) VALUES (?, ?, ?, ?, ?)",
-                Statement.RETURN_GENERATED_KEYS)) {
+    public synchronized int insertPerson(String name, String password, String address, int phoneNo, String type) {
+        try {
+            PreparedStatement ps = statement(
+                    "INSERT INTO Person(name, password, address, phoneNo, type) VALUES (?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
 
             ps.setString(1, name);
             ps.setString(2, password);
@@ -262,8 +719,7 @@ public class DatabaseManager {
             ps.setString(5, type);
             ps.executeUpdate();
 
-            ResultSet rs = ps.getGeneratedKeys();
-            return rs.next() ? rs.getInt(1) : -1;
+            return generatedId(ps);
 
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -273,17 +729,17 @@ public class DatabaseManager {
 
     /* ==================== STAFF ==================== */
 
-    public void insertLibrarian(int personId, int officeNo) throws SQLException {
-        PreparedStatement ps = conn.prepareStatement(
-                "INSERT OR IGNORE INTO Librarian VALUES (?, ?)");
+    public synchronized void insertLibrarian(int personId, int officeNo) throws SQLException {
+        PreparedStatement ps = statement("INSERT OR IGNORE INTO Librarian VALUES (?, ?)");
         ps.setInt(1, personId);
         ps.setInt(2, officeNo);
         ps.executeUpdate();
     }
 
-    public void insertClerk(int personId, int deskNo) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                "INSERT OR IGNORE INTO Clerk VALUES (?, ?)")) {
+    public synchronized void insertClerk(int personId, int deskNo) {
+        try {
+            PreparedStatement ps = statement(
+                    "INSERT OR IGNORE INTO Clerk VALUES (?, ?)");
 
             ps.setInt(1, personId);
             ps.setInt(2, deskNo);
@@ -297,16 +753,18 @@ public class DatabaseManager {
 
     /* ==================== BOOK ==================== */
 
-    public int insertBook(String title, String author, String subject, boolean isIssued) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                "INSERT INTO Book(title, author, subject, isIssued) VALUES (?, ?, ?, ?)")) {
+    public synchronized int insertBook(String title, String author, String subject, boolean isIssued) {
+        try {
+            PreparedStatement ps = statement(
+                    "INSERT INTO Book(title, author, subject, isIssued) VALUES (?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
 
             ps.setString(1, title);
             ps.setString(2, author);
             ps.setString(3, subject);
             ps.setInt(4, isIssued ? 1 : 0);
             ps.executeUpdate();
-            return getLastId("Book");
+            return generatedId(ps);
 
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -315,16 +773,18 @@ public class DatabaseManager {
 
     /* ==================== LOAN ==================== */
 
-    public int insertLoan(int borrowerId, int bookId, int issuerId, Date issueDate) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                "INSERT INTO Loan(borrowerId, bookId, issuerId, issueDate) VALUES (?, ?, ?, ?)")) {
+    public synchronized int insertLoan(int borrowerId, int bookId, int issuerId, Date issueDate) {
+        try {
+            PreparedStatement ps = statement(
+                    "INSERT INTO Loan(borrowerId, bookId, issuerId, issueDate) VALUES (?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
 
             ps.setInt(1, borrowerId);
             ps.setInt(2, bookId);
             ps.setInt(3, issuerId);
             ps.setLong(4, issueDate.getTime());
             ps.executeUpdate();
-            return getLastId("Loan");
+            return generatedId(ps);
 
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -333,16 +793,20 @@ public class DatabaseManager {
 
     /* ==================== UTIL ==================== */
 
-    private int getLastId(String table) throws SQLException {
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT MAX(id) FROM " + table)) {
+    /**
+     * @param ps An insert prepared with RETURN_GENERATED_KEYS, just executed
+     * @return The id SQLite gave the new row; unlike MAX(id) this is always this insert's row
+     */
+    private int generatedId(PreparedStatement ps) throws SQLException {
+        try (ResultSet rs = ps.getGeneratedKeys()) {
             return rs.next() ? rs.getInt(1) : -1;
         }
     }
 
-    public void updatePerson(int id, String name, String address, int phoneNo) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                "UPDATE Person SET name = ?, address = ?, phoneNo = ? WHERE id = ?")) {
+    public synchronized void updatePerson(int id, String name, String address, int phoneNo) {
+        try {
+            PreparedStatement ps = statement(
+                    "UPDATE Person SET name = ?, address = ?, phoneNo = ? WHERE id = ?");
 
             ps.setString(1, name);
             ps.setString(2, address);
@@ -356,25 +820,42 @@ public class DatabaseManager {
         }
     }
 
-    public int insertHoldRequest(int bookId, int borrowerId, Date requestDate) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                "INSERT INTO HoldRequest(bookId, borrowerId, requestDate) VALUES (?, ?, ?)")) {
+    public synchronized void updatePassword(int id, String stored) {
+        try {
+            PreparedStatement ps = statement("UPDATE Person SET password = ? WHERE id = ?");
+
+            ps.setString(1, stored);
+            ps.setInt(2, id);
+
+            ps.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to update password", e);
+        }
+    }
+
+    public synchronized int insertHoldRequest(int bookId, int borrowerId, Date requestDate) {
+        try {
+            PreparedStatement ps = statement(
+                    "INSERT INTO HoldRequest(bookId, borrowerId, requestDate) VALUES (?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
 
             ps.setInt(1, bookId);
             ps.setInt(2, borrowerId);
             ps.setLong(3, requestDate.getTime());
 
             ps.executeUpdate();
-            return getLastId("HoldRequest");
+            return generatedId(ps);
 
         } catch (SQLException e) {
             throw new RuntimeException("Failed to insert hold request", e);
         }
     }
 
-    public void deleteHoldRequest(int bookId, int borrowerId) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                "DELETE FROM HoldRequest WHERE bookId = ? AND borrowerId = ?")) {
+    public synchronized void deleteHoldRequest(int bookId, int borrowerId) {
+        try {
+            PreparedStatement ps = statement(
+                    "DELETE FROM HoldRequest WHERE bookId = ? AND borrowerId = ?");
 
             ps.setInt(1, bookId);
             ps.setInt(2, borrowerId);
@@ -386,9 +867,10 @@ public class DatabaseManager {
     }
 
 
-    public void insertBorrower(int borrowerId) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                "UPDATE Person SET type = 'Borrower' WHERE id = ?")) {
+    public synchronized void insertBorrower(int borrowerId) {
+        try {
+            PreparedStatement ps = statement(
+                    "UPDATE Person SET type = 'Borrower' WHERE id = ?");
 
             ps.setInt(1, borrowerId);
             ps.executeUpdate();
@@ -406,8 +888,9 @@ public class DatabaseManager {
             int phoneNo,
             String type
     ) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                "INSERT OR IGNORE INTO Person VALUES (?, ?, ?, ?, ?, ?)")) {
+        try {
+            PreparedStatement ps = statement(
+                    "INSERT OR IGNORE INTO Person VALUES (?, ?, ?, ?, ?, ?)");
 
             ps.setInt(1, id);
             ps.setString(2, name);
@@ -434,9 +917,10 @@ public class DatabaseManager {
         insertPersonWithId(id, name, password, address, phoneNo, "Borrower");
     }
 
-    public void updateBook(int bookId, String title, String author, String subject) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                "UPDATE Book SET title = ?, author = ?, subject = ? WHERE id = ?")) {
+    public synchronized void updateBook(int bookId, String title, String author, String subject) {
+        try {
+            PreparedStatement ps = statement(
+                    "UPDATE Book SET title = ?, author = ?, subject = ? WHERE id = ?");
 
             ps.setString(1, title);
             ps.setString(2, author);
@@ -450,9 +934,10 @@ public class DatabaseManager {
         }
     }
 
-    public void updateBookIssuedStatus(int bookId, boolean isIssued) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                "UPDATE Book SET isIssued = ? WHERE id = ?")) {
+    public synchronized void updateBookIssuedStatus(int bookId, boolean isIssued) {
+        try {
+            PreparedStatement ps = statement(
+                    "UPDATE Book SET isIssued = ? WHERE id = ?");
 
             ps.setInt(1, isIssued ? 1 : 0);
             ps.setInt(2, bookId);
@@ -464,9 +949,10 @@ public class DatabaseManager {
         }
     }
 
-    public void deleteBook(int bookId) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                "DELETE FROM Book WHERE id = ?")) {
+    public synchronized void deleteBook(int bookId) {
+        try {
+            PreparedStatement ps = statement(
+                    "DELETE FROM Book WHERE id = ?");
 
             ps.setInt(1, bookId);
             ps.executeUpdate();
@@ -476,14 +962,15 @@ public class DatabaseManager {
         }
     }
 
-    public void updateLoanIssueDate(int bookId, int borrowerId, Date newIssueDate) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                """
-                UPDATE Loan
-                SET issueDate = ?
-                WHERE bookId = ? AND borrowerId = ? AND receiverId IS NULL
-                """
-        )) {
+    public synchronized void updateLoanIssueDate(int bookId, int borrowerId, Date newIssueDate) {
+        try {
+            PreparedStatement ps = statement(
+                    """
+                    UPDATE Loan
+                    SET issueDate = ?
+                    WHERE bookId = ? AND borrowerId = ? AND receiverId IS NULL
+                    """
+            );
             ps.setLong(1, newIssueDate.getTime());
             ps.setInt(2, bookId);
             ps.setInt(3, borrowerId);
@@ -498,37 +985,40 @@ public class DatabaseManager {
         // No action needed here
     }
 
-    public int getLoanIdForActiveBook(int bookId, int borrowerId) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                """
-                SELECT id FROM Loan
-                WHERE bookId = ? AND borrowerId = ? AND receiverId IS NULL
-                """
-        )) {
+    public synchronized int getLoanIdForActiveBook(int bookId, int borrowerId) {
+        try {
+            PreparedStatement ps = statement(
+                    """
+                    SELECT id FROM Loan
+                    WHERE bookId = ? AND borrowerId = ? AND receiverId IS NULL
+                    """
+            );
             ps.setInt(1, bookId);
             ps.setInt(2, borrowerId);
 
-            ResultSet rs = ps.executeQuery();
-            return rs.next() ? rs.getInt("id") : -1;
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt("id") : -1;
+            }
 
         } catch (SQLException e) {
             throw new RuntimeException("Failed to get active loan", e);
         }
     }
 
-    public void updateLoanReturn(
+    public synchronized void updateLoanReturn(
             int loanId,
             int receiverId,
             Date returnDate,
             boolean finePaid
     ) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                """
-                UPDATE Loan
-                SET receiverId = ?, returnDate = ?, finePaid = ?
-                WHERE id = ?
-                """
-        )) {
+        try {
+            PreparedStatement ps = statement(
+                    """
+                    UPDATE Loan
+                    SET receiverId = ?, returnDate = ?, finePaid = ?
+                    WHERE id = ?
+                    """
+            );
             ps.setInt(1, receiverId);
             ps.setLong(2, returnDate.getTime());
             ps.setInt(3, finePaid ? 1 : 0);
@@ -546,169 +1036,582 @@ public class DatabaseManager {
         // No separate table needed
     }
 
-    public void insertStaff(int personId, String type, double salary) {
-        try (PreparedStatement ps = conn.prepareStatement(
-                "INSERT OR IGNORE INTO Staff(personId, salary) VALUES (?, ?)")) {
+    public synchronized void insertStaff(int personId, String type, double salary) {
+        try {
+            PreparedStatement ps = statement(
+                    "INSERT OR IGNORE INTO Staff(personId, salary) VALUES (?, ?)");
 
             ps.setInt(1, personId);
             ps.setDouble(2, salary);
             ps.executeUpdate();
 
             // Also update the person type
-            try (PreparedStatement ps2 = conn.prepareStatement(
-                    "UPDATE Person SET type = ? WHERE id = ?")) {
+            PreparedStatement ps2 = statement("UPDATE Person SET type = ? WHERE id = ?");
+            ps2.setString(1, type);
+            ps2.setInt(2, personId);
+            ps2.executeUpdate();
 
-                ps2.setString(1, type);
-                ps2.setInt(2, personId);
-                ps2.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to insert staff", e);
+        }
+    }
+
+    /* ==================== FULL-TEXT SEARCH ==================== */
+
+    /**
+     * Creates the BookSearch FTS5 table (trigram tokenizer, so any substring of three or more
+     * characters can be matched) and the triggers that keep it in step with the Book table.
+     * Existing books are indexed the first time the table is created.
+     * @return true if full-text search is available, false if this SQLite build lacks FTS5
+     */
+    public synchronized boolean enableFullTextSearch() {
+        try (Statement stmt = conn.createStatement()) {
+
+            boolean exists;
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'BookSearch'")) {
+                exists = rs.next();
+            }
+
+            stmt.execute("""
+                CREATE VIRTUAL TABLE IF NOT EXISTS BookSearch USING fts5(
+                    title, subject, author,
+                    content = 'Book', content_rowid = 'id',
+                    tokenize = 'trigram'
+                )
+            """);
+
+            stmt.execute("""
+                CREATE TRIGGER IF NOT EXISTS Book_search_insert AFTER INSERT ON Book BEGIN
+                    INSERT INTO BookSearch(rowid, title, subject, author)
+                    VALUES (new.id, new.title, new.subject, new.author);
+                END
+            """);
+
+            stmt.execute("""
+                CREATE TRIGGER IF NOT EXISTS Book_search_delete AFTER DELETE ON Book BEGIN
+                    INSERT INTO BookSearch(BookSearch, rowid, title, subject, author)
+                    VALUES ('delete', old.id, old.title, old.subject, old.author);
+                END
+            """);
+
+            stmt.execute("""
+                CREATE TRIGGER IF NOT EXISTS Book_search_update AFTER UPDATE OF title, subject, author ON Book BEGIN
+                    INSERT INTO BookSearch(BookSearch, rowid, title, subject, author)
+                    VALUES ('delete', old.id, old.title, old.subject, old.author);
+                    INSERT INTO BookSearch(rowid, title, subject, author)
+                    VALUES (new.id, new.title, new.subject, new.author);
+                END
+            """);
+
+            if (!exists) {
+                stmt.execute("INSERT INTO BookSearch(BookSearch) VALUES ('rebuild')");
             }
+            return true;
 
         } catch (SQLException e) {
-            throw new RuntimeException("Failed to insert staff", e);
+            System.out.println("Full-text search is not available: " + e.getMessage());
+            return false;
         }
     }
 
-    public ArrayList<Object[]> loadAllBooks() {
-        ArrayList<Object[]> list = new ArrayList<>();
+    /**
+     * Searches one book column through the BookSearch table, best matches first.
+     * Terms shorter than three characters have no trigram, so they fall back to LIKE.
+     * @param column "title", "subject" or "author"
+     * @param term   The text to search for (case insensitive substring)
+     * @param limit  Maximum number of rows (-1 for no limit)
+     * @param offset Number of rows to skip
+     * @return Rows as [id, title, author, subject, isIssued], like loadAllBooks
+     */
+    public ArrayList<Object[]> searchBooks(String column, String term, int limit, int offset) {
+        if (!column.equals("title") && !column.equals("subject") && !column.equals("author")) {
+            throw new IllegalArgumentException("Unknown book column: " + column);
+        }
 
-        try (Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery("SELECT * FROM Book")) {
+        String sql;
+        String param;
+
+        if (term.length() >= 3) {
+            sql = """
+                SELECT b.id, b.title, b.author, b.subject, b.isIssued
+                FROM BookSearch s
+                JOIN Book b ON b.id = s.rowid
+                WHERE BookSearch MATCH ?
+                ORDER BY bm25(BookSearch)
+                LIMIT ? OFFSET ?
+            """;
+            param = "{" + column + "} : \"" + term.replace("\"", "\"\"") + "\"";
+        } else {
+            sql = "SELECT id, title, author, subject, isIssued FROM Book WHERE " + column +
+                    " LIKE ? ESCAPE '\\' ORDER BY id LIMIT ? OFFSET ?";
+            param = "%" + term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        }
 
-            while (rs.next()) {
-                list.add(new Object[]{
-                        rs.getInt("id"),
-                        rs.getString("title"),
-                        rs.getString("author"),
-                        rs.getString("subject"),
-                        rs.getInt("isIssued") == 1
-                });
+        return read(reader -> {
+            ArrayList<Object[]> list = new ArrayList<>();
+
+            try {
+                PreparedStatement ps = reader.prepare(sql);
+                ps.setString(1, param);
+                ps.setInt(2, limit);
+                ps.setInt(3, offset);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        list.add(new Object[]{
+                                rs.getInt(1),
+                                rs.getString(2),
+                                rs.getString(3),
+                                rs.getString(4),
+                                rs.getInt(5) == 1
+                        });
+                    }
+                }
+
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to search books", e);
+            }
+
+            return list;
+        });
+    }
+
+    /* ==================== STREAMING READS ==================== */
+
+    /**
+     * Receives the rows of a streamed query one at a time
+     */
+    public interface RowHandler {
+        void handle(DatabaseRow row) throws SQLException;
+    }
+
+    /**
+     * Sets how many rows the driver fetches per round trip when streaming
+     * @param rows Rows per fetch (0 lets the driver decide)
+     */
+    public void setFetchSize(int rows) {
+        fetchSize = rows;
+    }
+
+    /**
+     * Runs a query and hands each row to the handler as it is read; nothing is buffered,
+     * so memory use does not grow with the table
+     * @param params Values for the ? placeholders, in order
+     * @return The number of rows read
+     */
+    private int streamRows(Connection c, String sql, RowHandler handler, int... params) {
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < params.length; i++) {
+                ps.setInt(i + 1, params[i]);
             }
 
+            try (ResultSet rs = ps.executeQuery()) {
+                DatabaseRow row = new DatabaseRow(rs);
+                int count = 0;
+                while (rs.next()) {
+                    handler.handle(row);
+                    count++;
+                }
+                return count;
+            }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+    }
 
-        return list;
+    /**
+     * Streams the Book table; columns: 1 id, 2 title, 3 author, 4 subject, 5 isIssued
+     * @return The number of books
+     */
+    public int forEachBook(RowHandler handler) {
+        return read(reader -> forEachBook(reader.getConnection(), handler));
     }
 
-    public ArrayList<Object[]> loadAllClerks() {
-        ArrayList<Object[]> list = new ArrayList<>();
+    public int forEachBook(Connection c, RowHandler handler) {
+        return streamRows(c, BOOK_SELECT, handler);
+    }
 
-        String sql = """
-        SELECT p.id, p.name, p.address, p.phoneNo, s.salary, c.deskNo
-        FROM Person p
-        JOIN Clerk c ON p.id = c.personId
-        JOIN Staff s ON p.id = s.personId
-    """;
+    /**
+     * Streams the clerks; columns: 1 id, 2 name, 3 address, 4 phoneNo, 5 salary, 6 deskNo
+     * @return The number of clerks
+     */
+    public int forEachClerk(RowHandler handler) {
+        return read(reader -> forEachClerk(reader.getConnection(), handler));
+    }
 
-        try (Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
+    public int forEachClerk(Connection c, RowHandler handler) {
+        return streamRows(c, CLERK_SELECT + " ORDER BY p.id", handler);
+    }
+
+    /**
+     * Streams the borrowers; columns: 1 id, 2 name, 3 address, 4 phoneNo
+     * @return The number of borrowers
+     */
+    public int forEachBorrower(RowHandler handler) {
+        return read(reader -> forEachBorrower(reader.getConnection(), handler));
+    }
+
+    public int forEachBorrower(Connection c, RowHandler handler) {
+        return streamRows(c, BORROWER_SELECT, handler);
+    }
+
+    /**
+     * Streams the stored passwords of every person; columns: 1 id, 2 password (a salted hash,
+     * or the plain password of a row saved before passwords were hashed)
+     * @return The number of persons
+     */
+    public int forEachPassword(RowHandler handler) {
+        return read(reader -> streamRows(reader.getConnection(), "SELECT id, password FROM Person", handler));
+    }
+
+    /**
+     * Streams the Loan table; columns: 1 id, 2 borrowerId, 3 bookId, 4 issuerId, 5 issueDate,
+     * 6 receiverId (NULL while active), 7 returnDate (NULL while active), 8 finePaid
+     * @return The number of loans
+     */
+    public int forEachLoan(RowHandler handler) {
+        return read(reader -> forEachLoan(reader.getConnection(), handler));
+    }
+
+    public int forEachLoan(Connection c, RowHandler handler) {
+        return streamRows(c, "SELECT " + LOAN_COLUMNS + " FROM Loan", handler);
+    }
 
-            while (rs.next()) {
-                list.add(new Object[]{
-                        rs.getInt(1),
-                        rs.getString(2),
-                        rs.getString(3),
-                        rs.getInt(4),
-                        rs.getDouble(5),
-                        rs.getInt(6)
-                });
+    /**
+     * Streams the open loans (not returned yet, or returned with the fine unpaid) in id order;
+     * same columns as forEachLoan
+     * @return The number of loans
+     */
+    public int forEachOpenLoan(RowHandler handler) {
+        return read(reader -> forEachOpenLoan(reader.getConnection(), handler));
+    }
+
+    public int forEachOpenLoan(Connection c, RowHandler handler) {
+        return streamRows(c, "SELECT " + LOAN_COLUMNS + " FROM Loan WHERE " + OPEN_LOAN + " ORDER BY id", handler);
+    }
+
+    /**
+     * Streams the loans with fromId <= id <= toId, in id order; same columns as forEachLoan
+     * @param openOnly true to skip settled loans (returned, fine paid)
+     * @return The number of loans
+     */
+    public int forEachLoan(Connection c, int fromId, int toId, boolean openOnly, RowHandler handler) {
+        String sql = "SELECT " + LOAN_COLUMNS + " FROM Loan WHERE id BETWEEN ? AND ?"
+                + (openOnly ? " AND " + OPEN_LOAN : "") + " ORDER BY id";
+        return streamRows(c, sql, handler, fromId, toId);
+    }
+
+    /**
+     * Streams one page of settled loans (returned, fine paid), in id order; same columns as forEachLoan
+     * @param afterId    Only loans with a larger id are read
+     * @param borrowerId Only this borrower's loans, or -1 for everyone's
+     * @param limit      Maximum number of loans
+     * @return The number of loans
+     */
+    public int forEachSettledLoan(int afterId, int borrowerId, int limit, RowHandler handler) {
+        return read(reader -> {
+            if (borrowerId == -1) {
+                return streamRows(reader.getConnection(), "SELECT " + LOAN_COLUMNS + " FROM Loan WHERE NOT " + OPEN_LOAN
+                        + " AND id > ? ORDER BY id LIMIT ?", handler, afterId, limit);
             }
+            return streamRows(reader.getConnection(), "SELECT " + LOAN_COLUMNS + " FROM Loan WHERE NOT " + OPEN_LOAN
+                    + " AND borrowerId = ? AND id > ? ORDER BY id LIMIT ?", handler, borrowerId, afterId, limit);
+        });
+    }
 
+    /**
+     * @return The smallest and largest loan id, or null if there are no loans
+     */
+    public int[] getLoanIdRange() {
+        return read(reader -> {
+            try (ResultSet rs = reader.prepare("SELECT MIN(id), MAX(id) FROM Loan").executeQuery()) {
+                if (rs.next()) {
+                    int min = rs.getInt(1);
+                    if (!rs.wasNull()) {
+                        return new int[]{min, rs.getInt(2)};
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Streams the hold requests, oldest first; columns: 1 id, 2 bookId, 3 borrowerId, 4 requestDate
+     * @return The number of hold requests
+     */
+    public int forEachHoldRequest(RowHandler handler) {
+        return read(reader -> forEachHoldRequest(reader.getConnection(), handler));
+    }
+
+    public int forEachHoldRequest(Connection c, RowHandler handler) {
+        return streamRows(c, HOLD_SELECT + " ORDER BY requestDate", handler);
+    }
+
+    /* ==================== READS BY ID ==================== */
+
+    // Same columns as the matching forEach method; rows whose id is not listed are skipped
+
+    public int forEachBook(int[] ids, RowHandler handler) {
+        return forEachById(BOOK_SELECT + " WHERE id IN ", ids, handler);
+    }
+
+    public int forEachClerk(int[] ids, RowHandler handler) {
+        return forEachById(CLERK_SELECT + " WHERE p.id IN ", ids, handler);
+    }
+
+    public int forEachBorrower(int[] ids, RowHandler handler) {
+        return forEachById(BORROWER_SELECT + " AND id IN ", ids, handler);
+    }
+
+    public int forEachLoan(int[] ids, RowHandler handler) {
+        return forEachById("SELECT " + LOAN_COLUMNS + " FROM Loan WHERE id IN ", ids, handler);
+    }
+
+    public int forEachHoldRequest(int[] ids, RowHandler handler) {
+        return forEachById(HOLD_SELECT + " WHERE id IN ", ids, handler);
+    }
+
+    private int forEachById(String select, int[] ids, RowHandler handler) {
+        return ids.length == 0 ? 0 : read(reader -> streamRows(reader.getConnection(), select + idList(ids), handler));
+    }
+
+    private static String idList(int[] ids) {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(ids[i]);
+        }
+        return sb.append(')').toString();
+    }
+
+    /* ==================== CHANGE LOG ==================== */
+
+    /**
+     * Turns the ChangeLog triggers on or off; snapshots need them, everything else does not.
+     * Applied at once when connected, otherwise by the next connect(). Turning them off
+     * empties the log and leaves a CHANGE_LOG_GAP entry, so older snapshots are refused.
+     */
+    public synchronized void setChangeLog(boolean enabled) {
+        changeLog = enabled;
+        try {
+            if (conn != null && !conn.isClosed()) {
+                applyChangeLog();
+            }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+    }
 
-        return list;
+    public synchronized boolean isChangeLogEnabled() {
+        return changeLog;
     }
 
-    public ArrayList<Object[]> loadAllBorrowers() {
-        ArrayList<Object[]> list = new ArrayList<>();
+    private synchronized void applyChangeLog() {
+        try (Statement stmt = conn.createStatement()) {
+            if (changeLog) {
+                createChangeLogTriggers(stmt);
+                return;
+            }
 
-        try (Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(
-                     "SELECT id, name, address, phoneNo FROM Person WHERE type='Borrower'")) {
-
-            while (rs.next()) {
-                list.add(new Object[]{
-                        rs.getInt(1),
-                        rs.getString(2),
-                        rs.getString(3),
-                        rs.getInt(4)
-                });
+            boolean installed;
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT COUNT(*) FROM sqlite_master WHERE type = 'trigger' AND name LIKE '%\\_log\\_%' ESCAPE '\\'")) {
+                installed = rs.next() && rs.getInt(1) > 0;
+            }
+            if (!installed) {
+                return;
             }
 
+            conn.setAutoCommit(false);
+            try {
+                dropChangeLogTriggers(stmt);
+                stmt.execute("INSERT INTO ChangeLog(tableName, rowId) VALUES ('" + CHANGE_LOG_GAP + "', 0)");
+                stmt.execute("DELETE FROM ChangeLog WHERE seq < last_insert_rowid()");
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         } catch (SQLException e) {
-            throw new RuntimeException(e);
+            throw new RuntimeException("Failed to switch the change log", e);
         }
+    }
 
-        return list;
+    /**
+     * @return The random id the database file was created with
+     */
+    public String getDatabaseId() {
+        return read(reader -> getDatabaseId(reader.getConnection()));
     }
 
-    public ArrayList<Object[]> loadAllLoans() {
-        ArrayList<Object[]> list = new ArrayList<>();
+    public String getDatabaseId(Connection c) {
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT uuid FROM DatabaseIdentity")) {
+            return rs.next() ? rs.getString(1) : null;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-        try (Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery("SELECT * FROM Loan")) {
+    /**
+     * @return The sequence number of the latest change (0 if nothing was logged)
+     */
+    public long getChangeSeq() {
+        return read(reader -> getChangeSeq(reader.getConnection()));
+    }
 
-            while (rs.next()) {
-                Integer receiverId = (Integer) rs.getObject("receiverId"); // keeps NULL
-                Long returnDate = (Long) rs.getObject("returnDate");       // keeps NULL
+    public long getChangeSeq(Connection c) {
+        return querySeq(c, "SELECT IFNULL(MAX(seq), 0) FROM ChangeLog");
+    }
 
-                list.add(new Object[]{
-                        rs.getInt("id"),
-                        rs.getInt("borrowerId"),
-                        rs.getInt("bookId"),
-                        rs.getInt("issuerId"),
-                        rs.getLong("issueDate"),
-                        receiverId,
-                        returnDate,
-                        rs.getInt("finePaid") == 1
-                });
+    /**
+     * @return The sequence number of the oldest change still logged (0 if the log is empty)
+     */
+    public long getOldestChangeSeq() {
+        return read(reader -> querySeq(reader.getConnection(), "SELECT IFNULL(MIN(seq), 0) FROM ChangeLog"));
+    }
+
+    /**
+     * Lists the rows changed after a point in the log
+     * @param seq Changes with a larger sequence number are listed
+     * @return Table name ("Book", "Person", "Loan", "HoldRequest" or CHANGE_LOG_GAP) to the distinct row ids
+     */
+    public HashMap<String, ArrayList<Integer>> getChangesSince(long seq) {
+        return read(reader -> {
+            HashMap<String, ArrayList<Integer>> changes = new HashMap<>();
+
+            PreparedStatement ps = reader.prepare(
+                    "SELECT DISTINCT tableName, rowId FROM ChangeLog WHERE seq > ? ORDER BY tableName, rowId");
+            ps.setLong(1, seq);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    changes.computeIfAbsent(rs.getString(1), k -> new ArrayList<>()).add(rs.getInt(2));
+                }
             }
+            return changes;
+        });
+    }
+
+    /**
+     * Drops log entries older than seq; the entry at seq itself is kept, so the log shows
+     * how far back it reaches.
+     * @param seq The sequence number recorded in the latest snapshot
+     */
+    public synchronized void pruneChangeLog(long seq) {
+        try {
+            PreparedStatement ps = statement("DELETE FROM ChangeLog WHERE seq < ?");
+            ps.setLong(1, seq);
+            ps.executeUpdate();
 
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to prune the change log", e);
+        }
+    }
+
+    private long querySeq(Connection c, String sql) {
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+    }
+
+    /* ==================== TABLE LOADS ==================== */
+
+    public ArrayList<Object[]> loadAllBooks() {
+        ArrayList<Object[]> list = new ArrayList<>();
+
+        forEachBook(row -> list.add(new Object[]{
+                row.getInt(1),
+                row.getString(2),
+                row.getString(3),
+                row.getString(4),
+                row.getBoolean(5)
+        }));
 
         return list;
     }
 
+    public ArrayList<Object[]> loadAllClerks() {
+        ArrayList<Object[]> list = new ArrayList<>();
 
-    public ArrayList<Object[]> loadAllHoldRequests() {
+        forEachClerk(row -> list.add(new Object[]{
+                row.getInt(1),
+                row.getString(2),
+                row.getString(3),
+                row.getInt(4),
+                row.getDouble(5),
+                row.getInt(6)
+        }));
+
+        return list;
+    }
+
+    public ArrayList<Object[]> loadAllBorrowers() {
         ArrayList<Object[]> list = new ArrayList<>();
 
-        try (Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery("SELECT * FROM HoldRequest ORDER BY requestDate")) {
+        forEachBorrower(row -> list.add(new Object[]{
+                row.getInt(1),
+                row.getString(2),
+                row.getString(3),
+                row.getInt(4)
+        }));
 
-            while (rs.next()) {
-                list.add(new Object[]{
-                        rs.getInt("id"),
-                        rs.getInt("bookId"),
-                        rs.getInt("borrowerId"),
-                        rs.getLong("requestDate")
-                });
-            }
+        return list;
+    }
 
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+    public ArrayList<Object[]> loadAllLoans() {
+        ArrayList<Object[]> list = new ArrayList<>();
+
+        forEachLoan(row -> {
+            // Keep NULL for loans that are still active
+            Integer receiverId = row.isNull(6) ? null : row.getInt(6);
+            Long returnDate = row.isNull(7) ? null : row.getLong(7);
+
+            list.add(new Object[]{
+                    row.getInt(1),
+                    row.getInt(2),
+                    row.getInt(3),
+                    row.getInt(4),
+                    row.getLong(5),
+                    receiverId,
+                    returnDate,
+                    row.getBoolean(8)
+            });
+        });
 
         return list;
     }
 
-    public int getMaxPersonId() {
-        try (Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery("SELECT MAX(id) FROM Person")) {
 
-            return rs.next() ? rs.getInt(1) : 0;
+    public ArrayList<Object[]> loadAllHoldRequests() {
+        ArrayList<Object[]> list = new ArrayList<>();
 
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        forEachHoldRequest(row -> list.add(new Object[]{
+                row.getInt(1),
+                row.getInt(2),
+                row.getInt(3),
+                row.getLong(4)
+        }));
+
+        return list;
+    }
+
+    public int getMaxPersonId() {
+        return read(reader -> {
+            try (ResultSet rs = reader.prepare("SELECT MAX(id) FROM Person").executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        });
     }
 
-    public Object[] loadLibrarian() {
+    public synchronized Object[] loadLibrarian() {
         String sql = """
         SELECT p.id, p.name, p.password, p.address, p.phoneNo, s.salary, l.officeNo
         FROM Person p
@@ -0,0 +1,50 @@
+package LMS;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * DatabaseRow class - typed, read-only view of the current row of a streamed query.
+ * Columns are read by position (1-based, in SELECT order) straight from the ResultSet,
+ * so no Object is created per cell. The same instance is reused for every row of a
+ * query: read what you need inside the callback and do not keep the row.
+ */
+public class DatabaseRow {
+
+    private final ResultSet rs;
+
+    DatabaseRow(ResultSet rs) {
+        this.rs = rs;
+    }
+
+    public int getInt(int column) throws SQLException {
+        return rs.getInt(column);
+    }
+
+    public long getLong(int column) throws SQLException {
+        return rs.getLong(column);
+    }
+
+    public double getDouble(int column) throws SQLException {
+        return rs.getDouble(column);
+    }
+
+    public String getString(int column) throws SQLException {
+        return rs.getString(column);
+    }
+
+    /**
+     * Reads an INTEGER 0/1 flag
+     */
+    public boolean getBoolean(int column) throws SQLException {
+        return rs.getInt(column) == 1;
+    }
+
+    /**
+     * Tells a NULL apart from 0 without boxing the value
+     */
+    public boolean isNull(int column) throws SQLException {
+        rs.getLong(column);
+        return rs.wasNull();
+    }
+}
@@ -42,13 +42,15 @@ public class HoldRequest {
      * Saves this hold request to the database
      */
     public void saveToDatabase() {
-        DatabaseManager.getInstance().insertHoldRequest(book.getID(), borrower.getID(), requestDate);
+        DatabaseManager db = DatabaseManager.getInstance();
+        db.write(() -> db.insertHoldRequest(book.getID(), borrower.getID(), requestDate));
     }
 
     /**
      * Deletes this hold request from the database
      */
     public void deleteFromDatabase() {
-        DatabaseManager.getInstance().deleteHoldRequest(book.getID(), borrower.getID());
+        DatabaseManager db = DatabaseManager.getInstance();
+        db.write(() -> db.deleteHoldRequest(book.getID(), borrower.getID()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package LMS;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * IdAllocator class - hands out increasing ids, safely from any thread.
+ * Replaces the plain static counters of Book and Person, whose "counter++" could give two
+ * threads the same id. Ids given explicitly (e.g. rows loaded from the database) are
+ * registered with advanceTo, so the allocator never hands them out again.
+ * Only ids chosen in memory come from here (persons, and books not yet saved); a book saved
+ * to the database takes the key SQLite generated for it instead.
+ */
+public class IdAllocator {
+
+    private final AtomicInteger last = new AtomicInteger();
+
+    /**
+     * @return A new id, one above the last id handed out or registered
+     */
+    public int next() {
+        return last.incrementAndGet();
+    }
+
+    /**
+     * Makes sure id and every id below it are never handed out
+     */
+    public void advanceTo(int id) {
+        last.accumulateAndGet(id, Math::max);
+    }
+
+    // Getter Methods
+    public int current() {
+        return last.get();
+    }
+
+    // Setter Methods
+    public void set(int id) {
+        last.set(id);
+    }
+}
@@ -0,0 +1,162 @@
+package LMS;
+
+import java.util.Arrays;
+
+/**
+ * IntObjectMap class - hash map from int keys to objects without boxing the keys.
+ * Keys and values live in two parallel arrays with open addressing and linear probing;
+ * a slot is free when its value is null, so null values are not allowed.
+ * Lookups allocate nothing. Removal shifts the following entries back instead of leaving
+ * tombstones, so probe sequences never grow with churn.
+ */
+public class IntObjectMap<V> {
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    public IntObjectMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize Number of entries to make room for without resizing
+     */
+    public IntObjectMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 3 / 2)) * 2;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        for (int i = slot(key); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps a key to a value, replacing any previous value
+     * @return The previous value, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("IntObjectMap does not store null values");
+        }
+
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        // Keep the table at most two thirds full so probe runs stay short
+        if (size * 3 > keys.length * 2) {
+            resize(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Maps a key to a value unless the key is already present
+     * @return The existing value, or null if the value was added
+     */
+    public V putIfAbsent(int key, V value) {
+        V existing = get(key);
+        if (existing != null) {
+            return existing;
+        }
+        put(key, value);
+        return null;
+    }
+
+    /**
+     * Removes a key
+     * @return The removed value, or null if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int i = slot(key);
+        while (values[i] != null && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (values[i] == null) {
+            return null;
+        }
+
+        V removed = (V) values[i];
+        values[i] = null;
+        size--;
+
+        // Move back entries that probed past the freed slot
+        int free = i;
+        for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            boolean movable = free <= j ? (home <= free || home > j) : (home <= free && home > j);
+            if (movable) {
+                keys[free] = keys[j];
+                values[free] = values[j];
+                values[j] = null;
+                free = j;
+            }
+        }
+
+        return removed;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private int slot(int key) {
+        // Fibonacci hashing spreads sequential ids over the whole table
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int j = slot(oldKeys[i]);
+                while (values[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
@@ -63,7 +63,8 @@ public class Librarian extends Staff {
         DatabaseManager db = DatabaseManager.getInstance();
 
         try {
-            db.insertPersonWithId(id, name, password, address, phoneNo);
+            // Only the salted hash is stored
+            db.insertPersonWithId(id, name, Library.getInstance().getCredentials().enroll(this, password), address, phoneNo);
             db.insertStaff(id, "Librarian", salary);
             db.insertLibrarian(id, officeNo);
         } catch (SQLException e) {
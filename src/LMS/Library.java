@@ -1,10 +1,17 @@
 package LMS;
 
 import java.io.*;
+import java.nio.file.Paths;
+import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -18,15 +25,59 @@ public class Library {
     private String name;
     public static Librarian librarian;
     public static ArrayList<Person> persons;
-    private ArrayList<Book> booksInLibrary;
+    private TrackedList<Book> booksInLibrary;
     private ArrayList<Loan> loans;
 
     public int book_return_deadline;
     public double per_day_fine;
     public int hold_request_expiry;
+    public int fuzzy_edit_distance;
+    public int page_size;
+    public int load_threads;
+    public boolean lazy_loan_history;
+    public boolean snapshots;
+    public int snapshot_interval;
+    public int write_behind_millis;
+    public int write_behind_batch;
+    public String database_profile;
+    public int read_connections;
+    public boolean search_facets;
 
     private HoldRequestOperations holdRequestsOperations;
     private DatabaseManager dbManager;
+    private BookSearchIndex searchIndex;
+    private BookAutocomplete autocomplete;
+    private SearchCache searchCache;
+    private BookFacets facets;
+    private RoaringBitmap availableDocs;
+    private CredentialStore credentials;
+
+    // Id lookup maps, one per role; rebuilt when the lists were changed from outside
+    // (booksVersion also covers the search index, autocomplete, facets and availability bitmap)
+    private IntObjectMap<Book> booksById;
+    private IntObjectMap<Borrower> borrowersById;
+    private IntObjectMap<Clerk> clerksById;
+    private IntObjectMap<Staff> staffById;
+    private int booksVersion;
+    private ArrayList<Person> registeredPersons;
+    private int personsVersion;
+    private boolean databaseSearch;
+    private ScheduledExecutorService snapshotTimer;
+
+    // Maximum number of books shown for an advanced (ranked) query
+    private static final int QUERY_RESULT_LIMIT = 20;
+
+    // Number of distinct searches remembered by the search cache
+    private static final int SEARCH_CACHE_SIZE = 256;
+
+    // Binary snapshot of the tables that Main boots from
+    private static final String SNAPSHOT_FILE = "database/library.snap";
+
+    // Number of settled loans read from the database at a time with lazy history
+    private static final int HISTORY_PAGE_SIZE = 500;
+
+    // Number of subjects and authors listed next to search results
+    private static final int FACET_LIMIT = 5;
 
     // Singleton instance
     private static Library obj;
@@ -50,11 +101,25 @@ public class Library {
     private Library() {
         name = null;
         librarian = null;
-        persons = new ArrayList<>();
-        booksInLibrary = new ArrayList<>();
+        persons = new TrackedList<>();
+        booksInLibrary = new TrackedList<>();
         loans = new ArrayList<>();
         holdRequestsOperations = new HoldRequestOperations();
         dbManager = DatabaseManager.getInstance();
+        searchIndex = new BookSearchIndex();
+        autocomplete = new BookAutocomplete();
+        searchCache = new SearchCache(SEARCH_CACHE_SIZE);
+        facets = new BookFacets();
+        availableDocs = new RoaringBitmap();
+        credentials = new CredentialStore();
+        credentials.setHashListener((id, stored) -> dbManager.write(() -> dbManager.updatePassword(id, stored)));
+        booksById = new IntObjectMap<>();
+        borrowersById = new IntObjectMap<>();
+        clerksById = new IntObjectMap<>();
+        staffById = new IntObjectMap<>();
+        booksVersion = booksInLibrary.version();
+        registeredPersons = persons;
+        personsVersion = ((TrackedList<Person>) persons).version();
     }
 
     // Setter Methods
@@ -70,6 +135,74 @@ public class Library {
         hold_request_expiry = hrExpiry;
     }
 
+    public void setFuzzyDistance(int distance) {
+        fuzzy_edit_distance = distance;
+    }
+
+    // Number of books listed at a time (0 lists everything at once)
+    public void setPageSize(int size) {
+        page_size = size;
+    }
+
+    // Threads used to load the database at startup (0 or 1 loads one table after another)
+    public void setLoadThreads(int threads) {
+        load_threads = threads;
+    }
+
+    // Leave settled loans (returned, fine paid) in the database until the history is viewed
+    public void setLazyLoanHistory(boolean lazy) {
+        lazy_loan_history = lazy;
+    }
+
+    // Boot from a snapshot of the tables and keep the database's ChangeLog for it; set before makeConnection
+    public void setSnapshots(boolean enabled) {
+        snapshots = enabled;
+    }
+
+    // Minutes between startup snapshots written in the background, under a WAL profile only (0 writes one only at exit)
+    public void setSnapshotInterval(int minutes) {
+        snapshot_interval = minutes;
+    }
+
+    // Commit desk writes in the background, batch ops at a time or every millis ms (0 writes each at once)
+    public void setWriteBehind(int millis, int batch) {
+        write_behind_millis = millis;
+        write_behind_batch = batch;
+    }
+
+    // SQLite settings used when connecting: "durable", "balanced" or "throughput"
+    public void setDatabaseProfile(String profile) {
+        database_profile = profile;
+    }
+
+    // Read-only connections for searches, history and startup loads under a WAL profile (0 reads on the main connection)
+    public void setReadConnections(int connections) {
+        read_connections = connections;
+    }
+
+    // List the most common subjects and authors above interactive search results
+    public void setSearchFacets(boolean enabled) {
+        search_facets = enabled;
+    }
+
+    /**
+     * Switches searchForBooks between the in-memory index and the database's full-text table
+     * @param enabled true to search through SQLite FTS5
+     * @return true if the requested mode is active (false if FTS5 is unavailable)
+     */
+    public boolean setDatabaseSearch(boolean enabled) {
+        databaseSearch = enabled && dbManager.enableFullTextSearch();
+        return databaseSearch == enabled;
+    }
+
+    /**
+     * Replaces the search cache with an empty one of the given size
+     * @param size Maximum number of cached searches (0 disables caching)
+     */
+    public void setSearchCacheSize(int size) {
+        searchCache = new SearchCache(size);
+    }
+
     public void setName(String n) {
         name = n;
     }
@@ -99,13 +232,74 @@ public class Library {
         return loans;
     }
 
+    /**
+     * Every loan in id order, including settled loans left in the database by lazy history
+     * @return An iterator that reads settled loans a page at a time
+     */
+    public Iterator<Loan> loanHistory() {
+        return loanHistory(null);
+    }
+
+    /**
+     * Every loan of one borrower in id order, including settled loans left in the database
+     * @param borrower The borrower
+     */
+    public Iterator<Loan> loanHistory(Borrower borrower) {
+        // Queued loan writes are applied first, so the database pages agree with the loans here
+        flushWrites();
+        return new LoanHistory(this, dbManager, loans, borrower, lazy_loan_history, HISTORY_PAGE_SIZE);
+    }
+
+    /**
+     * Waits for the queued desk writes. Writes that failed are reported and queued again,
+     * so they are neither lost nor allowed to stop the menu.
+     */
+    private void flushWrites() {
+        try {
+            dbManager.flush();
+        } catch (IllegalStateException e) {
+            System.out.println("\nSome changes could not be saved yet and will be retried: "
+                    + e.getMessage() + " (" + e.getCause().getMessage() + ")");
+            WriteBehindQueue queue = dbManager.getWriteBehindQueue();
+            if (queue != null) {
+                queue.retryFailed();
+            }
+        }
+    }
+
+    public BookSearchIndex getSearchIndex() {
+        syncCatalog();
+        return searchIndex;
+    }
+
+    public SearchCache getSearchCache() {
+        return searchCache;
+    }
+
+    public BookFacets getFacets() {
+        syncCatalog();
+        return facets;
+    }
+
+    public CredentialStore getCredentials() {
+        return credentials;
+    }
+
     // Adding Methods
     public void addClerk(Clerk c) {
+        boolean current = personRegistriesCurrent();
         persons.add(c);
+        if (current) {
+            registerAddedPerson(c);
+        }
     }
 
     public void addBorrower(Borrower b) {
+        boolean current = personRegistriesCurrent();
         persons.add(b);
+        if (current) {
+            registerAddedPerson(b);
+        }
     }
 
     public void addLoan(Loan l) {
@@ -113,7 +307,74 @@ public class Library {
     }
 
     public void addBookinLibrary(Book b) {
+        syncCatalog();
+        String[] oldValues = searchIndex.valuesOf(b);
         booksInLibrary.add(b);
+        booksById.putIfAbsent(b.getID(), b);
+        booksVersion = booksInLibrary.version();
+        searchIndex.add(b);
+        autocomplete.add(b);
+        facets.add(searchIndex.docOf(b), b);
+        updateAvailability(b);
+        searchCache.bookChanged(oldValues, searchIndex.valuesOf(b));
+    }
+
+    /**
+     * Called by Book.setIssuedStatus; does nothing before the library exists, so that
+     * books can be built and changed on their own
+     */
+    static void availabilityChanged(Book b) {
+        if (obj != null) {
+            obj.updateAvailability(b);
+        }
+    }
+
+    /**
+     * Called by Book.changeBookInfo; like availabilityChanged, does nothing before the
+     * library exists
+     */
+    static void bookInfoChanged(Book b) {
+        if (obj != null) {
+            obj.reindexBook(b);
+        }
+    }
+
+    /**
+     * Brings the availability bitmap in line with a book's issued status
+     * @param b A book of the catalog (others are ignored)
+     */
+    public void updateAvailability(Book b) {
+        syncCatalog();
+        markAvailability(b);
+    }
+
+    private void markAvailability(Book b) {
+        int doc = searchIndex.docOf(b);
+        if (doc == -1) {
+            return;
+        }
+
+        if (b.getIssuedStatus()) {
+            availableDocs.remove(doc);
+        } else {
+            availableDocs.add(doc);
+        }
+    }
+
+    /**
+     * Refreshes the search index, autocomplete, facet counts and search cache after a book's
+     * title, subject or author changed
+     * @param b The changed book
+     */
+    public void reindexBook(Book b) {
+        syncCatalog();
+        String[] oldValues = searchIndex.valuesOf(b);
+        searchIndex.update(b);
+        autocomplete.update(b);
+        if (oldValues != null) {
+            facets.add(searchIndex.docOf(b), b);
+        }
+        searchCache.bookChanged(oldValues, searchIndex.valuesOf(b));
     }
 
     // ==================== FIND METHODS ====================
@@ -133,6 +394,9 @@ public class Library {
     }
 
     public Borrower findBorrowerById(int id) {
+        if (syncPersonRegistries()) {
+            return borrowersById.get(id);
+        }
         for (int i = 0; i < persons.size(); i++) {
             if (persons.get(i).getID() == id && persons.get(i) instanceof Borrower) {
                 return (Borrower) persons.get(i);
@@ -156,6 +420,9 @@ public class Library {
     }
 
     public Clerk findClerkById(int id) {
+        if (syncPersonRegistries()) {
+            return clerksById.get(id);
+        }
         for (int i = 0; i < persons.size(); i++) {
             if (persons.get(i).getID() == id && persons.get(i) instanceof Clerk) {
                 return (Clerk) persons.get(i);
@@ -168,6 +435,9 @@ public class Library {
         if (librarian != null && librarian.getID() == id) {
             return librarian;
         }
+        if (syncPersonRegistries()) {
+            return staffById.get(id);
+        }
         for (Person p : persons) {
             if (p.getID() == id && p instanceof Staff) {
                 return (Staff) p;
@@ -177,12 +447,93 @@ public class Library {
     }
 
     public Book findBookById(int id) {
+        syncCatalog();
+        return booksById.get(id);
+    }
+
+    // ==================== ID REGISTRIES ====================
+
+    /**
+     * @return true if the person maps reflect the current persons list
+     */
+    private boolean personRegistriesCurrent() {
+        return persons == registeredPersons && persons instanceof TrackedList
+                && ((TrackedList<Person>) persons).version() == personsVersion;
+    }
+
+    /**
+     * Rebuilds the person maps if persons was changed without going through Library
+     * @return false if persons was replaced by a list that cannot be tracked, in which case
+     *         callers have to scan it
+     */
+    private boolean syncPersonRegistries() {
+        if (!(persons instanceof TrackedList)) {
+            return false;
+        }
+        if (personRegistriesCurrent()) {
+            return true;
+        }
+
+        borrowersById.clear();
+        clerksById.clear();
+        staffById.clear();
+        for (Person p : persons) {
+            registerPerson(p);
+        }
+
+        registeredPersons = persons;
+        personsVersion = ((TrackedList<Person>) persons).version();
+        return true;
+    }
+
+    private void registerAddedPerson(Person p) {
+        registerPerson(p);
+        personsVersion = ((TrackedList<Person>) persons).version();
+    }
+
+    // The first person with an id wins, as it did for the linear scans
+    private void registerPerson(Person p) {
+        if (p instanceof Borrower) {
+            borrowersById.putIfAbsent(p.getID(), (Borrower) p);
+        }
+        if (p instanceof Clerk) {
+            clerksById.putIfAbsent(p.getID(), (Clerk) p);
+        }
+        if (p instanceof Staff) {
+            staffById.putIfAbsent(p.getID(), (Staff) p);
+        }
+    }
+
+    /**
+     * Rebuilds the book map and the search structures if booksInLibrary was changed without
+     * going through Library (getBooks().add, remove, clear, ...)
+     */
+    private void syncCatalog() {
+        if (booksInLibrary.version() != booksVersion) {
+            rebuildCatalog();
+        }
+    }
+
+    /**
+     * Indexes the catalog from scratch. Document numbers start again from 0 in catalog order,
+     * so the facets and availability bitmap, which are keyed by them, are rebuilt as well.
+     */
+    private void rebuildCatalog() {
+        booksById.clear();
+        searchIndex.clear();
+        autocomplete.clear();
+        facets.clear();
+        availableDocs.clear();
+        searchCache.clear();
+
         for (Book b : booksInLibrary) {
-            if (b.getID() == id) {
-                return b;
-            }
+            booksById.putIfAbsent(b.getID(), b);
+            searchIndex.add(b);
+            autocomplete.add(b);
+            facets.add(searchIndex.docOf(b), b);
+            markAvailability(b);
         }
-        return null;
+        booksVersion = booksInLibrary.version();
     }
 
     // ==================== BOOK OPERATIONS ====================
@@ -235,7 +586,23 @@ public class Library {
             }
 
             b.deleteFromDatabase();
+            syncCatalog();
             booksInLibrary.remove(b);
+            booksVersion = booksInLibrary.version();
+            // Ids are the database's keys, so no other book can be waiting for the key
+            if (booksById.get(b.getID()) == b) {
+                booksById.remove(b.getID());
+            }
+            searchCache.bookChanged(searchIndex.valuesOf(b), null);
+            facets.remove(searchIndex.docOf(b));
+            availableDocs.remove(searchIndex.docOf(b));
+            searchIndex.remove(b);
+            autocomplete.remove(b);
+
+            // Removed books leave unused document numbers behind; renumber once they outnumber the books
+            if (searchIndex.getDocCount() - searchIndex.size() > searchIndex.size()) {
+                rebuildCatalog();
+            }
             System.out.println("The book is successfully removed.");
         } else {
             System.out.println("\nDelete Unsuccessful.");
@@ -244,16 +611,16 @@ public class Library {
 
     public ArrayList<Book> searchForBooks() throws IOException {
         String choice;
-        String title = "", subject = "", author = "";
+        String searchTerm;
 
         Scanner sc = new Scanner(System.in);
         BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
 
         while (true) {
-            System.out.println("\nEnter either '1' or '2' or '3' for search by Title, Subject or Author of Book respectively: ");
+            System.out.println("\nEnter either '1' or '2' or '3' for search by Title, Subject or Author of Book respectively, or '4' for an advanced query: ");
             choice = sc.next();
 
-            if (choice.equals("1") || choice.equals("2") || choice.equals("3")) {
+            if (choice.equals("1") || choice.equals("2") || choice.equals("3") || choice.equals("4")) {
                 break;
             } else {
                 System.out.println("\nWrong Input!");
@@ -262,71 +629,417 @@ public class Library {
 
         if (choice.equals("1")) {
             System.out.println("\nEnter the Title of the Book: ");
-            title = reader.readLine();
+            searchTerm = reader.readLine();
         } else if (choice.equals("2")) {
             System.out.println("\nEnter the Subject of the Book: ");
-            subject = reader.readLine();
-        } else {
+            searchTerm = reader.readLine();
+        } else if (choice.equals("3")) {
             System.out.println("\nEnter the Author of the Book: ");
-            author = reader.readLine();
+            searchTerm = reader.readLine();
+        } else {
+            System.out.println("\nEnter the Query (e.g. title:\"clean\" AND subject:\"software\" NOT author:\"martin\"): ");
+            searchTerm = reader.readLine();
         }
 
-        ArrayList<Book> matchedBooks = new ArrayList<>();
+        Function<String, BookPage> pages;
+        ArrayList<Book> allResults = null;
+        if (choice.equals("4")) {
+            ArrayList<Book> rankedBooks;
+            try {
+                rankedBooks = queryBooks(searchTerm, QUERY_RESULT_LIMIT);
+            } catch (IllegalArgumentException e) {
+                System.out.println("\nInvalid query: " + e.getMessage());
+                return null;
+            }
+            pages = token -> BookPage.fromList(rankedBooks, token, page_size);
+            allResults = rankedBooks;
+        } else {
+            final String field = choice;
+            final String term = searchTerm;
+            pages = token -> searchForBooksPage(field, term, token, page_size);
+        }
 
-        for (int i = 0; i < booksInLibrary.size(); i++) {
-            Book b = booksInLibrary.get(i);
+        BookPage firstPage = pages.apply(null);
 
-            if (choice.equals("1")) {
-                if (b.getTitle().toLowerCase().contains(title.toLowerCase())) {
-                    matchedBooks.add(b);
-                }
-            } else if (choice.equals("2")) {
-                if (b.getSubject().toLowerCase().contains(subject.toLowerCase())) {
-                    matchedBooks.add(b);
+        // Nothing found: retry allowing for typos
+        if (firstPage.getBooks().isEmpty() && fuzzy_edit_distance > 0 && !choice.equals("4")) {
+            ArrayList<Book> similarBooks = searchForBooksFuzzy(choice, searchTerm, fuzzy_edit_distance);
+            if (!similarBooks.isEmpty()) {
+                System.out.println("\nNo exact matches. Showing books with similar spelling.");
+            }
+            pages = token -> BookPage.fromList(similarBooks, token, page_size);
+            allResults = similarBooks;
+            firstPage = pages.apply(null);
+        }
+
+        if (!firstPage.getBooks().isEmpty()) {
+            if (search_facets) {
+                // Facets need the whole result set; database results are only known page by page
+                if (allResults != null) {
+                    printFacets(docsOf(allResults));
+                } else if (!databaseSearch) {
+                    printFacets(PostingList.fromSorted(searchDocs(BookSearchIndex.fieldForChoice(choice), searchTerm)));
                 }
-            } else {
-                if (b.getAuthor().toLowerCase().contains(author.toLowerCase())) {
-                    matchedBooks.add(b);
+            }
+            return printPages("\nThese books are found: \n", firstPage, pages, sc);
+        } else {
+            System.out.println("\nSorry. No Books were found related to your query.");
+            return null;
+        }
+    }
+
+    /**
+     * Non-interactive search over the book index
+     * @param choice     "1" for title, "2" for subject, "3" for author
+     * @param searchTerm The term to search for (case insensitive substring)
+     * @return Matched books in catalog order, or best match first (BM25) with database search
+     *         on (empty if none or if the choice is invalid)
+     */
+    public ArrayList<Book> searchForBooks(String choice, String searchTerm) {
+        int field = BookSearchIndex.fieldForChoice(choice);
+        if (field == -1) {
+            return new ArrayList<>();
+        }
+        if (databaseSearch) {
+            return searchForBooksInDatabase(choice, searchTerm, -1, 0);
+        }
+
+        syncCatalog();
+        int[] docs = searchDocs(field, searchTerm);
+        ArrayList<Book> matchedBooks = new ArrayList<>(docs.length);
+        for (int doc : docs) {
+            matchedBooks.add(searchIndex.bookAt(doc));
+        }
+        return matchedBooks;
+    }
+
+    /**
+     * Document numbers of every book whose field contains the term, through the search cache
+     */
+    private int[] searchDocs(int field, String searchTerm) {
+        int[] docs = searchCache.get(field, searchTerm);
+        if (docs == null) {
+            docs = searchIndex.matchingDocs(field, searchTerm).toArray();
+            searchCache.put(field, searchTerm, docs);
+        }
+        return docs;
+    }
+
+    /**
+     * Same as searchForBooks(choice, searchTerm), keeping only the books that are not issued.
+     * The matches are intersected with the availability bitmap, so issued books are never visited.
+     * @param choice     "1" for title, "2" for subject, "3" for author
+     * @param searchTerm The term to search for (case insensitive substring)
+     * @return Available matched books, in the same order as searchForBooks (empty if none or
+     *         if the choice is invalid)
+     */
+    public ArrayList<Book> searchForAvailableBooks(String choice, String searchTerm) {
+        int field = BookSearchIndex.fieldForChoice(choice);
+        if (field == -1) {
+            return new ArrayList<>();
+        }
+        if (databaseSearch) {
+            ArrayList<Book> availableBooks = new ArrayList<>();
+            for (Book b : searchForBooks(choice, searchTerm)) {
+                if (!b.getIssuedStatus()) {
+                    availableBooks.add(b);
                 }
             }
+            return availableBooks;
         }
+        syncCatalog();
+        return booksAt(availableDocs.and(PostingList.fromSorted(searchDocs(field, searchTerm))));
+    }
 
-        if (!matchedBooks.isEmpty()) {
-            System.out.println("\nThese books are found: \n");
-            System.out.println("------------------------------------------------------------------------------");
-            System.out.println("No.\t\tTitle\t\t\tAuthor\t\t\tSubject");
-            System.out.println("------------------------------------------------------------------------------");
+    /**
+     * @return Every book that is not issued, in catalog order
+     */
+    public ArrayList<Book> getAvailableBooks() {
+        syncCatalog();
+        return booksAt(availableDocs.toPostingList());
+    }
 
-            for (int i = 0; i < matchedBooks.size(); i++) {
-                System.out.print(i + "-" + "\t\t");
-                matchedBooks.get(i).printInfo();
-                System.out.print("\n");
+    public int getAvailableBookCount() {
+        syncCatalog();
+        return availableDocs.cardinality();
+    }
+
+    private ArrayList<Book> booksAt(PostingList docs) {
+        ArrayList<Book> books = new ArrayList<>(docs.size());
+        for (int i = 0; i < docs.size(); i++) {
+            books.add(searchIndex.bookAt(docs.get(i)));
+        }
+        return books;
+    }
+
+    /**
+     * Per-subject or per-author counts over the results of searchForBooks(choice, searchTerm)
+     * @param choice     "1" for title, "2" for subject, "3" for author
+     * @param searchTerm The term to search for (case insensitive substring)
+     * @param facetField BookSearchIndex.SUBJECT or AUTHOR
+     * @return Value to count, largest first (empty if nothing matched or the choice is invalid)
+     */
+    public LinkedHashMap<String, Integer> facetCounts(String choice, String searchTerm, int facetField) {
+        int field = BookSearchIndex.fieldForChoice(choice);
+        if (field == -1) {
+            return new LinkedHashMap<>();
+        }
+        if (databaseSearch) {
+            return facetCounts(searchForBooks(choice, searchTerm), facetField);
+        }
+        syncCatalog();
+        return facets.counts(facetField, PostingList.fromSorted(searchDocs(field, searchTerm)));
+    }
+
+    /**
+     * Per-subject or per-author counts over any list of books, e.g. the result of
+     * queryBooks, searchForBooksFuzzy or scanBooks
+     * @param books      The result set
+     * @param facetField BookSearchIndex.SUBJECT or AUTHOR
+     * @return Value to count, largest first
+     */
+    public LinkedHashMap<String, Integer> facetCounts(ArrayList<Book> books, int facetField) {
+        syncCatalog();
+        return facets.counts(facetField, docsOf(books));
+    }
+
+    private PostingList docsOf(ArrayList<Book> books) {
+        int[] docs = new int[books.size()];
+        int count = 0;
+        for (Book b : books) {
+            int doc = searchIndex.docOf(b);
+            if (doc >= 0) {
+                docs[count++] = doc;
+            }
+        }
+
+        // Ranked and fuzzy results are not in document order
+        Arrays.sort(docs, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || docs[distinct - 1] != docs[i]) {
+                docs[distinct++] = docs[i];
+            }
+        }
+        return PostingList.fromSorted(Arrays.copyOf(docs, distinct));
+    }
+
+    private void printFacets(PostingList resultDocs) {
+        System.out.println("\nBy subject: " + BookFacets.format(facets.counts(BookSearchIndex.SUBJECT, resultDocs), FACET_LIMIT));
+        System.out.println("By author: " + BookFacets.format(facets.counts(BookSearchIndex.AUTHOR, resultDocs), FACET_LIMIT));
+    }
+
+    /**
+     * One page of searchForBooks(choice, searchTerm); matches after the page are not computed
+     * @param choice     "1" for title, "2" for subject, "3" for author
+     * @param searchTerm The term to search for (case insensitive substring)
+     * @param pageToken  null for the first page, otherwise getNextPageToken() of the previous page
+     * @param pageSize   Books per page (0 or less means everything on one page)
+     * @return The page (empty if nothing matched or if the choice is invalid)
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public BookPage searchForBooksPage(String choice, String searchTerm, String pageToken, int pageSize) {
+        int field = BookSearchIndex.fieldForChoice(choice);
+        if (field == -1) {
+            return new BookPage(new ArrayList<>(), null);
+        }
+
+        if (databaseSearch) {
+            int offset = BookPage.parseToken(pageToken);
+            if (pageSize <= 0) {
+                return new BookPage(searchForBooksInDatabase(choice, searchTerm, -1, offset), null);
+            }
+
+            // Ask for one extra row to find out whether there is a next page
+            ArrayList<Book> matchedBooks = searchForBooksInDatabase(choice, searchTerm, pageSize + 1, offset);
+            if (matchedBooks.size() <= pageSize) {
+                return new BookPage(matchedBooks, null);
+            }
+            matchedBooks.remove(pageSize);
+            return new BookPage(matchedBooks, Integer.toString(offset + pageSize));
+        }
+
+        syncCatalog();
+        int[] docs = searchCache.get(field, searchTerm);
+        if (docs != null) {
+            return pageOfDocs(docs, pageToken, pageSize);
+        }
+
+        BookPage page = searchIndex.searchPage(field, searchTerm, pageToken, pageSize);
+
+        // Only a first page without a successor is the complete answer, so only that is cached
+        if (pageToken == null && !page.hasNextPage()) {
+            docs = new int[page.getBooks().size()];
+            for (int i = 0; i < docs.length; i++) {
+                docs[i] = searchIndex.docOf(page.getBooks().get(i));
             }
+            searchCache.put(field, searchTerm, docs);
+        }
+        return page;
+    }
 
-            return matchedBooks;
+    /**
+     * Cuts a page out of cached document numbers, with the same tokens as BookSearchIndex.searchPage
+     */
+    private BookPage pageOfDocs(int[] docs, String pageToken, int pageSize) {
+        int pos = Arrays.binarySearch(docs, BookPage.parseToken(pageToken));
+        int from = pos >= 0 ? pos : -pos - 1;
+        int to = pageSize <= 0 ? docs.length : (int) Math.min((long) from + pageSize, docs.length);
+
+        ArrayList<Book> books = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            books.add(searchIndex.bookAt(docs[i]));
+        }
+        return new BookPage(books, to < docs.length ? Integer.toString(docs[to]) : null);
+    }
+
+    /**
+     * Full-text search in the database, ranked by BM25 and paged by SQLite
+     * (requires setDatabaseSearch(true) to have created the search table)
+     * @param choice     "1" for title, "2" for subject, "3" for author
+     * @param searchTerm The term to search for (case insensitive substring)
+     * @param limit      Page size (-1 for all results)
+     * @param offset     Number of results to skip
+     * @return Matched books, best match first (empty if none or if the choice is invalid)
+     */
+    public ArrayList<Book> searchForBooksInDatabase(String choice, String searchTerm, int limit, int offset) {
+        String column;
+        if (choice.equals("1")) {
+            column = "title";
+        } else if (choice.equals("2")) {
+            column = "subject";
+        } else if (choice.equals("3")) {
+            column = "author";
         } else {
-            System.out.println("\nSorry. No Books were found related to your query.");
-            return null;
+            return new ArrayList<>();
+        }
+
+        ArrayList<Book> matchedBooks = new ArrayList<>();
+        for (Object[] data : dbManager.searchBooks(column, searchTerm, limit, offset)) {
+            matchedBooks.add(bookFromRow(data));
         }
+        return matchedBooks;
+    }
+
+    /**
+     * Returns the in-memory book for a database row, or builds a detached one
+     * when the catalog has not been loaded
+     */
+    private Book bookFromRow(Object[] data) {
+        int id = (Integer) data[0];
+        Book b = findBookById(id);
+
+        if (b == null) {
+            // The Book constructor registers the id with the allocator; a detached copy must not
+            int idCount = Book.getIDCount();
+            b = new Book(id, (String) data[1], (String) data[3], (String) data[2], (Boolean) data[4]);
+            Book.setIDCount(idCount);
+        }
+        return b;
+    }
+
+    /**
+     * Boolean query across title, subject and author, ranked with BM25
+     * @param query The query, e.g. title:"clean" AND subject:"software" NOT author:"martin"
+     * @param k     Maximum number of books to return
+     * @return The k best matching books, best first
+     * @throws IllegalArgumentException if the query is malformed
+     */
+    public ArrayList<Book> queryBooks(String query, int k) {
+        syncCatalog();
+        return new BookQuery(query).topK(searchIndex, k);
+    }
+
+    /**
+     * Typo-tolerant search over the book index
+     * @param choice      "1" for title, "2" for subject, "3" for author
+     * @param searchTerm  The (possibly misspelled) words to search for
+     * @param maxDistance Maximum number of edits allowed per word
+     * @return Matched books in catalog order (empty if none or if the choice is invalid)
+     */
+    public ArrayList<Book> searchForBooksFuzzy(String choice, String searchTerm, int maxDistance) {
+        int field = BookSearchIndex.fieldForChoice(choice);
+        if (field == -1) {
+            return new ArrayList<>();
+        }
+        syncCatalog();
+        return searchIndex.fuzzySearch(field, searchTerm, maxDistance);
+    }
+
+    /**
+     * Scans the whole catalog for books matching an arbitrary condition, e.g.
+     * {@code scanBooks(b -> !b.getIssuedStatus() && b.getAuthor().contains("Martin"))}.
+     * Large catalogs are split into chunks scanned in parallel (see CatalogScan).
+     * @param predicate The condition to test (must not modify the catalog)
+     * @return Matching books in catalog order
+     */
+    public ArrayList<Book> scanBooks(Predicate<Book> predicate) {
+        return CatalogScan.scan(booksInLibrary, predicate);
+    }
+
+    /**
+     * Suggests completions for a partially typed title, subject or author
+     * @param choice "1" for title, "2" for subject, "3" for author
+     * @param prefix The text typed so far (case insensitive)
+     * @param k      Maximum number of suggestions
+     * @return Up to k values starting with the prefix, most common first
+     */
+    public ArrayList<String> autocomplete(String choice, String prefix, int k) {
+        int field = BookSearchIndex.fieldForChoice(choice);
+        if (field == -1) {
+            return new ArrayList<>();
+        }
+        syncCatalog();
+        return autocomplete.complete(field, prefix, k);
     }
 
     public void viewAllBooks() {
         if (!booksInLibrary.isEmpty()) {
-            System.out.println("\nBooks are: ");
-            System.out.println("------------------------------------------------------------------------------");
-            System.out.println("No.\t\tTitle\t\t\tAuthor\t\t\tSubject");
-            System.out.println("------------------------------------------------------------------------------");
-
-            for (int i = 0; i < booksInLibrary.size(); i++) {
-                System.out.print(i + "-" + "\t\t");
-                booksInLibrary.get(i).printInfo();
-                System.out.print("\n");
-            }
+            Function<String, BookPage> pages = token -> BookPage.fromList(booksInLibrary, token, page_size);
+            printPages("\nBooks are: ", pages.apply(null), pages, new Scanner(System.in));
         } else {
             System.out.println("\nCurrently, Library has no books.");
         }
     }
 
+    /**
+     * Prints results one page at a time, asking before each further page
+     * @param heading   Line printed above the table
+     * @param firstPage The first page, already fetched
+     * @param pages     Fetches the page for a token
+     * @param sc        Where the answer to "next page?" is read from
+     * @return Every book printed, numbered as on screen
+     */
+    private ArrayList<Book> printPages(String heading, BookPage firstPage, Function<String, BookPage> pages, Scanner sc) {
+        ArrayList<Book> shownBooks = new ArrayList<>();
+
+        System.out.println(heading);
+        System.out.println("------------------------------------------------------------------------------");
+        System.out.println("No.\t\tTitle\t\t\tAuthor\t\t\tSubject");
+        System.out.println("------------------------------------------------------------------------------");
+
+        BookPage page = firstPage;
+        while (true) {
+            for (Book b : page.getBooks()) {
+                System.out.print(shownBooks.size() + "-" + "\t\t");
+                b.printInfo();
+                System.out.print("\n");
+                shownBooks.add(b);
+            }
+
+            if (!page.hasNextPage()) {
+                break;
+            }
+            System.out.println("\nEnter 'n' to see the next page, or anything else to stop: ");
+            if (!sc.hasNext() || !sc.next().equalsIgnoreCase("n")) {
+                break;
+            }
+            page = pages.apply(page.getNextPageToken());
+        }
+
+        return shownBooks;
+    }
+
     public double computeFine2(Borrower borrower) {
         System.out.println("---------------------------------------------------------------------------------------------------------------------------------------------------------------------");
         System.out.println("No.\t\tBook's Title\t\tBorrower's Name\t\t\tIssued Date\t\t\tReturned Date\t\t\t\tFine(Rs)");
@@ -335,17 +1048,17 @@ public class Library {
         double totalFine = 0;
         double per_loan_fine = 0;
 
-        for (int i = 0; i < loans.size(); i++) {
-            Loan l = loans.get(i);
+        Iterator<Loan> history = loanHistory(borrower);
 
-            if (l.getBorrower() == borrower) {
-                per_loan_fine = l.computeFine1();
-                System.out.print(i + "-" + "\t\t" + loans.get(i).getBook().getTitle() + "\t\t\t" +
-                        loans.get(i).getBorrower().getName() + "\t\t" + loans.get(i).getIssuedDate() +
-                        "\t\t\t" + loans.get(i).getReturnDate() + "\t\t\t\t" + per_loan_fine + "\n");
+        for (int i = 0; history.hasNext(); i++) {
+            Loan l = history.next();
 
-                totalFine += per_loan_fine;
-            }
+            per_loan_fine = l.computeFine1();
+            System.out.print(i + "-" + "\t\t" + l.getBook().getTitle() + "\t\t\t" +
+                    l.getBorrower().getName() + "\t\t" + l.getIssuedDate() +
+                    "\t\t\t" + l.getReturnDate() + "\t\t\t\t" + per_loan_fine + "\n");
+
+            totalFine += per_loan_fine;
         }
 
         return totalFine;
@@ -422,8 +1135,9 @@ public class Library {
     }
 
     public void createBook(String title, String subject, String author) {
-        Book b = new Book(-1, title, subject, author, false);
-        b.saveToDatabase();
+        // The database assigns the id before the book exists, so it is never filed under another one
+        int id = dbManager.insertBook(title, author, subject, false);
+        Book b = new Book(id, title, subject, author, false);
         addBookinLibrary(b);
         System.out.println("\nBook with Title " + b.getTitle() + " is successfully created.");
     }
@@ -444,45 +1158,60 @@ public class Library {
         System.out.println("Enter Password: ");
         password = input.next();
 
-        if (librarian != null) {
-            if (librarian.getID() == id &&
-                    librarian.getPassword().equals(password)) {
-                System.out.println("\nLogin Successful");
-                return librarian;
-            }
+        Person p = authenticate(id, password);
+        if (p != null) {
+            System.out.println("\nLogin Successful");
+            return p;
         }
 
-        for (Person p : persons) {
-            if (p.getID() == id &&
-                    p.getPassword().equals(password)) {
-                System.out.println("\nLogin Successful");
-                return p;
-            }
+        System.out.println("\nSorry! Wrong ID or Password");
+        return null;
+    }
+
+    /**
+     * Checks an id and password against the credential store
+     * @param id       The person's id
+     * @param password The password typed in
+     * @return The logged in person, or null if the id or password is wrong
+     */
+    public Person authenticate(int id, String password) {
+        if (librarian != null && librarian.getID() == id && credentials.verify(librarian, password)) {
+            return librarian;
         }
 
-        System.out.println("\nSorry! Wrong ID or Password");
+        Person p = findStaffById(id);
+        if (p == null || p == librarian) {
+            p = findBorrowerById(id);
+        }
+        if (p != null && credentials.verify(p, password)) {
+            return p;
+        }
         return null;
     }
 
 
     public void viewHistory() {
-        if (!loans.isEmpty()) {
+        Iterator<Loan> history = loanHistory();
+
+        if (history.hasNext()) {
             System.out.println("\nIssued Books are: ");
             System.out.println("------------------------------------------------------------------------------------------------------------------------------------------------------");
             System.out.println("No.\tBook's Title\tBorrower's Name\t  Issuer's Name\t\tIssued Date\t\t\tReceiver's Name\t\tReturned Date\t\tFine Paid");
             System.out.println("------------------------------------------------------------------------------------------------------------------------------------------------------");
 
-            for (int i = 0; i < loans.size(); i++) {
-                if (loans.get(i).getIssuer() != null) {
-                    System.out.print(i + "-" + "\t" + loans.get(i).getBook().getTitle() + "\t\t\t" +
-                            loans.get(i).getBorrower().getName() + "\t\t" +
-                            loans.get(i).getIssuer().getName() + "\t    " +
-                            loans.get(i).getIssuedDate());
+            for (int i = 0; history.hasNext(); i++) {
+                Loan l = history.next();
+
+                if (l.getIssuer() != null) {
+                    System.out.print(i + "-" + "\t" + l.getBook().getTitle() + "\t\t\t" +
+                            l.getBorrower().getName() + "\t\t" +
+                            l.getIssuer().getName() + "\t    " +
+                            l.getIssuedDate());
                 }
 
-                if (loans.get(i).getReceiver() != null) {
-                    System.out.print("\t" + loans.get(i).getReceiver().getName() + "\t\t" +
-                            loans.get(i).getReturnDate() + "\t   " + loans.get(i).getFineStatus() + "\n");
+                if (l.getReceiver() != null) {
+                    System.out.print("\t" + l.getReceiver().getName() + "\t\t" +
+                            l.getReturnDate() + "\t   " + l.getFineStatus() + "\n");
                 } else {
                     System.out.print("\t\t" + "--" + "\t\t\t" + "--" + "\t\t" + "--" + "\n");
                 }
@@ -492,70 +1221,153 @@ public class Library {
         }
     }
 
+    // ==================== SNAPSHOTS ====================
+
+    /**
+     * Fills the library from the startup snapshot and the database changes made after it
+     * @return false if snapshots are off or there is no usable snapshot; call populateLibrary instead
+     */
+    public boolean loadSnapshot() {
+        if (!snapshots) {
+            return false;
+        }
+        StartupProfiler.Phase phase = StartupProfiler.getInstance().begin("loadSnapshot");
+        boolean loaded = LibrarySnapshot.load(this, dbManager, Paths.get(SNAPSHOT_FILE), lazy_loan_history);
+        if (loaded) {
+            loadCredentials();
+        }
+        phase.end();
+        return loaded;
+    }
+
+    /**
+     * Writes the startup snapshot from the database now
+     * @return true if it was written (false also when snapshots are off)
+     */
+    public boolean writeSnapshot() {
+        if (!snapshots) {
+            return false;
+        }
+        try {
+            flushWrites();
+            LibrarySnapshot.write(dbManager, Paths.get(SNAPSHOT_FILE), lazy_loan_history);
+            return true;
+        } catch (IOException e) {
+            System.out.println("Snapshot was not written: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Starts writing the snapshot every snapshot_interval minutes on a background thread.
+     * The snapshot is read on its own connection, so this does not touch the library.
+     * Needs a WAL profile: the snapshot is read in one transaction, and under a rollback
+     * journal its shared lock would hold back every desk commit until the busy timeout.
+     * @return true if the periodic snapshots are running
+     */
+    public boolean startSnapshots() {
+        if (!snapshots || snapshot_interval <= 0) {
+            return false;
+        }
+        if (snapshotTimer != null) {
+            return true;
+        }
+        if (!dbManager.getProfile().getJournalMode().equalsIgnoreCase("WAL")) {
+            System.out.println("Periodic snapshots need a WAL database profile (balanced or throughput); "
+                    + "the snapshot is written at exit only.");
+            return false;
+        }
+
+        snapshotTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "snapshot-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshotTimer.scheduleWithFixedDelay(this::writeSnapshot, snapshot_interval, snapshot_interval, TimeUnit.MINUTES);
+        return true;
+    }
+
+    public void stopSnapshots() {
+        if (snapshotTimer != null) {
+            snapshotTimer.shutdown();
+            snapshotTimer = null;
+        }
+    }
+
     // ==================== DATABASE OPERATIONS ====================
 
     public Object makeConnection() {
+        // connect() already creates the tables and seeds an empty database
+        StartupProfiler.Phase phase = StartupProfiler.getInstance().begin("connect");
+        if (database_profile != null) {
+            dbManager.setProfile(DatabaseProfile.forName(database_profile));
+        }
+        dbManager.setReadPoolSize(read_connections);
+        dbManager.setChangeLog(snapshots);
         Object con = dbManager.connect();
-        if (con != null) {
-            dbManager.createTables();
-            if (dbManager.isDatabaseEmpty()) {
-                dbManager.seedDatabase();
-            }
+        if (write_behind_millis > 0) {
+            dbManager.enableWriteBehind(write_behind_millis, write_behind_batch);
         }
+        phase.end();
         return con;
     }
 
     public void populateLibrary(Object con) throws IOException {
+        StartupProfiler profiler = StartupProfiler.getInstance();
+        StartupProfiler.Phase total = profiler.begin("populateLibrary");
+
+        if (load_threads > 1) {
+            new StartupLoader(this, dbManager, load_threads).load();
+            loadCredentials();
+            total.end();
+            return;
+        }
 
+        // Tables are streamed row by row; only the objects built from them are kept
         // ==================== Load Books ====================
-        ArrayList<Object[]> bookData = dbManager.loadAllBooks();
-        int maxBookId = 0;
+        int[] maxBookId = {0};
 
-        for (Object[] data : bookData) {
-            int id = (Integer) data[0];
-            String title = (String) data[1];
-            String author = (String) data[2];
-            String subject = (String) data[3];
-            boolean isIssued = (Boolean) data[4];
+        StartupProfiler.Phase phase = profiler.begin("books");
+        int bookCount = dbManager.forEachBook(row -> {
+            int id = row.getInt(1);
 
-            Book b = new Book(id, title, subject, author, isIssued);
+            Book b = new Book(id, row.getString(2), row.getString(4), row.getString(3), row.getBoolean(5));
             addBookinLibrary(b);
 
-            if (id > maxBookId) maxBookId = id;
-        }
+            if (id > maxBookId[0]) maxBookId[0] = id;
+        });
 
-        Book.setIDCount(maxBookId);
+        Book.setIDCount(maxBookId[0]);
+        phase.end(bookCount);
 
-        if (bookData.isEmpty()) {
+        if (bookCount == 0) {
             System.out.println("No Books Found in Library");
         }
 
         // ==================== Load Clerks ====================
-        ArrayList<Object[]> clerkData = dbManager.loadAllClerks();
-        int maxDeskNo = 0;
-
-        for (Object[] data : clerkData) {
-            int id = (Integer) data[0];
-            String cname = (String) data[1];
-            String adrs = (String) data[2];
-            int phn = (Integer) data[3];
-            double sal = (Double) data[4];
-            int desk = (Integer) data[5];
-
-            Clerk c = new Clerk(id, cname, adrs, phn, sal, desk);
+        int[] maxDeskNo = {0};
+
+        phase = profiler.begin("clerks");
+        int clerkCount = dbManager.forEachClerk(row -> {
+            int desk = row.getInt(6);
+
+            Clerk c = new Clerk(row.getInt(1), row.getString(2), row.getString(3), row.getInt(4), row.getDouble(5), desk);
             addClerk(c);
 
-            if (desk > maxDeskNo) maxDeskNo = desk;
-        }
+            if (desk > maxDeskNo[0]) maxDeskNo[0] = desk;
+        });
 
-        Clerk.setDeskCount(maxDeskNo);
+        Clerk.setDeskCount(maxDeskNo[0]);
+        phase.end(clerkCount);
 
-        if (clerkData.isEmpty()) {
+        if (clerkCount == 0) {
             System.out.println("No clerks Found in Library");
         }
 
         // ==================== Load Librarian ====================
+        phase = profiler.begin("librarian");
         Object[] libData = dbManager.loadLibrarian();
+        phase.end(libData != null ? 1 : 0);
 
         if (libData != null) {
             int id = (Integer) libData[0];
@@ -581,19 +1393,12 @@ public class Library {
         }
 
         // ==================== Load Borrowers ====================
-        ArrayList<Object[]> borrowerData = dbManager.loadAllBorrowers();
-
-        for (Object[] data : borrowerData) {
-            int id = (Integer) data[0];
-            String bname = (String) data[1];
-            String adrs = (String) data[2];
-            int phn = (Integer) data[3];
-
-            Borrower b = new Borrower(id, bname, adrs, phn);
-            addBorrower(b);
-        }
+        phase = profiler.begin("borrowers");
+        int borrowerCount = dbManager.forEachBorrower(row ->
+                addBorrower(new Borrower(row.getInt(1), row.getString(2), row.getString(3), row.getInt(4))));
+        phase.end(borrowerCount);
 
-        if (borrowerData.isEmpty()) {
+        if (borrowerCount == 0) {
             System.out.println("No Borrower Found in Library");
         }
 
@@ -602,88 +1407,99 @@ public class Library {
         Person.setIDCount(maxPersonId);
 
         // ==================== Load Loans ====================
-        ArrayList<Object[]> loanData = dbManager.loadAllLoans();
-
-        for (Object[] data : loanData) {
-            int loanId = (Integer) data[0];
-            int borrowerId = (Integer) data[1];
-            int bookId = (Integer) data[2];
-            int issuerId = (Integer) data[3];
-
-            Long issDateLong = (Long) data[4];       // issueDate millis (never null usually)
-            Integer receiverId = (Integer) data[5];  // can be null (ACTIVE loan)
-            Long retDateLong = (Long) data[6];       // can be null (ACTIVE loan)
-            boolean finePaid = (Boolean) data[7];
-
-            Borrower borrower = findBorrowerById(borrowerId);
-            Book book = findBookById(bookId);
-            Staff issuer = findStaffById(issuerId);
-
-            Staff receiver = null;
-            Date issDate = null;
-            Date retDate = null;
-
-            // Convert timestamps to Date safely
-            if (issDateLong != null && issDateLong != 0) {
-                issDate = new Date(issDateLong);
-            }
-
-            if (retDateLong != null && retDateLong != 0) {
-                retDate = new Date(retDateLong);
-            }
-
-            // receiverId may be null if NOT returned
-            if (receiverId != null) {
-                receiver = findStaffById(receiverId);
-            }
+        DatabaseManager.RowHandler loadLoan = row -> {
+            Loan loan = loanFromRow(row);
 
             // Only create loan if required objects exist
-            if (borrower != null && book != null && issuer != null) {
-                Loan loan = new Loan(borrower, book, issuer, receiver, issDate, retDate, finePaid);
-                loan.setLoanId(loanId);
+            if (loan != null) {
                 loans.add(loan);
 
                 // If book is not returned, add to borrower's borrowed books
-                if (receiver == null) {
-                    borrower.addBorrowedBook(loan);
+                if (loan.getReceiver() == null) {
+                    loan.getBorrower().addBorrowedBook(loan);
                 }
             }
-        }
+        };
+
+        // With lazy history, settled loans stay in the database until they are asked for
+        phase = profiler.begin("loans");
+        int loanCount = lazy_loan_history ? dbManager.forEachOpenLoan(loadLoan) : dbManager.forEachLoan(loadLoan);
+        phase.end(loanCount);
 
-        if (loanData.isEmpty()) {
+        if (loanCount == 0) {
             System.out.println("No Books Issued Yet!");
         }
 
         // ==================== Load Hold Requests ====================
-        ArrayList<Object[]> holdData = dbManager.loadAllHoldRequests();
-
-        for (Object[] data : holdData) {
-            // data: [id, bookId, borrowerId, requestDate]
-            int bookId = (Integer) data[1];
-            int borrowerId = (Integer) data[2];
-            Long reqDateLong = (Long) data[3];
-
-            Borrower borrower = findBorrowerById(borrowerId);
-            Book book = findBookById(bookId);
-
-            Date reqDate = null;
-            if (reqDateLong != null && reqDateLong != 0) {
-                reqDate = new Date(reqDateLong);
-            }
-
-            if (borrower != null && book != null && reqDate != null) {
-                HoldRequest hr = new HoldRequest(borrower, book, reqDate);
+        phase = profiler.begin("hold requests");
+        int holdCount = dbManager.forEachHoldRequest(row -> {
+            // columns: id, bookId, borrowerId, requestDate
+            Borrower borrower = findBorrowerById(row.getInt(3));
+            Book book = findBookById(row.getInt(2));
+            long reqDateLong = row.getLong(4);
+
+            if (borrower != null && book != null && reqDateLong != 0) {
+                HoldRequest hr = new HoldRequest(borrower, book, new Date(reqDateLong));
                 book.getHoldRequestOperations().addHoldRequest(hr);
                 borrower.addHoldRequest(hr);
             }
-        }
+        });
 
-        if (holdData.isEmpty()) {
+        phase.end(holdCount);
+
+        if (holdCount == 0) {
             System.out.println("No Books on Hold Yet!");
         }
+
+        loadCredentials();
+        total.end();
+    }
+
+    /**
+     * Registers the stored password of every loaded person with the credential store
+     * (no hashing; hashes are only computed at login)
+     */
+    private void loadCredentials() {
+        StartupProfiler.Phase phase = StartupProfiler.getInstance().begin("credentials");
+        int count = dbManager.forEachPassword(row -> {
+            int id = row.getInt(1);
+            Person p = librarian != null && librarian.getID() == id ? librarian : findStaffById(id);
+            if (p == null) {
+                p = findBorrowerById(id);
+            }
+            credentials.load(p, row.getString(2));
+        });
+        phase.end(count);
     }
 
 
+    /**
+     * Builds a loan from a row of DatabaseManager.forEachLoan
+     * @return The loan, or null if its borrower, book or issuer is not in the library
+     */
+    Loan loanFromRow(DatabaseRow row) throws SQLException {
+        Borrower borrower = findBorrowerById(row.getInt(2));
+        Book book = findBookById(row.getInt(3));
+        Staff issuer = findStaffById(row.getInt(4));
+
+        if (borrower == null || book == null || issuer == null) {
+            return null;
+        }
+
+        long issDateLong = row.getLong(5);   // issueDate millis (never null usually)
+        long retDateLong = row.getLong(7);   // 0 if NULL (ACTIVE loan)
+
+        // receiverId may be null if NOT returned
+        Staff receiver = row.isNull(6) ? null : findStaffById(row.getInt(6));
+
+        Loan loan = new Loan(borrower, book, issuer, receiver,
+                issDateLong != 0 ? new Date(issDateLong) : null,
+                retDateLong != 0 ? new Date(retDateLong) : null,
+                row.getBoolean(8));
+        loan.setLoanId(row.getInt(1));
+        return loan;
+    }
+
     public void fillItBack(Object con) {
         // Database is updated in real-time, no need to fill back
         System.out.println("\nAll changes have been saved to database.");
@@ -0,0 +1,577 @@
+package LMS;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * LibrarySnapshot class - binary snapshot of the library tables for fast startup.
+ * A snapshot holds the books, clerks, borrowers, loans and hold requests as they were at one
+ * point of the database's ChangeLog. It is read back through a memory-mapped buffer; rows
+ * changed since then are re-read from the database and take the place of their snapshot
+ * copies. The librarian is a single row and is always read from the database.
+ *
+ * Layout: magic, format version, database id, change sequence number, open-loans-only flag;
+ * then one section per table, each record preceded by a 1 byte and the section closed by a
+ * 0 byte; then a CRC32 of everything before it. A snapshot with another format version, a bad
+ * checksum, another database's id, or a sequence number the ChangeLog no longer reaches is not
+ * used. The database's ChangeLog has to be on (DatabaseManager.setChangeLog) to write one.
+ */
+public class LibrarySnapshot {
+
+    private static final int MAGIC = 0x4C4D5353; // "LMSS"
+    public static final int FORMAT_VERSION = 2;
+
+    // With more changed rows than this a full load is about as quick as replaying them
+    private static final int MAX_REPLAY = 50_000;
+
+    private LibrarySnapshot() {}
+
+    /* ==================== WRITE ==================== */
+
+    /**
+     * Writes a snapshot of the database, then drops the ChangeLog entries it covers.
+     * Reads on its own connection inside one transaction, so it can run on any thread.
+     * @param openLoansOnly true to leave settled loans out (for lazy loan history)
+     * @return The change sequence number the snapshot is at
+     * @throws IOException also when the ChangeLog is off, since the snapshot could not be replayed
+     */
+    public static synchronized long write(DatabaseManager db, Path file, boolean openLoansOnly) throws IOException {
+        if (!db.isChangeLogEnabled()) {
+            throw new IOException("The change log is off");
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        long seq;
+
+        try (Connection c = db.openReadConnection()) {
+            // One read transaction: the tables and the sequence number agree
+            c.setAutoCommit(false);
+            seq = db.getChangeSeq(c);
+            String databaseId = db.getDatabaseId(c);
+
+            CRC32 crc = new CRC32();
+            try (OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+                Output out = new Output(new DataOutputStream(new CheckedOutputStream(fileOut, crc)));
+
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeString(databaseId);
+                out.writeLong(seq);
+                out.writeBoolean(openLoansOnly);
+
+                db.forEachBook(c, row -> {
+                    out.writeBoolean(true);
+                    out.writeInt(row.getInt(1));
+                    out.writeString(row.getString(2));
+                    out.writeString(row.getString(3));
+                    out.writeString(row.getString(4));
+                    out.writeBoolean(row.getBoolean(5));
+                });
+                out.writeBoolean(false);
+
+                db.forEachClerk(c, row -> {
+                    out.writeBoolean(true);
+                    out.writeInt(row.getInt(1));
+                    out.writeString(row.getString(2));
+                    out.writeString(row.getString(3));
+                    out.writeInt(row.getInt(4));
+                    out.writeDouble(row.getDouble(5));
+                    out.writeInt(row.getInt(6));
+                });
+                out.writeBoolean(false);
+
+                db.forEachBorrower(c, row -> {
+                    out.writeBoolean(true);
+                    out.writeInt(row.getInt(1));
+                    out.writeString(row.getString(2));
+                    out.writeString(row.getString(3));
+                    out.writeInt(row.getInt(4));
+                });
+                out.writeBoolean(false);
+
+                DatabaseManager.RowHandler loan = row -> {
+                    LoanRecord l = LoanRecord.of(row);
+                    out.writeBoolean(true);
+                    out.writeInt(l.id);
+                    out.writeInt(l.borrowerId);
+                    out.writeInt(l.bookId);
+                    out.writeInt(l.issuerId);
+                    out.writeLong(l.issueDate);
+                    out.writeInt(l.receiverId);
+                    out.writeLong(l.returnDate);
+                    out.writeBoolean(l.finePaid);
+                };
+                if (openLoansOnly) {
+                    db.forEachOpenLoan(c, loan);
+                } else {
+                    db.forEachLoan(c, loan);
+                }
+                out.writeBoolean(false);
+
+                db.forEachHoldRequest(c, row -> {
+                    out.writeBoolean(true);
+                    out.writeInt(row.getInt(1));
+                    out.writeInt(row.getInt(2));
+                    out.writeInt(row.getInt(3));
+                    out.writeLong(row.getLong(4));
+                });
+                out.writeBoolean(false);
+
+                out.flush();
+                // The checksum itself is written past the checked stream
+                new DataOutputStream(fileOut).writeLong(crc.getValue());
+            }
+
+            c.commit();
+        } catch (SQLException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw new IOException("Could not write the snapshot", e);
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        db.pruneChangeLog(seq);
+        return seq;
+    }
+
+    /**
+     * DataOutputStream for use inside row callbacks, which cannot throw IOException
+     */
+    private static class Output {
+        private final DataOutputStream out;
+
+        Output(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void writeInt(int v) {
+            try {
+                out.writeInt(v);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void writeLong(long v) {
+            try {
+                out.writeLong(v);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void writeDouble(double v) {
+            try {
+                out.writeDouble(v);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void writeBoolean(boolean v) {
+            try {
+                out.writeBoolean(v);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Length-prefixed UTF-8; -1 for null
+        void writeString(String s) {
+            try {
+                if (s == null) {
+                    out.writeInt(-1);
+                    return;
+                }
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    /* ==================== LOAD ==================== */
+
+    /**
+     * Fills an empty library from a snapshot plus the rows changed since it was written
+     * @param openLoansOnly Must match the setting the snapshot was written with
+     * @return false if the snapshot is missing, corrupt or stale; the library is left
+     *         untouched and has to be loaded with populateLibrary
+     */
+    public static boolean load(Library lib, DatabaseManager db, Path file, boolean openLoansOnly) {
+        StartupProfiler profiler = StartupProfiler.getInstance();
+        StartupProfiler.Phase phase = profiler.begin("read snapshot");
+
+        Contents contents;
+        try {
+            contents = read(file);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Snapshot could not be read: " + e.getMessage());
+            return false;
+        } finally {
+            phase.end();
+        }
+        if (contents == null) {
+            return false;
+        }
+
+        if (contents.openLoansOnly != openLoansOnly) {
+            System.out.println("Snapshot was written for another loan history mode.");
+            return false;
+        }
+
+        if (!Objects.equals(contents.databaseId, db.getDatabaseId())) {
+            System.out.println("Snapshot was written from another database.");
+            return false;
+        }
+
+        // The log has to reach back to the snapshot, and the snapshot cannot be ahead of it
+        long latest = db.getChangeSeq();
+        long oldest = db.getOldestChangeSeq();
+        if (contents.seq > latest || (oldest > 0 && contents.seq < oldest - 1)) {
+            System.out.println("Snapshot is stale.");
+            return false;
+        }
+
+        HashMap<String, ArrayList<Integer>> changes = db.getChangesSince(contents.seq);
+        if (changes.containsKey(DatabaseManager.CHANGE_LOG_GAP)) {
+            System.out.println("Snapshot is stale (the change log was off since).");
+            return false;
+        }
+        int changed = 0;
+        for (ArrayList<Integer> ids : changes.values()) {
+            changed += ids.size();
+        }
+        if (changed > MAX_REPLAY) {
+            System.out.println("Snapshot is too far behind the database.");
+            return false;
+        }
+
+        phase = profiler.begin("replay changes");
+        replay(contents, db, changes, openLoansOnly);
+        phase.end(changed);
+
+        phase = profiler.begin("attach snapshot");
+        attach(contents, lib, db);
+        phase.end(contents.books.size() + contents.clerks.size() + contents.borrowers.size()
+                + contents.loans.size() + contents.holds.size());
+        return true;
+    }
+
+    /**
+     * Maps and parses a snapshot file
+     * @return The contents, or null if there is no usable snapshot
+     */
+    static Contents read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            System.out.println("No snapshot found.");
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE || size < 30) {
+                System.out.println("Snapshot has an unexpected size.");
+                return null;
+            }
+
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            CRC32 crc = new CRC32();
+            crc.update(buf.duplicate().limit((int) size - 8));
+            if (crc.getValue() != buf.getLong((int) size - 8)) {
+                System.out.println("Snapshot is corrupt (checksum mismatch).");
+                return null;
+            }
+            buf.limit((int) size - 8);
+
+            if (buf.getInt() != MAGIC || buf.getInt() != FORMAT_VERSION) {
+                System.out.println("Snapshot has an unknown format.");
+                return null;
+            }
+
+            try {
+                return parse(buf);
+            } catch (BufferUnderflowException e) {
+                System.out.println("Snapshot is truncated.");
+                return null;
+            }
+        }
+    }
+
+    private static Contents parse(MappedByteBuffer buf) {
+        Contents c = new Contents();
+        c.databaseId = readString(buf);
+        c.seq = buf.getLong();
+        c.openLoansOnly = buf.get() != 0;
+
+        while (buf.get() != 0) {
+            int id = buf.getInt();
+            String title = readString(buf);
+            String author = readString(buf);
+            String subject = readString(buf);
+            c.books.add(new Book(id, title, subject, author, buf.get() != 0));
+        }
+
+        while (buf.get() != 0) {
+            int id = buf.getInt();
+            String name = readString(buf);
+            String address = readString(buf);
+            c.clerks.add(new Clerk(id, name, address, buf.getInt(), buf.getDouble(), buf.getInt()));
+        }
+
+        while (buf.get() != 0) {
+            int id = buf.getInt();
+            String name = readString(buf);
+            String address = readString(buf);
+            c.borrowers.add(new Borrower(id, name, address, buf.getInt()));
+        }
+
+        while (buf.get() != 0) {
+            LoanRecord l = new LoanRecord();
+            l.id = buf.getInt();
+            l.borrowerId = buf.getInt();
+            l.bookId = buf.getInt();
+            l.issuerId = buf.getInt();
+            l.issueDate = buf.getLong();
+            l.receiverId = buf.getInt();
+            l.returnDate = buf.getLong();
+            l.finePaid = buf.get() != 0;
+            c.loans.add(l);
+        }
+
+        while (buf.get() != 0) {
+            c.holds.add(new long[]{buf.getInt(), buf.getInt(), buf.getInt(), buf.getLong()});
+        }
+
+        if (buf.hasRemaining()) {
+            throw new IllegalStateException("Snapshot has trailing data");
+        }
+        return c;
+    }
+
+    private static String readString(MappedByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Swaps the snapshot copies of changed rows for their current database rows
+     * (rows deleted since the snapshot simply drop out)
+     */
+    private static void replay(Contents c, DatabaseManager db, HashMap<String, ArrayList<Integer>> changes,
+                               boolean openLoansOnly) {
+        int[] bookIds = ids(changes, "Book");
+        ArrayList<Book> books = new ArrayList<>();
+        db.forEachBook(bookIds, row -> books.add(
+                new Book(row.getInt(1), row.getString(2), row.getString(4), row.getString(3), row.getBoolean(5))));
+        c.books = merge(c.books, books, bookIds, Book::getID);
+
+        int[] personIds = ids(changes, "Person");
+        ArrayList<Clerk> clerks = new ArrayList<>();
+        db.forEachClerk(personIds, row -> clerks.add(
+                new Clerk(row.getInt(1), row.getString(2), row.getString(3), row.getInt(4), row.getDouble(5), row.getInt(6))));
+        c.clerks = merge(c.clerks, clerks, personIds, Clerk::getID);
+
+        ArrayList<Borrower> borrowers = new ArrayList<>();
+        db.forEachBorrower(personIds, row -> borrowers.add(
+                new Borrower(row.getInt(1), row.getString(2), row.getString(3), row.getInt(4))));
+        c.borrowers = merge(c.borrowers, borrowers, personIds, Borrower::getID);
+
+        int[] loanIds = ids(changes, "Loan");
+        ArrayList<LoanRecord> loans = new ArrayList<>();
+        db.forEachLoan(loanIds, row -> {
+            LoanRecord l = LoanRecord.of(row);
+            if (!openLoansOnly || l.receiverId == -1 || !l.finePaid) {
+                loans.add(l);
+            }
+        });
+        c.loans = merge(c.loans, loans, loanIds, l -> l.id);
+
+        int[] holdIds = ids(changes, "HoldRequest");
+        ArrayList<long[]> holds = new ArrayList<>();
+        db.forEachHoldRequest(holdIds, row -> holds.add(
+                new long[]{row.getInt(1), row.getInt(2), row.getInt(3), row.getLong(4)}));
+        c.holds = merge(c.holds, holds, holdIds, h -> (int) h[0]);
+
+        // Hold queues are in request order
+        c.holds.sort(Comparator.comparingLong(h -> h[3]));
+    }
+
+    private static int[] ids(HashMap<String, ArrayList<Integer>> changes, String table) {
+        ArrayList<Integer> list = changes.getOrDefault(table, new ArrayList<>());
+        int[] ids = new int[list.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = list.get(i);
+        }
+        return ids;
+    }
+
+    /**
+     * Replaces the snapshot rows of the changed ids with the fresh rows; the result is in id
+     * order whatever order the two lists come in (nearly sorted input sorts in linear time)
+     * @param changed Sorted ids of the changed rows
+     */
+    private static <T> ArrayList<T> merge(ArrayList<T> kept, ArrayList<T> fresh, int[] changed,
+                                          java.util.function.ToIntFunction<T> id) {
+        if (changed.length == 0) {
+            return kept;
+        }
+
+        ArrayList<T> result = new ArrayList<>(kept.size() + fresh.size());
+        for (T item : kept) {
+            if (Arrays.binarySearch(changed, id.applyAsInt(item)) < 0) {
+                result.add(item);
+            }
+        }
+        result.addAll(fresh);
+        result.sort(Comparator.comparingInt(id));
+        return result;
+    }
+
+    /**
+     * Hands the loaded objects to the library, in the same order populateLibrary would
+     */
+    private static void attach(Contents c, Library lib, DatabaseManager db) {
+        int maxBookId = 0;
+        for (Book b : c.books) {
+            lib.addBookinLibrary(b);
+            if (b.getID() > maxBookId) maxBookId = b.getID();
+        }
+        Book.setIDCount(maxBookId);
+
+        if (c.books.isEmpty()) {
+            System.out.println("No Books Found in Library");
+        }
+
+        int maxDeskNo = 0;
+        for (Clerk clerk : c.clerks) {
+            lib.addClerk(clerk);
+            if (clerk.getDeskNo() > maxDeskNo) maxDeskNo = clerk.getDeskNo();
+        }
+        Clerk.setDeskCount(maxDeskNo);
+
+        if (c.clerks.isEmpty()) {
+            System.out.println("No clerks Found in Library");
+        }
+
+        Object[] libData = db.loadLibrarian();
+        if (libData != null) {
+            Library.librarian = new Librarian((Integer) libData[0], (String) libData[1], (String) libData[3],
+                    (Integer) libData[4], (Double) libData[5], (Integer) libData[6]);
+        } else {
+            System.out.println("No Librarian Found in Library");
+        }
+
+        for (Borrower b : c.borrowers) {
+            lib.addBorrower(b);
+        }
+
+        if (c.borrowers.isEmpty()) {
+            System.out.println("No Borrower Found in Library");
+        }
+
+        Person.setIDCount(db.getMaxPersonId());
+
+        for (LoanRecord l : c.loans) {
+            Borrower borrower = lib.findBorrowerById(l.borrowerId);
+            Book book = lib.findBookById(l.bookId);
+            Staff issuer = lib.findStaffById(l.issuerId);
+
+            // Only create loan if required objects exist
+            if (borrower == null || book == null || issuer == null) {
+                continue;
+            }
+
+            Staff receiver = l.receiverId == -1 ? null : lib.findStaffById(l.receiverId);
+            Loan loan = new Loan(borrower, book, issuer, receiver,
+                    l.issueDate != 0 ? new Date(l.issueDate) : null,
+                    l.returnDate != 0 ? new Date(l.returnDate) : null,
+                    l.finePaid);
+            loan.setLoanId(l.id);
+            lib.addLoan(loan);
+
+            // If book is not returned, add to borrower's borrowed books
+            if (receiver == null) {
+                borrower.addBorrowedBook(loan);
+            }
+        }
+
+        if (c.loans.isEmpty()) {
+            System.out.println("No Books Issued Yet!");
+        }
+
+        for (long[] h : c.holds) {
+            Borrower borrower = lib.findBorrowerById((int) h[2]);
+            Book book = lib.findBookById((int) h[1]);
+
+            if (borrower != null && book != null && h[3] != 0) {
+                HoldRequest hr = new HoldRequest(borrower, book, new Date(h[3]));
+                book.getHoldRequestOperations().addHoldRequest(hr);
+                borrower.addHoldRequest(hr);
+            }
+        }
+
+        if (c.holds.isEmpty()) {
+            System.out.println("No Books on Hold Yet!");
+        }
+    }
+
+    /**
+     * Everything read from a snapshot file, before it is handed to a library
+     */
+    static class Contents {
+        String databaseId;
+        long seq;
+        boolean openLoansOnly;
+        ArrayList<Book> books = new ArrayList<>();
+        ArrayList<Clerk> clerks = new ArrayList<>();
+        ArrayList<Borrower> borrowers = new ArrayList<>();
+        ArrayList<LoanRecord> loans = new ArrayList<>();
+        // id, bookId, borrowerId, requestDate
+        ArrayList<long[]> holds = new ArrayList<>();
+    }
+
+    /**
+     * A Loan row by ids; receiverId is -1 and returnDate 0 while the loan is active
+     */
+    static class LoanRecord {
+        int id, borrowerId, bookId, issuerId, receiverId;
+        long issueDate, returnDate;
+        boolean finePaid;
+
+        static LoanRecord of(DatabaseRow row) throws SQLException {
+            LoanRecord l = new LoanRecord();
+            l.id = row.getInt(1);
+            l.borrowerId = row.getInt(2);
+            l.bookId = row.getInt(3);
+            l.issuerId = row.getInt(4);
+            l.issueDate = row.getLong(5);
+            l.receiverId = row.isNull(6) ? -1 : row.getInt(6);
+            l.returnDate = row.getLong(7);
+            l.finePaid = row.getBoolean(8);
+            return l;
+        }
+    }
+}
@@ -9,14 +9,30 @@ import java.util.*;
  */
 public class LibraryTestable {
 
-    private ArrayList<Book> booksInLibrary;
+    private TrackedList<Book> booksInLibrary;
+    private BookSearchIndex searchIndex;
+    private CredentialStore credentials;
+
+    // The title, subject and author each position of booksInLibrary was indexed with,
+    // and the list version they belong to
+    private ArrayList<String[]> indexedFields;
+    private int indexedVersion;
 
     public LibraryTestable() {
-        booksInLibrary = new ArrayList<>();
+        booksInLibrary = new TrackedList<>();
+        searchIndex = new BookSearchIndex();
+        indexedFields = new ArrayList<>();
+        indexedVersion = booksInLibrary.version();
+        // The library's store, which holds the credentials enrolled when persons were saved or loaded
+        credentials = Library.getInstance().getCredentials();
     }
 
     public void addBookinLibrary(Book b) {
+        syncIndex();
         booksInLibrary.add(b);
+        searchIndex.add(b);
+        indexedFields.add(fieldsOf(b));
+        indexedVersion = booksInLibrary.version();
     }
 
     public ArrayList<Book> getBooks() {
@@ -32,49 +48,55 @@ public class LibraryTestable {
      * @return ArrayList of matched books, or null if no matches found
      */
     public ArrayList<Book> searchForBooks(String choice, String searchTerm) {
-        String title = "", subject = "", author = "";
+        int field = BookSearchIndex.fieldForChoice(choice);
 
         // Validate choice
-        if (!choice.equals("1") && !choice.equals("2") && !choice.equals("3")) {
+        if (field == -1) {
             return null; // Invalid choice
         }
 
-        // Set search term based on choice
-        if (choice.equals("1")) {
-            title = searchTerm;
-        } else if (choice.equals("2")) {
-            subject = searchTerm;
+        // Search through the index
+        syncIndex();
+        ArrayList<Book> matchedBooks = searchIndex.search(field, searchTerm);
+
+        // Return results
+        if (!matchedBooks.isEmpty()) {
+            return matchedBooks;
         } else {
-            author = searchTerm;
+            return null;
         }
+    }
 
-        ArrayList<Book> matchedBooks = new ArrayList<>();
+    /**
+     * Brings the index in line with booksInLibrary, which getBooks() lets callers change:
+     * the whole index is rebuilt if the list itself changed, and a book whose title, subject
+     * or author was edited since it was indexed is re-indexed. Edits assign new strings, so
+     * comparing references is enough.
+     */
+    private void syncIndex() {
+        if (booksInLibrary.version() != indexedVersion) {
+            searchIndex.clear();
+            indexedFields.clear();
+            for (Book b : booksInLibrary) {
+                searchIndex.add(b);
+                indexedFields.add(fieldsOf(b));
+            }
+            indexedVersion = booksInLibrary.version();
+            return;
+        }
 
-        // Search through books
         for (int i = 0; i < booksInLibrary.size(); i++) {
             Book b = booksInLibrary.get(i);
-
-            if (choice.equals("1")) {
-                if (b.getTitle().toLowerCase().contains(title.toLowerCase())) {
-                    matchedBooks.add(b);
-                }
-            } else if (choice.equals("2")) {
-                if (b.getSubject().toLowerCase().contains(subject.toLowerCase())) {
-                    matchedBooks.add(b);
-                }
-            } else {
-                if (b.getAuthor().toLowerCase().contains(author.toLowerCase())) {
-                    matchedBooks.add(b);
-                }
+            String[] fields = indexedFields.get(i);
+            if (fields[0] != b.getTitle() || fields[1] != b.getSubject() || fields[2] != b.getAuthor()) {
+                searchIndex.update(b);
+                indexedFields.set(i, fieldsOf(b));
             }
         }
+    }
 
-        // Return results
-        if (!matchedBooks.isEmpty()) {
-            return matchedBooks;
-        } else {
-            return null;
-        }
+    private static String[] fieldsOf(Book b) {
+        return new String[]{b.getTitle(), b.getSubject(), b.getAuthor()};
     }
 
     /*
@@ -129,7 +151,7 @@ public class LibraryTestable {
         // Librarian authentication
         if (Library.librarian != null) {
             if (Library.librarian.getID() == id &&
-                    Library.librarian.getPassword().equals(password)) {
+                    credentials.verify(Library.librarian, password)) {
                 return Library.librarian;
             }
         }
@@ -137,7 +159,7 @@ public class LibraryTestable {
         // Borrower / Staff authentication
         for (Person p : Library.persons) {
             if (p.getID() == id &&
-                    p.getPassword().equals(password)) {
+                    credentials.verify(p, password)) {
                 return p;
             }
         }
@@ -10,7 +10,7 @@ import java.util.Scanner;
  */
 public class Loan {
 
-    private int loanId;
+    private volatile int loanId; // set by the write-behind thread
     private Borrower borrower;
     private Book book;
     private Staff issuer;
@@ -136,37 +136,54 @@ public class Loan {
         issuedDate = iDate;
 
         // Update in database
-        DatabaseManager.getInstance().updateLoanIssueDate(book.getID(), borrower.getID(), iDate);
+        DatabaseManager db = DatabaseManager.getInstance();
+        int bookId = book.getID();
+        int borrowerId = borrower.getID();
+        db.write(() -> db.updateLoanIssueDate(bookId, borrowerId, iDate));
 
         System.out.println("\nThe deadline of the book " + getBook().getTitle() + " has been extended.");
         System.out.println("Issued Book is successfully renewed!\n");
     }
 
     /**
-     * Saves this loan to the database
+     * Saves this loan to the database; with write-behind on, the loan id is set once the
+     * insert has been applied
      */
     public void saveToDatabase() {
-        loanId = DatabaseManager.getInstance().insertLoan(
-                borrower.getID(),
-                book.getID(),
-                issuer.getID(),
-                issuedDate
-        );
-        // Also record in borrowed_book table
-        DatabaseManager.getInstance().insertBorrowedBook(book.getID(), borrower.getID());
+        DatabaseManager db = DatabaseManager.getInstance();
+        // The values are taken now: the loan may change again before the write is applied
+        int borrowerId = borrower.getID();
+        int bookId = book.getID();
+        int issuerId = issuer.getID();
+        Date issued = issuedDate;
+        db.write(() -> {
+            loanId = db.insertLoan(borrowerId, bookId, issuerId, issued);
+            // Also record in borrowed_book table
+            db.insertBorrowedBook(bookId, borrowerId);
+        });
     }
 
     /**
      * Updates the return information in the database
      */
     public void updateReturnInDatabase() {
-        if (loanId == -1) {
-            // Try to find the loan ID
-            loanId = DatabaseManager.getInstance().getLoanIdForActiveBook(book.getID(), borrower.getID());
-        }
-        if (loanId != -1) {
-            DatabaseManager.getInstance().updateLoanReturn(loanId, receiver.getID(), dateReturned, finePaid);
-            DatabaseManager.getInstance().deleteBorrowedBook(book.getID());
-        }
+        DatabaseManager db = DatabaseManager.getInstance();
+        // The values are taken now: the loan may change again before the write is applied
+        int bookId = book.getID();
+        int borrowerId = borrower.getID();
+        int receiverId = receiver.getID();
+        Date returned = dateReturned;
+        boolean paid = finePaid;
+        // Queued after the insert, so the loan id is known by the time this runs
+        db.write(() -> {
+            if (loanId == -1) {
+                // Try to find the loan ID
+                loanId = db.getLoanIdForActiveBook(bookId, borrowerId);
+            }
+            if (loanId != -1) {
+                db.updateLoanReturn(loanId, receiverId, returned, paid);
+                db.deleteBorrowedBook(bookId);
+            }
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+package LMS;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * LoanHistory class - iterates over every loan, in loan id order.
+ * Loans held in memory are merged with the settled loans (returned, fine paid) that lazy
+ * history leaves in the database. Those are read a page at a time by id, so only one page
+ * of history is on the heap however long the history is.
+ * Settled loans are built fresh on every iteration and are not added to the library.
+ */
+class LoanHistory implements Iterator<Loan> {
+
+    private final Library lib;
+    private final DatabaseManager db;
+    private final int borrowerId;
+    private final int pageSize;
+
+    // Loans in memory, and the ids to skip when they also show up in the database
+    private final ArrayList<Loan> current;
+    private final IntObjectMap<Loan> currentIds;
+    private int currentPos;
+
+    private final ArrayList<Loan> page;
+    private int pagePos;
+    private int lastStoredId;
+    private boolean storedDone;
+
+    /**
+     * @param current  The loans held in memory
+     * @param borrower Only this borrower's loans, or null for everyone's
+     * @param lazy     true if settled loans have to be read from the database
+     * @param pageSize Settled loans read per query
+     */
+    LoanHistory(Library lib, DatabaseManager db, List<Loan> current, Borrower borrower, boolean lazy, int pageSize) {
+        this.lib = lib;
+        this.db = db;
+        this.borrowerId = borrower == null ? -1 : borrower.getID();
+        this.pageSize = Math.max(1, pageSize);
+
+        this.current = new ArrayList<>();
+        currentIds = new IntObjectMap<>();
+        for (Loan l : current) {
+            if (borrower == null || l.getBorrower() == borrower) {
+                this.current.add(l);
+                if (l.getLoanId() >= 0) {
+                    currentIds.put(l.getLoanId(), l);
+                }
+            }
+        }
+
+        page = new ArrayList<>();
+        lastStoredId = -1;
+        storedDone = !lazy;
+        if (lazy) {
+            // Stable, so unsaved loans (id -1) keep their order at the end
+            this.current.sort((a, b) -> Integer.compare(sortKey(a), sortKey(b)));
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        // Fill first: the next settled loan may come before the next loan in memory
+        boolean stored = fillPage();
+        return stored || currentPos < current.size();
+    }
+
+    @Override
+    public Loan next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        boolean pageHasNext = pagePos < page.size();
+        if (currentPos < current.size()
+                && (!pageHasNext || sortKey(current.get(currentPos)) < page.get(pagePos).getLoanId())) {
+            return current.get(currentPos++);
+        }
+        return page.get(pagePos++);
+    }
+
+    /**
+     * Reads the next page of settled loans once the current one is used up
+     * @return true if a settled loan is waiting
+     */
+    private boolean fillPage() {
+        while (pagePos == page.size() && !storedDone) {
+            page.clear();
+            pagePos = 0;
+
+            int rows = db.forEachSettledLoan(lastStoredId, borrowerId, pageSize, row -> {
+                lastStoredId = row.getInt(1);
+                if (currentIds.containsKey(lastStoredId)) {
+                    return;
+                }
+
+                Loan loan = lib.loanFromRow(row);
+                if (loan != null) {
+                    page.add(loan);
+                }
+            });
+
+            storedDone = rows < pageSize;
+        }
+        return pagePos < page.size();
+    }
+
+    private static int sortKey(Loan l) {
+        return l.getLoanId() >= 0 ? l.getLoanId() : Integer.MAX_VALUE;
+    }
+}
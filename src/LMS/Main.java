@@ -9,6 +9,50 @@ import java.util.*;
  */
 public class Main {
 
+    // Where the timings of the last startup are written
+    private static final String STARTUP_PROFILE_FILE = "database/startup-profile.json";
+
+    // Optional settings (key=value, keys as in the README); without the file every optional mode is off
+    private static final String CONFIG_FILE = "database/library.properties";
+
+    /**
+     * Reads CONFIG_FILE if it exists. A system property with the same key (-Dpage_size=10)
+     * takes precedence over the file.
+     */
+    static Properties loadConfiguration() {
+        Properties config = new Properties();
+        File file = new File(CONFIG_FILE);
+        if (file.exists()) {
+            try (Reader in = new FileReader(file)) {
+                config.load(in);
+            } catch (IOException e) {
+                System.out.println("Configuration was not read: " + e.getMessage());
+            }
+        }
+        for (String key : System.getProperties().stringPropertyNames()) {
+            config.setProperty(key, System.getProperty(key));
+        }
+        return config;
+    }
+
+    private static String setting(Properties config, String key, String def) {
+        return config.getProperty(key, def).trim();
+    }
+
+    private static int intSetting(Properties config, String key, int def) {
+        String value = setting(config, key, Integer.toString(def));
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.out.println("Ignoring " + key + "=" + value + " (not a number).");
+            return def;
+        }
+    }
+
+    private static boolean booleanSetting(Properties config, String key, boolean def) {
+        return Boolean.parseBoolean(setting(config, key, Boolean.toString(def)));
+    }
+
     /**
      * Clears screen by printing newlines
      */
@@ -202,9 +246,14 @@ public class Main {
      */
     public static void main(String[] args) throws IOException {
 
-        DatabaseManager db = DatabaseManager.getInstance();
-        db.connect();
-        System.out.println("[DB CHECK] Database connection established successfully.");
+        Properties config = loadConfiguration();
+        boolean diagnostics = booleanSetting(config, "diagnostics", false);
+
+        // Startup timings are only taken and reported with diagnostics on
+        StartupProfiler profiler = StartupProfiler.getInstance();
+        profiler.setEnabled(diagnostics);
+        StartupProfiler.Phase boot = profiler.begin("startup");
+
         Scanner admin = new Scanner(System.in);
 
         Library lib = Library.getInstance();
@@ -215,6 +264,18 @@ public class Main {
         lib.setReturnDeadline(5);
         lib.setName("FAST Library");
 
+        // Optional modes, all off unless configured
+        lib.setFuzzyDistance(intSetting(config, "fuzzy_edit_distance", 0));
+        lib.setPageSize(intSetting(config, "page_size", 0));
+        lib.setLoadThreads(intSetting(config, "load_threads", 1));
+        lib.setLazyLoanHistory(booleanSetting(config, "lazy_loan_history", false));
+        lib.setSnapshots(booleanSetting(config, "snapshots", false));
+        lib.setSnapshotInterval(intSetting(config, "snapshot_interval", 0));
+        lib.setWriteBehind(intSetting(config, "write_behind_millis", 0), intSetting(config, "write_behind_batch", 64));
+        lib.setDatabaseProfile(setting(config, "database_profile", "durable"));
+        lib.setReadConnections(intSetting(config, "read_connections", 0));
+        lib.setSearchFacets(booleanSetting(config, "search_facets", false));
+
         // Make connection with Database
         Object con = lib.makeConnection();
 
@@ -222,10 +283,31 @@ public class Main {
             System.out.println("\nError connecting to Database. Exiting.");
             return;
         }
+        System.out.println("[DB CHECK] Database connection established successfully.");
+
+        // The full-text table lives in the database, so it can only be set up once connected
+        if (booleanSetting(config, "database_search", false) && !lib.setDatabaseSearch(true)) {
+            System.out.println("Database search is unavailable (this SQLite has no FTS5); using the in-memory index.");
+        }
 
 
         try {
-            lib.populateLibrary(con);
+            // Boot from the snapshot if it is usable, otherwise read every table
+            if (!lib.loadSnapshot()) {
+                lib.populateLibrary(con);
+            }
+            lib.startSnapshots();
+
+            boot.end();
+            if (diagnostics) {
+                profiler.setEnabled(false);
+                System.out.print(profiler.report());
+                try {
+                    profiler.writeJson(java.nio.file.Paths.get(STARTUP_PROFILE_FILE));
+                } catch (IOException e) {
+                    System.out.println("Startup profile was not written: " + e.getMessage());
+                }
+            }
 
             boolean stop = false;
             while (!stop) {
@@ -352,6 +434,18 @@ public class Main {
                 // ================= EXIT =================
                 else {
                     stop = true;
+                    lib.stopSnapshots();
+                    lib.writeSnapshot();
+                    if (diagnostics) {
+                        DatabaseManager db = DatabaseManager.getInstance();
+                        System.out.println(db.getStatementCache());
+                        if (db.getWriteBehindQueue() != null) {
+                            System.out.println(db.getWriteBehindQueue());
+                        }
+                        if (db.getReadPool() != null) {
+                            System.out.println(db.getReadPool());
+                        }
+                    }
                 }
 
                 System.out.println("\nPress any key to continue..\n");
@@ -12,15 +12,14 @@ public abstract class Person {
     protected String address;
     protected int phoneNo;
 
-    static int currentIdNumber = 0;
+    static final IdAllocator ids = new IdAllocator();
 
     public Person(int idNum, String name, String address, int phoneNum) {
-        currentIdNumber++;
-
         if (idNum == -1) {
-            id = currentIdNumber;
+            id = ids.next();
         } else {
             id = idNum;
+            ids.advanceTo(idNum);
         }
 
         password = Integer.toString(id);
@@ -45,19 +44,29 @@ public abstract class Person {
     public void setAddress(String a) {
         address = a;
         // Update in database
-        DatabaseManager.getInstance().updatePerson(id, name, address, phoneNo);
+        updateInDatabase();
     }
 
     public void setPhone(int p) {
         phoneNo = p;
         // Update in database
-        DatabaseManager.getInstance().updatePerson(id, name, address, phoneNo);
+        updateInDatabase();
     }
 
     public void setName(String n) {
         name = n;
         // Update in database
-        DatabaseManager.getInstance().updatePerson(id, name, address, phoneNo);
+        updateInDatabase();
+    }
+
+    private void updateInDatabase() {
+        // The values are taken now, the write may run later on the write-behind thread
+        int pid = id;
+        String n = name;
+        String a = address;
+        int p = phoneNo;
+        DatabaseManager db = DatabaseManager.getInstance();
+        db.write(() -> db.updatePerson(pid, n, a, p));
     }
 
     // Getter Methods
@@ -82,10 +91,10 @@ public abstract class Person {
     }
 
     public static void setIDCount(int n) {
-        currentIdNumber = n;
+        ids.set(n);
     }
 
     public static int getIDCount() {
-        return currentIdNumber;
+        return ids.current();
     }
 }
\ No newline at end of file
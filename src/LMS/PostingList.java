@@ -0,0 +1,177 @@
+package LMS;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * PostingList class - sorted, duplicate-free list of document numbers.
+ * Backed by a plain int array so rare terms cost a few bytes instead of a
+ * bitset sized to the whole catalog.
+ */
+public class PostingList {
+
+    private int[] docs;
+    private int size;
+
+    public PostingList() {
+        docs = new int[4];
+        size = 0;
+    }
+
+    /**
+     * Wraps document numbers that are already sorted and distinct
+     * @param sortedDocs The document numbers (copied)
+     * @return The list
+     */
+    public static PostingList fromSorted(int[] sortedDocs) {
+        PostingList list = new PostingList();
+        list.docs = Arrays.copyOf(sortedDocs, Math.max(4, sortedDocs.length));
+        list.size = sortedDocs.length;
+        return list;
+    }
+
+    /**
+     * Adds a document number, keeping the list sorted
+     * @param doc The document number
+     */
+    public void add(int doc) {
+        // Documents are usually added in increasing order, so appending is the common case
+        if (size > 0 && docs[size - 1] >= doc) {
+            int pos = Arrays.binarySearch(docs, 0, size, doc);
+            if (pos >= 0) {
+                return;
+            }
+            insertAt(-pos - 1, doc);
+            return;
+        }
+        insertAt(size, doc);
+    }
+
+    /**
+     * Removes a document number
+     * @param doc The document number
+     * @return true if it was present
+     */
+    public boolean remove(int doc) {
+        int pos = Arrays.binarySearch(docs, 0, size, doc);
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(docs, pos + 1, docs, pos, size - pos - 1);
+        size--;
+        return true;
+    }
+
+    public boolean contains(int doc) {
+        return Arrays.binarySearch(docs, 0, size, doc) >= 0;
+    }
+
+    /**
+     * Finds where a document number is, or would be inserted
+     * @param doc The document number
+     * @return The position of the first document greater than or equal to doc
+     */
+    public int firstAtOrAfter(int doc) {
+        int pos = Arrays.binarySearch(docs, 0, size, doc);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+
+    public int get(int i) {
+        return docs[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(docs, size);
+    }
+
+    /**
+     * Intersects this list with another one
+     * @param other The other list
+     * @return A new list holding the documents present in both
+     */
+    public PostingList intersect(PostingList other) {
+        PostingList result = new PostingList();
+        int i = 0, j = 0;
+
+        while (i < size && j < other.size) {
+            int a = docs[i];
+            int b = other.docs[j];
+
+            if (a == b) {
+                result.insertAt(result.size, a);
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Removes another list's documents from this one
+     * @param other The documents to exclude
+     * @return A new list holding the documents only present in this list
+     */
+    public PostingList andNot(PostingList other) {
+        PostingList result = new PostingList();
+        int j = 0;
+
+        for (int i = 0; i < size; i++) {
+            int a = docs[i];
+            while (j < other.size && other.docs[j] < a) {
+                j++;
+            }
+            if (j == other.size || other.docs[j] != a) {
+                result.insertAt(result.size, a);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Merges several lists
+     * @param lists The lists to merge
+     * @return A list holding every document present in at least one of them
+     */
+    public static PostingList union(List<PostingList> lists) {
+        if (lists.size() == 1) {
+            return lists.get(0);
+        }
+
+        BitSet union = new BitSet();
+        for (PostingList list : lists) {
+            for (int i = 0; i < list.size; i++) {
+                union.set(list.docs[i]);
+            }
+        }
+
+        PostingList result = new PostingList();
+        for (int doc = union.nextSetBit(0); doc >= 0; doc = union.nextSetBit(doc + 1)) {
+            result.insertAt(result.size, doc);
+        }
+        return result;
+    }
+
+    private void insertAt(int pos, int doc) {
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size * 2);
+        }
+        System.arraycopy(docs, pos, docs, pos + 1, size - pos);
+        docs[pos] = doc;
+        size++;
+    }
+}
@@ -0,0 +1,216 @@
+package LMS;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * ReadConnectionPool class - a fixed number of read-only connections leased out per query.
+ * Under WAL, readers on their own connections neither wait for the writer nor hold it up, so
+ * searches and history reports run alongside desk writes on the main connection.
+ * Connections are opened on first need, each with its own statement cache. A thread that
+ * already holds a lease gets the same connection again (nested reads cannot exhaust the pool).
+ * Counts leases, how long callers waited for a free connection, and how busy the pool is.
+ */
+public class ReadConnectionPool {
+
+    private final DatabaseManager db;
+    private final int size;
+    private final int cacheSize;
+    private final ArrayDeque<StatementCache> idle;
+    private final ArrayList<StatementCache> all;
+    private final ThreadLocal<Lease> held;
+    private final long createdAt;
+
+    private boolean closed;
+    private int inUse;
+    private int peakInUse;
+    private long leases;
+    private long waits;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    private long busyNanos;
+
+    /**
+     * @param db        Opens the read-only connections
+     * @param size      Most connections open at once
+     * @param cacheSize Statement cache size of each connection
+     */
+    public ReadConnectionPool(DatabaseManager db, int size, int cacheSize) {
+        this.db = db;
+        this.size = Math.max(1, size);
+        this.cacheSize = cacheSize;
+        idle = new ArrayDeque<>();
+        all = new ArrayList<>();
+        held = new ThreadLocal<>();
+        createdAt = System.nanoTime();
+    }
+
+    /**
+     * Leases a connection, waiting if all of them are in use; give it back with release()
+     * @return The connection's statement cache (getConnection() for the connection itself)
+     */
+    public StatementCache lease() {
+        Lease current = held.get();
+        if (current != null) {
+            current.depth++;
+            return current.reader;
+        }
+
+        StatementCache reader = take();
+        held.set(new Lease(reader, System.nanoTime()));
+        return reader;
+    }
+
+    public void release(StatementCache reader) {
+        Lease current = held.get();
+        if (current == null || current.reader != reader) {
+            throw new IllegalStateException("Connection was not leased by this thread");
+        }
+        if (--current.depth > 0) {
+            return;
+        }
+
+        held.remove();
+        give(reader, System.nanoTime() - current.since);
+    }
+
+    private synchronized StatementCache take() {
+        if (closed) {
+            throw new IllegalStateException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        boolean waited = false;
+        while (idle.isEmpty() && all.size() >= size) {
+            waited = true;
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a connection", e);
+            }
+            if (closed) {
+                throw new IllegalStateException("Connection pool is closed");
+            }
+        }
+
+        StatementCache reader = idle.poll();
+        if (reader == null) {
+            reader = new StatementCache(db.openReadConnection(), cacheSize);
+            all.add(reader);
+        }
+
+        if (waited) {
+            long waitNanos = System.nanoTime() - start;
+            waits++;
+            totalWaitNanos += waitNanos;
+            maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+        }
+        leases++;
+        inUse++;
+        peakInUse = Math.max(peakInUse, inUse);
+        return reader;
+    }
+
+    private synchronized void give(StatementCache reader, long leasedNanos) {
+        inUse--;
+        busyNanos += leasedNanos;
+        if (closed) {
+            closeQuietly(reader);
+        } else {
+            idle.push(reader); // most recently used first: its pages are still cached
+            notify();
+        }
+    }
+
+    /**
+     * Closes the idle connections now and the leased ones when they come back
+     */
+    public synchronized void close() {
+        closed = true;
+        for (StatementCache reader : idle) {
+            closeQuietly(reader);
+        }
+        idle.clear();
+        notifyAll();
+    }
+
+    private static void closeQuietly(StatementCache reader) {
+        reader.close();
+        try {
+            reader.getConnection().close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Getter Methods
+    public int getSize() {
+        return size;
+    }
+
+    public synchronized int getOpenCount() {
+        return closed ? inUse : all.size();
+    }
+
+    public synchronized int getInUse() {
+        return inUse;
+    }
+
+    public synchronized int getPeakInUse() {
+        return peakInUse;
+    }
+
+    public synchronized long getLeaseCount() {
+        return leases;
+    }
+
+    /**
+     * @return How many leases had to wait for a connection to come back
+     */
+    public synchronized long getWaitCount() {
+        return waits;
+    }
+
+    /**
+     * @return Average wait over all leases, including those that did not wait
+     */
+    public synchronized double getAverageWaitMillis() {
+        return leases == 0 ? 0 : totalWaitNanos / 1_000_000.0 / leases;
+    }
+
+    public synchronized double getMaxWaitMillis() {
+        return maxWaitNanos / 1_000_000.0;
+    }
+
+    /**
+     * @return Share of the pool's connection time spent leased since it was created (0 to 1)
+     */
+    public synchronized double getUtilization() {
+        long elapsed = System.nanoTime() - createdAt;
+        return elapsed <= 0 ? 0 : Math.min(1, (double) busyNanos / ((double) elapsed * size));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Read pool: %d/%d connections open, %d leases, %d waited (%.2f ms avg, %.2f ms max), " +
+                        "peak %d in use, %.1f%% utilization",
+                all.size(), size, leases, waits, getAverageWaitMillis(), getMaxWaitMillis(),
+                peakInUse, getUtilization() * 100);
+    }
+
+    /**
+     * The connection a thread holds, and how many nested reads are using it
+     */
+    private static class Lease {
+        private final StatementCache reader;
+        private final long since;
+        private int depth = 1;
+
+        private Lease(StatementCache reader, long since) {
+            this.reader = reader;
+            this.since = since;
+        }
+    }
+}
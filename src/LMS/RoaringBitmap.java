@@ -0,0 +1,308 @@
+package LMS;
+
+import java.util.Arrays;
+
+/**
+ * RoaringBitmap class - compressed set of non-negative ints, after the Roaring bitmap layout.
+ * Values are grouped by their upper 16 bits into chunks of 65,536. A chunk holding up to
+ * 4,096 values stores them as a sorted char array (2 bytes each); a fuller chunk switches to
+ * a plain 65,536-bit bitmap (8 KB), which is never larger than the array would be.
+ * Chunks are found by binary search on their keys, so membership tests stay cheap for
+ * millions of values.
+ */
+public class RoaringBitmap {
+
+    // An array chunk larger than this would take more room than a bitmap chunk
+    private static final int ARRAY_LIMIT = 4096;
+
+    private char[] keys;
+    private Chunk[] chunks;
+    private int chunkCount;
+
+    public RoaringBitmap() {
+        keys = new char[4];
+        chunks = new Chunk[4];
+        chunkCount = 0;
+    }
+
+    /**
+     * Adds a value
+     * @param x A non-negative int
+     * @return true if it was not present
+     */
+    public boolean add(int x) {
+        char high = (char) (x >>> 16);
+        int i = indexOf(high);
+
+        if (i < 0) {
+            i = -i - 1;
+            if (chunkCount == keys.length) {
+                keys = Arrays.copyOf(keys, chunkCount * 2);
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            }
+            System.arraycopy(keys, i, keys, i + 1, chunkCount - i);
+            System.arraycopy(chunks, i, chunks, i + 1, chunkCount - i);
+            keys[i] = high;
+            chunks[i] = new ArrayChunk();
+            chunkCount++;
+        }
+
+        Chunk chunk = chunks[i];
+        int before = chunk.cardinality();
+        chunks[i] = chunk.add((char) x);
+        return chunks[i].cardinality() > before;
+    }
+
+    /**
+     * Removes a value
+     * @param x A non-negative int
+     * @return true if it was present
+     */
+    public boolean remove(int x) {
+        int i = indexOf((char) (x >>> 16));
+        if (i < 0) {
+            return false;
+        }
+
+        Chunk chunk = chunks[i];
+        int before = chunk.cardinality();
+        chunks[i] = chunk.remove((char) x);
+
+        if (chunks[i].cardinality() == 0) {
+            System.arraycopy(keys, i + 1, keys, i, chunkCount - i - 1);
+            System.arraycopy(chunks, i + 1, chunks, i, chunkCount - i - 1);
+            chunkCount--;
+            chunks[chunkCount] = null;
+            return true;
+        }
+        return chunks[i].cardinality() < before;
+    }
+
+    public boolean contains(int x) {
+        int i = indexOf((char) (x >>> 16));
+        return i >= 0 && chunks[i].contains((char) x);
+    }
+
+    /**
+     * @return The number of values in the set
+     */
+    public int cardinality() {
+        int total = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            total += chunks[i].cardinality();
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return chunkCount == 0;
+    }
+
+    public void clear() {
+        keys = new char[4];
+        chunks = new Chunk[4];
+        chunkCount = 0;
+    }
+
+    /**
+     * Keeps the documents of a posting list that are in this set
+     * @param list Sorted document numbers
+     * @return A new list holding the documents present in both
+     */
+    public PostingList and(PostingList list) {
+        PostingList result = new PostingList();
+        int currentHigh = -1;
+        Chunk chunk = null;
+
+        for (int j = 0; j < list.size(); j++) {
+            int doc = list.get(j);
+            int high = doc >>> 16;
+
+            // The list is sorted, so each chunk is looked up once
+            if (high != currentHigh) {
+                currentHigh = high;
+                int i = indexOf((char) high);
+                chunk = i >= 0 ? chunks[i] : null;
+            }
+            if (chunk != null && chunk.contains((char) doc)) {
+                result.add(doc);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return Every value in increasing order
+     */
+    public PostingList toPostingList() {
+        PostingList result = new PostingList();
+        for (int i = 0; i < chunkCount; i++) {
+            chunks[i].appendTo(result, keys[i] << 16);
+        }
+        return result;
+    }
+
+    /**
+     * @return Approximate memory used by the chunks, in bytes
+     */
+    public long sizeInBytes() {
+        long total = (long) keys.length * 2;
+        for (int i = 0; i < chunkCount; i++) {
+            total += chunks[i].sizeInBytes();
+        }
+        return total;
+    }
+
+    private int indexOf(char high) {
+        return Arrays.binarySearch(keys, 0, chunkCount, high);
+    }
+
+    /**
+     * One chunk of 65,536 values; add and remove return the chunk to keep, which may be
+     * the other representation
+     */
+    private interface Chunk {
+        Chunk add(char low);
+
+        Chunk remove(char low);
+
+        boolean contains(char low);
+
+        int cardinality();
+
+        void appendTo(PostingList list, int base);
+
+        long sizeInBytes();
+    }
+
+    private static class ArrayChunk implements Chunk {
+        char[] values = new char[4];
+        int size;
+
+        @Override
+        public Chunk add(char low) {
+            int pos = Arrays.binarySearch(values, 0, size, low);
+            if (pos >= 0) {
+                return this;
+            }
+            if (size == ARRAY_LIMIT) {
+                BitmapChunk bitmap = new BitmapChunk();
+                for (int i = 0; i < size; i++) {
+                    bitmap.add(values[i]);
+                }
+                return bitmap.add(low);
+            }
+
+            pos = -pos - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(size * 2, ARRAY_LIMIT));
+            }
+            System.arraycopy(values, pos, values, pos + 1, size - pos);
+            values[pos] = low;
+            size++;
+            return this;
+        }
+
+        @Override
+        public Chunk remove(char low) {
+            int pos = Arrays.binarySearch(values, 0, size, low);
+            if (pos >= 0) {
+                System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+                size--;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, size, low) >= 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return size;
+        }
+
+        @Override
+        public void appendTo(PostingList list, int base) {
+            for (int i = 0; i < size; i++) {
+                list.add(base | values[i]);
+            }
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return (long) values.length * 2;
+        }
+    }
+
+    private static class BitmapChunk implements Chunk {
+        final long[] words = new long[1024];
+        int cardinality;
+
+        @Override
+        public Chunk add(char low) {
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                words[low >>> 6] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        public Chunk remove(char low) {
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) != 0) {
+                words[low >>> 6] &= ~bit;
+                cardinality--;
+            }
+
+            if (cardinality <= ARRAY_LIMIT / 2) {
+                // Back to an array once it is clearly smaller, so add/remove at the limit do not flip-flop
+                ArrayChunk array = new ArrayChunk();
+                appendTo(array);
+                return array;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public void appendTo(PostingList list, int base) {
+            for (int w = 0; w < words.length; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    list.add(base | (w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        void appendTo(ArrayChunk array) {
+            array.values = new char[Math.max(4, cardinality)];
+            for (int w = 0; w < words.length; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    array.values[array.size++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return (long) words.length * 8;
+        }
+    }
+}
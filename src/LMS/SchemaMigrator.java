@@ -0,0 +1,127 @@
+package LMS;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+
+/**
+ * SchemaMigrator class - brings a database file up to the current schema one numbered step at a time.
+ * The schema_version table lists the steps already applied, so an existing library.db is upgraded
+ * in place and a new one is built by the same steps. Each step runs in its own transaction together
+ * with its schema_version row: a failed step leaves the file at the previous version.
+ */
+public class SchemaMigrator {
+
+    /**
+     * The statements of one schema change
+     */
+    public interface Step {
+        void apply(Statement stmt) throws SQLException;
+    }
+
+    private static class Migration {
+        private final int version;
+        private final String description;
+        private final Step step;
+
+        private Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    private final ArrayList<Migration> migrations = new ArrayList<>();
+
+    /**
+     * Adds the next step; versions must be added in increasing order and never renumbered
+     * @param version     Schema version after this step
+     * @param description Recorded in schema_version
+     * @param step        The schema change
+     * @return This migrator, to chain further steps
+     */
+    public SchemaMigrator add(int version, String description, Step step) {
+        if (version <= getLatestVersion()) {
+            throw new IllegalArgumentException("Schema version " + version + " is out of order");
+        }
+        migrations.add(new Migration(version, description, step));
+        return this;
+    }
+
+    /**
+     * Applies the steps newer than the database's schema version
+     * @param c A read-write connection in autocommit mode
+     * @return The number of steps applied
+     */
+    public int migrate(Connection c) throws SQLException {
+        try (Statement stmt = c.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS schema_version (
+                    version INTEGER PRIMARY KEY,
+                    description TEXT NOT NULL,
+                    appliedAt INTEGER NOT NULL
+                )
+            """);
+        }
+
+        int current = getVersion(c);
+        if (current > getLatestVersion()) {
+            throw new IllegalStateException("Database schema version " + current
+                    + " is newer than this program supports (" + getLatestVersion() + ")");
+        }
+
+        int applied = 0;
+        for (Migration m : migrations) {
+            if (m.version > current) {
+                apply(c, m);
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    private void apply(Connection c, Migration m) throws SQLException {
+        c.setAutoCommit(false);
+        try (Statement stmt = c.createStatement();
+             PreparedStatement ps = c.prepareStatement(
+                     "INSERT INTO schema_version(version, description, appliedAt) VALUES (?, ?, ?)")) {
+
+            m.step.apply(stmt);
+
+            ps.setInt(1, m.version);
+            ps.setString(2, m.description);
+            ps.setLong(3, System.currentTimeMillis());
+            ps.executeUpdate();
+
+            c.commit();
+            System.out.println("Database schema upgraded to version " + m.version + " (" + m.description + ").");
+
+        } catch (SQLException e) {
+            c.rollback();
+            throw new SQLException("Schema migration " + m.version + " (" + m.description + ") failed", e);
+        } finally {
+            c.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * @param c Any connection to the database
+     * @return The schema version of the database (0 before the first migration)
+     */
+    public static int getVersion(Connection c) throws SQLException {
+        try (Statement stmt = c.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT IFNULL(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * @return The version the database has after migrate()
+     */
+    public int getLatestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version;
+    }
+}
@@ -0,0 +1,152 @@
+package LMS;
+
+import java.util.*;
+
+/**
+ * SearchCache class - bounded LRU cache of search results.
+ * Maps a normalized query (field plus lower-cased text) to the sorted document numbers
+ * of its matches in BookSearchIndex, so repeated searches skip the index entirely.
+ * Invalidation is precise: when a book is added, changed or removed, only the entries
+ * whose answer flips for that book (its field used to contain the query and no longer
+ * does, or the other way round) are dropped. The issued status is not part of any
+ * answer, so issuing or returning a book never invalidates anything.
+ */
+public class SearchCache {
+
+    private int capacity;
+    private LinkedHashMap<String, Entry> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * @param capacity Maximum number of cached queries (0 disables the cache)
+     */
+    public SearchCache(int capacity) {
+        this.capacity = capacity;
+        // Access order turns the map into an LRU list: the eldest entry is the least recently used
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > SearchCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Looks up a query and counts the hit or miss
+     * @param field BookSearchIndex.TITLE, SUBJECT or AUTHOR
+     * @param query The text searched for
+     * @return The matching document numbers in catalog order, or null if not cached
+     */
+    int[] get(int field, String query) {
+        Entry entry = entries.get(key(field, query));
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.docs;
+    }
+
+    /**
+     * Stores the complete answer to a query
+     * @param field BookSearchIndex.TITLE, SUBJECT or AUTHOR
+     * @param query The text searched for
+     * @param docs  Every matching document number, in catalog order
+     */
+    void put(int field, String query, int[] docs) {
+        if (capacity <= 0) {
+            return;
+        }
+        entries.put(key(field, query), new Entry(field, query.toLowerCase(), docs));
+    }
+
+    /**
+     * Drops the entries whose answer changes because of one book
+     * @param oldValues The book's lower-cased title, subject and author before the change
+     *                  (null if the book was just added)
+     * @param newValues The values after the change (null if the book was removed)
+     */
+    void bookChanged(String[] oldValues, String[] newValues) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (matches(oldValues, entry) != matches(newValues, entry)) {
+                it.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * Empties the cache (the statistics are kept)
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHitCount() {
+        return hits;
+    }
+
+    public long getMissCount() {
+        return misses;
+    }
+
+    public long getEvictionCount() {
+        return evictions;
+    }
+
+    public long getInvalidationCount() {
+        return invalidations;
+    }
+
+    /**
+     * @return Hits as a fraction of all lookups (0 before the first lookup)
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Search cache: %d/%d entries, %d hits, %d misses (%.1f%% hit rate), %d evicted, %d invalidated",
+                entries.size(), capacity, hits, misses, getHitRate() * 100, evictions, invalidations);
+    }
+
+    private static String key(int field, String query) {
+        return field + ":" + query.toLowerCase();
+    }
+
+    private static boolean matches(String[] values, Entry entry) {
+        return values != null && values[entry.field] != null && values[entry.field].contains(entry.query);
+    }
+
+    private static class Entry {
+        final int field;
+        final String query;
+        final int[] docs;
+
+        Entry(int field, String query, int[] docs) {
+            this.field = field;
+            this.query = query;
+            this.docs = docs;
+        }
+    }
+}
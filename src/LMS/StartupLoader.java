@@ -0,0 +1,279 @@
+package LMS;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * StartupLoader class - fills the library from the database using several threads.
+ * Books, clerks and borrowers do not depend on each other, so each table is read at the
+ * same time on its own read-only connection while the calling thread reads the librarian.
+ * After all of them are in, loans (split into id ranges) and hold requests are read in
+ * parallel and their ids resolved against fixed id maps.
+ * Worker threads only read rows and build objects; everything is handed to Library on the
+ * calling thread, in database order, so the result is the same as a sequential load.
+ */
+class StartupLoader {
+
+    private final Library lib;
+    private final DatabaseManager db;
+    private final int threads;
+
+    // Id maps for resolving loans and holds; filled before the second phase, read-only during it
+    private final IntObjectMap<Book> books;
+    private final IntObjectMap<Borrower> borrowers;
+    private final IntObjectMap<Staff> staff;
+
+    // Set by the hold request task; read after joining it
+    private int holdRows;
+
+    StartupLoader(Library lib, DatabaseManager db, int threads) {
+        this.lib = lib;
+        this.db = db;
+        this.threads = Math.max(2, threads);
+        books = new IntObjectMap<>();
+        borrowers = new IntObjectMap<>();
+        staff = new IntObjectMap<>();
+    }
+
+    void load() {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            loadPeopleAndBooks(pool);
+            loadLoansAndHolds(pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // ==================== Phase 1: independent tables ====================
+
+    private void loadPeopleAndBooks(ExecutorService pool) {
+        StartupProfiler profiler = StartupProfiler.getInstance();
+        StartupProfiler.Phase phase = profiler.begin("read books, clerks, borrowers");
+
+        // Loaded rows carry their ids, which only advance the atomic id allocators, so books
+        // and persons can be built on different threads; all clerks (and so the desk
+        // counter) stay on one task
+        Future<ArrayList<Book>> bookTask = pool.submit(() -> read(c -> {
+            ArrayList<Book> list = new ArrayList<>();
+            db.forEachBook(c, row -> list.add(
+                    new Book(row.getInt(1), row.getString(2), row.getString(4), row.getString(3), row.getBoolean(5))));
+            return list;
+        }));
+
+        Future<ArrayList<Clerk>> clerkTask = pool.submit(() -> read(c -> {
+            ArrayList<Clerk> list = new ArrayList<>();
+            db.forEachClerk(c, row -> list.add(
+                    new Clerk(row.getInt(1), row.getString(2), row.getString(3), row.getInt(4), row.getDouble(5), row.getInt(6))));
+            return list;
+        }));
+
+        Future<ArrayList<Borrower>> borrowerTask = pool.submit(() -> read(c -> {
+            ArrayList<Borrower> list = new ArrayList<>();
+            db.forEachBorrower(c, row -> list.add(
+                    new Borrower(row.getInt(1), row.getString(2), row.getString(3), row.getInt(4))));
+            return list;
+        }));
+
+        Object[] libData = db.loadLibrarian();
+
+        // Barrier: everything below runs once all three tables are read
+        ArrayList<Book> bookList = join(bookTask);
+        ArrayList<Clerk> clerkList = join(clerkTask);
+        ArrayList<Borrower> borrowerList = join(borrowerTask);
+        phase.end(bookList.size() + clerkList.size() + borrowerList.size() + (libData != null ? 1 : 0));
+
+        phase = profiler.begin("attach books and persons");
+
+        int maxBookId = 0;
+        for (Book b : bookList) {
+            lib.addBookinLibrary(b);
+            if (b.getID() > maxBookId) maxBookId = b.getID();
+        }
+        Book.setIDCount(maxBookId);
+
+        if (bookList.isEmpty()) {
+            System.out.println("No Books Found in Library");
+        }
+
+        int maxDeskNo = 0;
+        for (Clerk c : clerkList) {
+            lib.addClerk(c);
+            if (c.getDeskNo() > maxDeskNo) maxDeskNo = c.getDeskNo();
+        }
+        Clerk.setDeskCount(maxDeskNo);
+
+        if (clerkList.isEmpty()) {
+            System.out.println("No clerks Found in Library");
+        }
+
+        if (libData != null) {
+            Library.librarian = new Librarian((Integer) libData[0], (String) libData[1], (String) libData[3],
+                    (Integer) libData[4], (Double) libData[5], (Integer) libData[6]);
+        } else {
+            System.out.println("No Librarian Found in Library");
+        }
+
+        for (Borrower b : borrowerList) {
+            lib.addBorrower(b);
+        }
+
+        if (borrowerList.isEmpty()) {
+            System.out.println("No Borrower Found in Library");
+        }
+
+        Person.setIDCount(db.getMaxPersonId());
+
+        phase.end();
+
+        // The first entry with an id wins, as it does for Library's find methods
+        for (Book b : lib.getBooks()) {
+            books.putIfAbsent(b.getID(), b);
+        }
+        if (Library.librarian != null) {
+            staff.put(Library.librarian.getID(), Library.librarian);
+        }
+        for (Person p : Library.persons) {
+            if (p instanceof Borrower) {
+                borrowers.putIfAbsent(p.getID(), (Borrower) p);
+            }
+            if (p instanceof Staff) {
+                staff.putIfAbsent(p.getID(), (Staff) p);
+            }
+        }
+    }
+
+    // ==================== Phase 2: loans and holds ====================
+
+    private void loadLoansAndHolds(ExecutorService pool) {
+        StartupProfiler.Phase phase = StartupProfiler.getInstance().begin("loans and hold requests");
+        int loanCount = 0;
+
+        // Loans get every thread but one, each reading a slice of the id range
+        ArrayList<Future<ArrayList<Loan>>> loanTasks = new ArrayList<>();
+        int[] range = db.getLoanIdRange();
+
+        if (range != null) {
+            int slices = threads - 1;
+            long span = (long) range[1] - range[0] + 1;
+
+            for (int i = 0; i < slices; i++) {
+                int from = (int) (range[0] + span * i / slices);
+                int to = (int) (range[0] + span * (i + 1) / slices - 1);
+                if (from <= to) {
+                    loanTasks.add(pool.submit(() -> read(c -> readLoans(c, from, to))));
+                }
+            }
+        }
+
+        Future<ArrayList<HoldRequest>> holdTask = pool.submit(() -> read(this::readHolds));
+
+        for (Future<ArrayList<Loan>> task : loanTasks) {
+            for (Loan loan : join(task)) {
+                lib.addLoan(loan);
+                loanCount++;
+
+                // If book is not returned, add to borrower's borrowed books
+                if (loan.getReceiver() == null) {
+                    loan.getBorrower().addBorrowedBook(loan);
+                }
+            }
+        }
+
+        if (range == null) {
+            System.out.println("No Books Issued Yet!");
+        }
+
+        ArrayList<HoldRequest> holds = join(holdTask);
+        for (HoldRequest hr : holds) {
+            hr.getBook().getHoldRequestOperations().addHoldRequest(hr);
+            hr.getBorrower().addHoldRequest(hr);
+        }
+
+        if (holdRows == 0) {
+            System.out.println("No Books on Hold Yet!");
+        }
+
+        phase.end(loanCount + holdRows);
+    }
+
+    private ArrayList<Loan> readLoans(Connection c, int from, int to) {
+        ArrayList<Loan> list = new ArrayList<>();
+
+        db.forEachLoan(c, from, to, lib.lazy_loan_history, row -> {
+            Borrower borrower = borrowers.get(row.getInt(2));
+            Book book = books.get(row.getInt(3));
+            Staff issuer = staff.get(row.getInt(4));
+
+            // Only create loan if required objects exist
+            if (borrower == null || book == null || issuer == null) {
+                return;
+            }
+
+            long issDateLong = row.getLong(5);
+            long retDateLong = row.getLong(7);
+            Staff receiver = row.isNull(6) ? null : staff.get(row.getInt(6));
+
+            Loan loan = new Loan(borrower, book, issuer, receiver,
+                    issDateLong != 0 ? new Date(issDateLong) : null,
+                    retDateLong != 0 ? new Date(retDateLong) : null,
+                    row.getBoolean(8));
+            loan.setLoanId(row.getInt(1));
+            list.add(loan);
+        });
+
+        return list;
+    }
+
+    private ArrayList<HoldRequest> readHolds(Connection c) {
+        ArrayList<HoldRequest> list = new ArrayList<>();
+
+        int count = db.forEachHoldRequest(c, row -> {
+            Borrower borrower = borrowers.get(row.getInt(3));
+            Book book = books.get(row.getInt(2));
+            long reqDateLong = row.getLong(4);
+
+            if (borrower != null && book != null && reqDateLong != 0) {
+                list.add(new HoldRequest(borrower, book, new Date(reqDateLong)));
+            }
+        });
+
+        holdRows = count;
+        return list;
+    }
+
+    // ==================== Helpers ====================
+
+    private interface ConnectionTask<T> {
+        T run(Connection c) throws SQLException;
+    }
+
+    /**
+     * Runs a task on a fresh read-only connection and closes it afterwards
+     */
+    private <T> T read(ConnectionTask<T> task) throws SQLException {
+        try (Connection c = db.openReadConnection()) {
+            return task.run(c);
+        }
+    }
+
+    private static <T> T join(Future<T> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Loading was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
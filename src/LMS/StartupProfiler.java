@@ -0,0 +1,226 @@
+package LMS;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * StartupProfiler class - records how long each startup phase takes.
+ * For every phase it keeps the wall time, the rows read, and the bytes allocated by the
+ * calling thread (where the JVM can tell). Phases may nest. Recording is off until
+ * setEnabled(true), and begin() then returns a phase that records nothing.
+ * The result can be printed as a table or written as JSON.
+ */
+public class StartupProfiler {
+
+    private static StartupProfiler obj;
+
+    private final ArrayList<Phase> phases;
+    private boolean enabled;
+    private int depth;
+
+    public static StartupProfiler getInstance() {
+        if (obj == null) {
+            obj = new StartupProfiler();
+        }
+        return obj;
+    }
+
+    /**
+     * Resets the singleton instance - useful for testing
+     */
+    public static void resetInstance() {
+        obj = null;
+    }
+
+    private StartupProfiler() {
+        phases = new ArrayList<>();
+    }
+
+    public synchronized void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts timing a phase; phases begun before this one ends are nested inside it
+     * @param name Name shown in the report
+     * @return The phase, to be ended with end()
+     */
+    public synchronized Phase begin(String name) {
+        if (!enabled) {
+            return new Phase(null, name, 0);
+        }
+        Phase p = new Phase(this, name, depth++);
+        phases.add(p);
+        return p;
+    }
+
+    private synchronized void ended() {
+        depth = Math.max(0, depth - 1);
+    }
+
+    public synchronized ArrayList<Phase> getPhases() {
+        return new ArrayList<>(phases);
+    }
+
+    public synchronized void clear() {
+        phases.clear();
+        depth = 0;
+    }
+
+    /**
+     * @return The phases as a table, nested phases indented
+     */
+    public synchronized String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("--------------------------------------------------------------------------\n");
+        sb.append(String.format(Locale.ROOT, "%-36s %12s %10s %12s%n", "Startup Phase", "Time (ms)", "Rows", "Allocated"));
+        sb.append("--------------------------------------------------------------------------\n");
+
+        for (Phase p : phases) {
+            String name = "  ".repeat(p.depth) + p.name;
+            sb.append(String.format(Locale.ROOT, "%-36s %12s %10s %12s%n",
+                    name,
+                    p.isEnded() ? String.format(Locale.ROOT, "%.1f", p.getMillis()) : "(running)",
+                    p.rows > 0 ? String.format(Locale.ROOT, "%,d", p.rows) : "-",
+                    p.allocatedBytes >= 0 ? formatBytes(p.allocatedBytes) : "-"));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return The phases as a JSON array of {name, depth, millis, rows, allocatedBytes}
+     *         (allocatedBytes is -1 where it could not be measured)
+     */
+    public synchronized String toJson() {
+        StringBuilder sb = new StringBuilder("[\n");
+        for (int i = 0; i < phases.size(); i++) {
+            Phase p = phases.get(i);
+            sb.append(String.format(Locale.ROOT,
+                    "  {\"name\": \"%s\", \"depth\": %d, \"millis\": %.3f, \"rows\": %d, \"allocatedBytes\": %d}",
+                    escape(p.name), p.depth, p.getMillis(), p.rows, p.allocatedBytes));
+            sb.append(i + 1 < phases.size() ? ",\n" : "\n");
+        }
+        return sb.append("]\n").toString();
+    }
+
+    public void writeJson(Path file) throws IOException {
+        Files.write(file, toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        }
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024));
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder();
+        for (char ch : s.toCharArray()) {
+            if (ch == '"' || ch == '\\') {
+                sb.append('\\').append(ch);
+            } else if (ch < 0x20) {
+                sb.append(String.format(Locale.ROOT, "\\u%04x", (int) ch));
+            } else {
+                sb.append(ch);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return Bytes allocated so far by the current thread, or -1 if the JVM does not say
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * One timed phase
+     */
+    public static class Phase {
+        private final StartupProfiler owner;
+        private final String name;
+        private final int depth;
+        private final long startNanos;
+        private final long startAllocated;
+        private long nanos = -1;
+        private long rows;
+        private long allocatedBytes = -1;
+
+        private Phase(StartupProfiler owner, String name, int depth) {
+            this.owner = owner;
+            this.name = name;
+            this.depth = depth;
+            startAllocated = owner != null ? allocatedBytes() : -1;
+            startNanos = System.nanoTime();
+        }
+
+        /**
+         * Ends the phase
+         */
+        public void end() {
+            end(0);
+        }
+
+        /**
+         * Ends the phase
+         * @param rowsRead Rows read during the phase
+         */
+        public void end(long rowsRead) {
+            if (owner == null || nanos >= 0) {
+                return;
+            }
+            nanos = System.nanoTime() - startNanos;
+            rows = rowsRead;
+            if (startAllocated >= 0) {
+                allocatedBytes = allocatedBytes() - startAllocated;
+            }
+            owner.ended();
+        }
+
+        // Getter Methods
+        public String getName() {
+            return name;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public boolean isEnded() {
+            return nanos >= 0;
+        }
+
+        public double getMillis() {
+            return nanos / 1_000_000.0;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+}
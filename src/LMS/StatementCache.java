@@ -0,0 +1,134 @@
+package LMS;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+/**
+ * StatementCache class - bounded LRU cache of prepared statements on one connection.
+ * SQLite compiles a statement when it is prepared; keeping the prepared statement and
+ * only rebinding its parameters skips parsing and planning on every later call.
+ * A statement pushed out of the cache is closed, and close() closes every statement,
+ * which has to happen before the connection itself is closed.
+ * Callers must not close the statements they get, but must close their result sets.
+ */
+public class StatementCache {
+
+    // With one slot, preparing a statement would close the previous one while its result set may still be read
+    private static final int MIN_CAPACITY = 2;
+
+    private final Connection conn;
+    private final int capacity;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param conn     The connection the statements belong to
+     * @param capacity Maximum number of statements kept open
+     */
+    public StatementCache(Connection conn, int capacity) {
+        this.conn = conn;
+        this.capacity = Math.max(MIN_CAPACITY, capacity);
+        // Access order turns the map into an LRU list: the eldest entry is the least recently used
+        statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > StatementCache.this.capacity) {
+                    evictions++;
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the prepared statement for some SQL, preparing it on first use
+     * @param sql The SQL text, which is also the cache key
+     * @return The statement with its parameters cleared
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        return prepare(sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    /**
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS or NO_GENERATED_KEYS
+     */
+    public PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "keys:" + sql : sql;
+
+        PreparedStatement ps = statements.get(key);
+        if (ps != null && !ps.isClosed()) {
+            hits++;
+            ps.clearParameters();
+            return ps;
+        }
+
+        misses++;
+        ps = conn.prepareStatement(sql, autoGeneratedKeys);
+        statements.put(key, ps);
+        return ps;
+    }
+
+    /**
+     * Closes and forgets every statement (the statistics are kept)
+     */
+    public void close() {
+        for (PreparedStatement ps : statements.values()) {
+            closeQuietly(ps);
+        }
+        statements.clear();
+    }
+
+    public Connection getConnection() {
+        return conn;
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHitCount() {
+        return hits;
+    }
+
+    public long getMissCount() {
+        return misses;
+    }
+
+    public long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return Reuses as a fraction of all lookups (0 before the first lookup)
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Statement cache: %d/%d statements, %d reused, %d prepared (%.1f%% reuse), %d evicted",
+                statements.size(), capacity, hits, misses, getHitRate() * 100, evictions);
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            // Nothing left to release
+        }
+    }
+}
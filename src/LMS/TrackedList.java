@@ -0,0 +1,99 @@
+package LMS;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.UnaryOperator;
+
+/**
+ * TrackedList class - ArrayList that counts its changes.
+ * Library keeps id lookup maps next to its book and person lists; comparing the version
+ * with the one seen at the last sync tells whether someone changed the list directly
+ * (add, remove, clear, set, sort, ...) so the maps must be rebuilt.
+ * ArrayList's modCount covers the changes in size only, so replacing an element in place
+ * (set, replaceAll, sort, ListIterator.set, or the same through a subList) is counted here.
+ */
+public class TrackedList<E> extends ArrayList<E> {
+
+    private static final long serialVersionUID = 1L;
+
+    private int replacements;
+
+    /**
+     * @return A counter that changes on every add, remove, clear or replacement
+     */
+    public int version() {
+        return modCount + replacements;
+    }
+
+    // ListIterator.set goes through this method as well
+    @Override
+    public E set(int index, E element) {
+        E old = super.set(index, element);
+        replacements++;
+        return old;
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<E> operator) {
+        super.replaceAll(operator);
+        replacements++;
+    }
+
+    @Override
+    public void sort(Comparator<? super E> c) {
+        super.sort(c);
+        replacements++;
+    }
+
+    // ArrayList's own sub list writes to the backing array without calling set
+    @Override
+    public List<E> subList(int fromIndex, int toIndex) {
+        return new Slice(super.subList(fromIndex, toIndex));
+    }
+
+    /**
+     * A sub list that counts its replacements on the whole list
+     */
+    private class Slice extends AbstractList<E> implements RandomAccess {
+        private final List<E> view;
+
+        private Slice(List<E> view) {
+            this.view = view;
+        }
+
+        @Override
+        public E get(int index) {
+            return view.get(index);
+        }
+
+        @Override
+        public int size() {
+            return view.size();
+        }
+
+        @Override
+        public E set(int index, E element) {
+            E old = view.set(index, element);
+            replacements++;
+            return old;
+        }
+
+        @Override
+        public void add(int index, E element) {
+            view.add(index, element);
+        }
+
+        @Override
+        public E remove(int index) {
+            return view.remove(index);
+        }
+
+        @Override
+        public void clear() {
+            view.clear();
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package LMS;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WriteBehindQueue class - applies database writes on a background thread, many per commit.
+ * In autocommit mode every statement is its own transaction and waits for its own sync to
+ * disk. Writes handed to this queue are instead collected by a single writer thread and
+ * committed together, once batchSize writes are waiting or the oldest one has waited
+ * batchMillis. Writes are applied in the order they were submitted.
+ * flush() waits until everything submitted so far is committed; close() does the same and
+ * stops the writer thread.
+ * A write that fails is kept rather than dropped: flush() reports it by throwing, and
+ * retryFailed() queues it again. close() tries the kept writes once more and throws if they
+ * still fail.
+ */
+public class WriteBehindQueue {
+
+    private final DatabaseManager db;
+    private final int batchMillis;
+    private final int batchSize;
+    private final ArrayDeque<Pending> queue;
+    private final ArrayList<Pending> failedWrites;
+    private final Thread writer;
+
+    private boolean closed;
+    private boolean running;
+    private int flushWaiters;
+    private long submitted;
+    private long done;
+    private long applied;
+    private int unreported;
+    private RuntimeException unreportedError;
+
+    private long batches;
+    private long failed;
+    private int maxDepth;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
+    /**
+     * @param db          The database the writes go to
+     * @param batchMillis Longest time a write waits for others to share its commit
+     * @param batchSize   Most writes committed together
+     */
+    public WriteBehindQueue(DatabaseManager db, int batchMillis, int batchSize) {
+        this.db = db;
+        this.batchMillis = Math.max(0, batchMillis);
+        this.batchSize = Math.max(1, batchSize);
+        queue = new ArrayDeque<>();
+        failedWrites = new ArrayList<>();
+        running = true;
+
+        writer = new Thread(this::run, "write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a write
+     * @param op The write, run later on the writer thread
+     * @return false if the queue is closed and the write was not taken
+     */
+    public synchronized boolean submit(Runnable op) {
+        if (closed) {
+            return false;
+        }
+        queue.add(new Pending(op, System.nanoTime()));
+        submitted++;
+        maxDepth = Math.max(maxDepth, queue.size());
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Waits until every write submitted before this call has been run.
+     * Must not be called while holding the DatabaseManager lock, which the writer needs.
+     * @throws IllegalStateException if writes failed since the last flush; they are kept for
+     *         retryFailed(), and the first failure is the cause
+     */
+    public synchronized void flush() {
+        long target = submitted;
+        flushWaiters++;
+        notifyAll(); // the writer stops waiting for a fuller batch
+        try {
+            while (done < target && running) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            flushWaiters--;
+        }
+
+        if (unreported > 0) {
+            IllegalStateException e = new IllegalStateException(
+                    unreported + " queued write(s) failed and were kept for retry", unreportedError);
+            unreported = 0;
+            unreportedError = null;
+            throw e;
+        }
+    }
+
+    /**
+     * Queues the kept failed writes again, in their original order
+     * @return The number of writes queued
+     */
+    public synchronized int retryFailed() {
+        if (closed) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        for (Pending p : failedWrites) {
+            queue.add(new Pending(p.op, now));
+        }
+        int count = failedWrites.size();
+        submitted += count;
+        failedWrites.clear();
+        notifyAll();
+        return count;
+    }
+
+    /**
+     * Forgets the kept failed writes
+     * @return The number of writes dropped
+     */
+    public synchronized int discardFailed() {
+        int count = failedWrites.size();
+        failedWrites.clear();
+        return count;
+    }
+
+    /**
+     * Commits everything still queued, then stops the writer thread. The writes kept after
+     * failing are run once more on the calling thread. Writes submitted afterwards are refused.
+     * Must not be called while holding the DatabaseManager lock.
+     * @throws IllegalStateException if kept writes still fail; they are lost
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        ArrayList<Runnable> retry;
+        synchronized (this) {
+            retry = new ArrayList<>(failedWrites.size());
+            for (Pending p : failedWrites) {
+                retry.add(p.op);
+            }
+            failedWrites.clear();
+        }
+        if (retry.isEmpty()) {
+            return;
+        }
+
+        RuntimeException[] errors = db.runBatch(retry);
+        int lost = 0;
+        RuntimeException first = null;
+        for (RuntimeException e : errors) {
+            if (e != null) {
+                lost++;
+                first = first == null ? e : first;
+            }
+        }
+        synchronized (this) {
+            applied += retry.size() - lost;
+            failed += lost;
+        }
+        if (lost > 0) {
+            throw new IllegalStateException(lost + " queued write(s) could not be committed", first);
+        }
+    }
+
+    private void run() {
+        try {
+            ArrayList<Pending> batch;
+            while ((batch = nextBatch()) != null) {
+                ArrayList<Runnable> ops = new ArrayList<>(batch.size());
+                for (Pending p : batch) {
+                    ops.add(p.op);
+                }
+                batchDone(batch, db.runBatch(ops));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (this) {
+                running = false;
+                closed = true;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits for the next batch: up to batchSize writes, taken once the batch is full, the oldest
+     * write has waited batchMillis, someone is flushing, or the queue is closing
+     * @return The batch, or null once the queue is closed and empty
+     */
+    private synchronized ArrayList<Pending> nextBatch() throws InterruptedException {
+        while (queue.isEmpty()) {
+            if (closed) {
+                return null;
+            }
+            wait();
+        }
+
+        long deadline = queue.peek().queuedAt + TimeUnit.MILLISECONDS.toNanos(batchMillis);
+        while (queue.size() < batchSize && !closed && flushWaiters == 0) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) {
+                break;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, left);
+        }
+
+        ArrayList<Pending> batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+        while (!queue.isEmpty() && batch.size() < batchSize) {
+            batch.add(queue.poll());
+        }
+        return batch;
+    }
+
+    private synchronized void batchDone(ArrayList<Pending> batch, RuntimeException[] errors) {
+        long now = System.nanoTime();
+        for (int i = 0; i < batch.size(); i++) {
+            Pending p = batch.get(i);
+            long latency = now - p.queuedAt;
+            totalLatencyNanos += latency;
+            maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+
+            if (errors[i] == null) {
+                applied++;
+            } else {
+                failed++;
+                failedWrites.add(p);
+                if (unreported++ == 0) {
+                    unreportedError = errors[i];
+                }
+            }
+        }
+        done += batch.size();
+        batches++;
+        notifyAll();
+    }
+
+    // Getter Methods
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    public synchronized int getMaxQueueDepth() {
+        return maxDepth;
+    }
+
+    public synchronized long getAppliedCount() {
+        return applied;
+    }
+
+    public synchronized long getFailedCount() {
+        return failed;
+    }
+
+    /**
+     * @return Failed writes kept for retryFailed()
+     */
+    public synchronized int getKeptFailureCount() {
+        return failedWrites.size();
+    }
+
+    public synchronized long getBatchCount() {
+        return batches;
+    }
+
+    /**
+     * @return Writes per commit, on average
+     */
+    public synchronized double getAverageBatchSize() {
+        return batches == 0 ? 0 : (double) done / batches;
+    }
+
+    /**
+     * @return Average time from a write being submitted to it being committed
+     */
+    public synchronized double getAverageCommitLatencyMillis() {
+        return done == 0 ? 0 : totalLatencyNanos / 1_000_000.0 / done;
+    }
+
+    public synchronized double getMaxCommitLatencyMillis() {
+        return maxLatencyNanos / 1_000_000.0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Write-behind: %d writes in %d commits (%.1f per commit), %d queued (max %d), " +
+                        "commit latency %.1f ms avg / %.1f ms max, %d failed (%d kept for retry)",
+                applied, batches, getAverageBatchSize(), queue.size(), maxDepth,
+                getAverageCommitLatencyMillis(), getMaxCommitLatencyMillis(), failed, failedWrites.size());
+    }
+
+    /**
+     * A queued write and when it was submitted
+     */
+    private static class Pending {
+        private final Runnable op;
+        private final long queuedAt;
+
+        private Pending(Runnable op, long queuedAt) {
+            this.op = op;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.util.ArrayList;
  * Library State:
  * - EC6 (Has matches): Books that match
  * - EC7 (No matches): No matching books
+ * - EC8 (Changed): Books edited, replaced or removed after being added
  */
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 public class ECT_Tesi {
@@ -108,6 +109,27 @@ public class ECT_Tesi {
         assertEquals(1, result.size());
     }
 
+    @Test
+    @Order(8)
+    @DisplayName("ECT-8: Books edited or replaced after being added are searched as they are now")
+    public void testChangedLibraryState() throws Exception {
+        library.addBookinLibrary(book1);
+        library.addBookinLibrary(book2);
+
+        java.lang.reflect.Field title = Book.class.getDeclaredField("title");
+        title.setAccessible(true);
+        title.set(book1, "Refactoring");
+        assertNull(library.searchForBooks("1", "Clean"), "The old title should no longer match");
+        assertEquals(1, library.searchForBooks("1", "Refactoring").size());
+
+        library.getBooks().set(1, book3);
+        assertNull(library.searchForBooks("1", "Design"), "A replaced book should no longer match");
+        assertEquals(book3, library.searchForBooks("3", "Cormen").get(0));
+
+        library.getBooks().remove(book1);
+        assertNull(library.searchForBooks("2", "Software"), "A removed book should no longer match");
+    }
+
     @AfterEach
     public void tearDown() {
         library = null;
@@ -0,0 +1,163 @@
+package Tests.Benchmark;
+
+import LMS.DatabaseProfile;
+
+import java.io.File;
+import java.sql.*;
+import java.util.Random;
+
+/**
+ * Micro benchmark: the SQLite tuning profiles on a desk-like load.
+ *
+ * Run with: java -cp out:sqlite-jdbc.jar Tests.Benchmark.DatabaseProfileBenchmark [books] [file]
+ * Every profile gets a fresh database file (database/profile-benchmark.db unless given), so
+ * the real library.db is never touched. All profiles are run once untimed to warm up the
+ * JIT, then once more for the figures. Measured per profile:
+ *  - desk autocommit:   one issue (book update + loan insert) as two autocommit statements
+ *  - desk unit of work: the same two statements in one transaction
+ *  - point read:        a book looked up by id
+ *  - full scan:         every book read
+ */
+public class DatabaseProfileBenchmark {
+
+    private static final int DESK_ROUNDS = 2_000;
+    private static final int READ_ROUNDS = 20_000;
+    private static final int SCAN_ROUNDS = 20;
+
+    public static void main(String[] args) throws Exception {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        String file = args.length > 1 ? args[1] : "database/profile-benchmark.db";
+        Class.forName("org.sqlite.JDBC");
+
+        System.out.printf("%,d books, %,d desk transactions per mode%n%n", books, DESK_ROUNDS);
+        System.out.printf("%-12s %18s %18s %14s %12s%n",
+                "Profile", "Desk autocommit", "Desk unit of work", "Point read", "Full scan");
+
+        for (boolean timed : new boolean[]{false, true}) {
+            for (DatabaseProfile profile : new DatabaseProfile[]{
+                    DatabaseProfile.DURABLE, DatabaseProfile.BALANCED, DatabaseProfile.THROUGHPUT}) {
+                run(profile, books, file, timed);
+            }
+        }
+    }
+
+    private static void run(DatabaseProfile profile, int books, String file, boolean print) throws SQLException {
+        delete(file);
+        try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + file, profile.writeProperties())) {
+            setUp(c, books);
+
+            double autocommit = desk(c, books, false);
+            double unitOfWork = desk(c, books, true);
+            double pointRead = pointRead(c, books);
+            double fullScan = fullScan(c, books);
+
+            if (print) {
+                System.out.printf("%-12s %15.2f ms %15.2f ms %11.1f us %9.1f ms%n",
+                        profile.getName(), autocommit, unitOfWork, pointRead, fullScan);
+            }
+        }
+        delete(file);
+    }
+
+    private static void setUp(Connection c, int books) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.execute("CREATE TABLE Book (id INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT, author TEXT, subject TEXT, isIssued INTEGER)");
+            st.execute("CREATE TABLE Loan (id INTEGER PRIMARY KEY AUTOINCREMENT, borrowerId INTEGER, bookId INTEGER, " +
+                    "issuerId INTEGER, issueDate INTEGER, receiverId INTEGER, returnDate INTEGER, finePaid INTEGER)");
+        }
+
+        c.setAutoCommit(false);
+        try (PreparedStatement ps = c.prepareStatement("INSERT INTO Book(title, author, subject, isIssued) VALUES (?, ?, ?, 0)")) {
+            for (int i = 0; i < books; i++) {
+                ps.setString(1, "Title " + i);
+                ps.setString(2, "Author " + (i % 997));
+                ps.setString(3, "Subject " + (i % 31));
+                ps.executeUpdate();
+            }
+        }
+        c.commit();
+        c.setAutoCommit(true);
+    }
+
+    /**
+     * @return Milliseconds per desk transaction
+     */
+    private static double desk(Connection c, int books, boolean oneTransaction) throws SQLException {
+        Random random = new Random(42);
+        try (PreparedStatement update = c.prepareStatement("UPDATE Book SET isIssued = 1 WHERE id = ?");
+             PreparedStatement insert = c.prepareStatement(
+                     "INSERT INTO Loan(borrowerId, bookId, issuerId, issueDate) VALUES (?, ?, ?, ?)")) {
+
+            long start = System.nanoTime();
+            for (int i = 0; i < DESK_ROUNDS; i++) {
+                int book = 1 + random.nextInt(books);
+                if (oneTransaction) {
+                    c.setAutoCommit(false);
+                }
+                update.setInt(1, book);
+                update.executeUpdate();
+                insert.setInt(1, 4);
+                insert.setInt(2, book);
+                insert.setInt(3, 2);
+                insert.setLong(4, System.currentTimeMillis());
+                insert.executeUpdate();
+                if (oneTransaction) {
+                    c.commit();
+                    c.setAutoCommit(true);
+                }
+            }
+            return (System.nanoTime() - start) / 1_000_000.0 / DESK_ROUNDS;
+        }
+    }
+
+    /**
+     * @return Microseconds per lookup
+     */
+    private static double pointRead(Connection c, int books) throws SQLException {
+        Random random = new Random(7);
+        long sink = 0;
+        try (PreparedStatement ps = c.prepareStatement("SELECT title, isIssued FROM Book WHERE id = ?")) {
+            long start = System.nanoTime();
+            for (int i = 0; i < READ_ROUNDS; i++) {
+                ps.setInt(1, 1 + random.nextInt(books));
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        sink += rs.getString(1).length();
+                    }
+                }
+            }
+            double micros = (System.nanoTime() - start) / 1_000.0 / READ_ROUNDS;
+            if (sink == 0) {
+                throw new IllegalStateException("No books were read");
+            }
+            return micros;
+        }
+    }
+
+    /**
+     * @return Milliseconds per scan of the whole table
+     */
+    private static double fullScan(Connection c, int books) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT id, title, author, subject, isIssued FROM Book")) {
+            long start = System.nanoTime();
+            for (int i = 0; i < SCAN_ROUNDS; i++) {
+                int rows = 0;
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                    }
+                }
+                if (rows != books) {
+                    throw new IllegalStateException("Scan read " + rows + " of " + books + " books");
+                }
+            }
+            return (System.nanoTime() - start) / 1_000_000.0 / SCAN_ROUNDS;
+        }
+    }
+
+    private static void delete(String file) {
+        for (String suffix : new String[]{"", "-wal", "-shm", "-journal"}) {
+            new File(file + suffix).delete();
+        }
+    }
+}
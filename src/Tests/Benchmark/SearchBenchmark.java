@@ -0,0 +1,120 @@
+package Tests.Benchmark;
+
+import LMS.Book;
+import LMS.BookAutocomplete;
+import LMS.BookSearchIndex;
+import LMS.CatalogScan;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Micro benchmark: linear "contains" scan vs BookSearchIndex, BookAutocomplete latency,
+ * and a sequential vs fork/join CatalogScan for a predicate the index cannot answer.
+ *
+ * Run with: java -cp out Tests.Benchmark.SearchBenchmark [catalogSize]
+ * Each query is warmed up first, then timed over a fixed number of rounds.
+ * Both sides must return the same number of books, otherwise the run fails.
+ */
+public class SearchBenchmark {
+
+    private static final String[] WORDS = {
+            "Clean", "Code", "Design", "Patterns", "Database", "Systems", "Java", "Concurrency",
+            "Practice", "Algorithms", "Introduction", "Networks", "Operating", "Compilers", "Theory",
+            "Software", "Engineering", "Distributed", "Computing", "Security", "Machine", "Learning"
+    };
+
+    private static final String[] QUERIES = {"patt", "clean code", "elmasri", "ing", "zzz"};
+
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int ROUNDS = 50;
+
+    public static void main(String[] args) {
+        int catalogSize = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        ArrayList<Book> catalog = buildCatalog(catalogSize);
+        BookSearchIndex index = new BookSearchIndex();
+
+        long start = System.nanoTime();
+        for (Book b : catalog) {
+            index.add(b);
+        }
+        System.out.printf("Indexed %,d books in %d ms%n%n", catalogSize, (System.nanoTime() - start) / 1_000_000);
+
+        System.out.printf("%-14s %10s %14s %14s %9s%n", "Query", "Matches", "Linear (us)", "Index (us)", "Speedup");
+        for (String q : QUERIES) {
+            int expected = linearScan(catalog, q).size();
+            int actual = index.search(BookSearchIndex.TITLE, q).size();
+            if (expected != actual) {
+                throw new IllegalStateException("Result mismatch for '" + q + "': " + expected + " vs " + actual);
+            }
+
+            double linear = time(() -> linearScan(catalog, q));
+            double indexed = time(() -> index.search(BookSearchIndex.TITLE, q));
+
+            System.out.printf("%-14s %,10d %,14.1f %,14.1f %8.1fx%n", q, expected, linear, indexed, linear / indexed);
+        }
+
+        BookAutocomplete autocomplete = new BookAutocomplete();
+        for (Book b : catalog) {
+            autocomplete.add(b);
+        }
+
+        System.out.printf("%nAutocomplete (top 10), %,d title nodes%n", autocomplete.nodeCount(BookSearchIndex.TITLE));
+        for (String prefix : new String[]{"d", "design p", "clean code 1"}) {
+            double micros = time(() -> autocomplete.complete(BookSearchIndex.TITLE, prefix, 10));
+            System.out.printf("%-14s %,14.1f us%n", prefix, micros);
+        }
+
+        // Unindexed predicate: available books whose author id ends in 7
+        Predicate<Book> predicate = b -> !b.getIssuedStatus() && b.getAuthor().endsWith("7");
+        int sequentialCount = CatalogScan.scan(catalog, predicate, Integer.MAX_VALUE).size();
+        if (sequentialCount != CatalogScan.scan(catalog, predicate).size()) {
+            throw new IllegalStateException("Result mismatch for the parallel scan");
+        }
+
+        double sequential = time(() -> CatalogScan.scan(catalog, predicate, Integer.MAX_VALUE));
+        double parallel = time(() -> CatalogScan.scan(catalog, predicate));
+        System.out.printf("%nCatalog scan (%d cores), %,d matches%n", Runtime.getRuntime().availableProcessors(), sequentialCount);
+        System.out.printf("%-14s %,14.1f us%n%-14s %,14.1f us (%.1fx)%n", "sequential", sequential,
+                "fork/join", parallel, sequential / parallel);
+    }
+
+    private static ArrayList<Book> buildCatalog(int size) {
+        Random random = new Random(7);
+        ArrayList<Book> catalog = new ArrayList<>(size);
+
+        for (int i = 1; i <= size; i++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + " " + Integer.toString(i, 36);
+            catalog.add(new Book(i, title, WORDS[random.nextInt(WORDS.length)], "Author " + i, false));
+        }
+
+        return catalog;
+    }
+
+    // Same loop Library.searchForBooks ran before the index existed
+    private static ArrayList<Book> linearScan(ArrayList<Book> catalog, String title) {
+        ArrayList<Book> matchedBooks = new ArrayList<>();
+        for (int i = 0; i < catalog.size(); i++) {
+            Book b = catalog.get(i);
+            if (b.getTitle().toLowerCase().contains(title.toLowerCase())) {
+                matchedBooks.add(b);
+            }
+        }
+        return matchedBooks;
+    }
+
+    private static double time(Runnable query) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            query.run();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            query.run();
+        }
+        return (System.nanoTime() - start) / 1000.0 / ROUNDS;
+    }
+}
@@ -0,0 +1,127 @@
+package Tests.Integration;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Integration Tests for the SQLite tuning profiles
+ *
+ * Test Scenarios:
+ * 1. Each profile's journal mode, sync level, cache, map and timeout are set on the connection
+ * 2. Read-only connections get the profile's cache and timeout under WAL
+ * 3. A library loads and snapshots the same way under the balanced profile
+ * 4. Unknown profile names are rejected
+ */
+public class DatabaseProfileTest {
+
+    @TempDir
+    Path dir;
+
+    private DatabaseManager dbManager;
+
+    @BeforeEach
+    public void setUp() {
+        Library.resetInstance();
+        Book.setIDCount(0);
+        deleteDatabase();
+        dbManager = DatabaseManager.getInstance();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Library.resetInstance();
+        dbManager.closeConnection();
+        dbManager.setProfile(DatabaseProfile.DURABLE);
+        dbManager.setChangeLog(false);
+        deleteDatabase();
+    }
+
+    @Test
+    @DisplayName("PROFILE-1: Connection pragmas follow the profile")
+    public void testPragmas() throws SQLException {
+        for (DatabaseProfile profile : new DatabaseProfile[]{
+                DatabaseProfile.DURABLE, DatabaseProfile.BALANCED, DatabaseProfile.THROUGHPUT}) {
+            dbManager.setProfile(profile);
+            Connection conn = dbManager.connect();
+
+            assertEquals(profile.getJournalMode().toLowerCase(), pragma(conn, "journal_mode"));
+            assertEquals(synchronousLevel(profile.getSynchronous()), pragma(conn, "synchronous"));
+            assertEquals(Integer.toString(profile.getCacheSize()), pragma(conn, "cache_size"));
+            assertEquals(Long.toString(profile.getMmapSize()), pragma(conn, "mmap_size"));
+            assertEquals(Integer.toString(profile.getBusyTimeout()), pragma(conn, "busy_timeout"));
+
+            dbManager.closeConnection();
+        }
+    }
+
+    @Test
+    @DisplayName("PROFILE-2: Read connections use the profile under WAL")
+    public void testReadConnection() throws SQLException {
+        dbManager.setProfile(DatabaseProfile.BALANCED);
+        dbManager.connect();
+
+        try (Connection read = dbManager.openReadConnection()) {
+            assertEquals("wal", pragma(read, "journal_mode"));
+            assertEquals("-16000", pragma(read, "cache_size"));
+            assertEquals(dbManager.loadAllBooks().size(), dbManager.forEachBook(read, row -> { }));
+        }
+    }
+
+    @Test
+    @DisplayName("PROFILE-3: Loading and snapshots work under the balanced profile")
+    public void testLibraryUnderWal() throws Exception {
+        Library lib = Library.getInstance();
+        lib.setDatabaseProfile("balanced");
+        lib.setLoadThreads(4);
+        lib.setSnapshots(true);
+        Object con = lib.makeConnection();
+        lib.populateLibrary(con);
+
+        assertEquals(dbManager.loadAllBooks().size(), lib.getBooks().size());
+        assertTrue(LibrarySnapshot.write(dbManager, dir.resolve("library.snap"), false) > 0);
+        assertEquals("balanced", dbManager.getProfile().getName());
+    }
+
+    @Test
+    @DisplayName("PROFILE-4: Unknown names are rejected")
+    public void testUnknownName() {
+        assertSame(DatabaseProfile.THROUGHPUT, DatabaseProfile.forName("Throughput"));
+        assertThrows(IllegalArgumentException.class, () -> DatabaseProfile.forName("fastest"));
+    }
+
+    private String pragma(Connection c, String name) throws SQLException {
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA " + name)) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    private String synchronousLevel(String name) {
+        switch (name) {
+            case "OFF":
+                return "0";
+            case "NORMAL":
+                return "1";
+            default:
+                return "2"; // FULL
+        }
+    }
+
+    private void deleteDatabase() {
+        for (String suffix : new String[]{"", "-wal", "-shm", "-journal"}) {
+            File f = new File("database/library.db" + suffix);
+            if (f.exists()) {
+                f.delete();
+            }
+        }
+    }
+}
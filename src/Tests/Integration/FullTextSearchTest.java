@@ -0,0 +1,99 @@
+package Tests.Integration;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.util.ArrayList;
+
+/**
+ * Integration Tests for the SQLite FTS5 search mode
+ *
+ * Test Scenarios:
+ * 1. Existing books are indexed when the search table is created
+ * 2. insertBook / updateBook / deleteBook keep the search table in sync (triggers)
+ * 3. LIMIT / OFFSET paging comes from the database
+ * 4. Library.searchForBooks uses the database when the mode is on
+ */
+public class FullTextSearchTest {
+
+    private Library library;
+    private DatabaseManager dbManager;
+
+    @BeforeEach
+    public void setUp() {
+        Library.resetInstance();
+        Book.setIDCount(0);
+
+        File dbFile = new File("database/library.db");
+        if (dbFile.exists()) dbFile.delete();
+
+        library = Library.getInstance();
+        dbManager = DatabaseManager.getInstance();
+        dbManager.connect(); // seeds the three sample books
+
+        assertTrue(library.setDatabaseSearch(true), "FTS5 should be available");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dbManager.closeConnection();
+        File dbFile = new File("database/library.db");
+        if (dbFile.exists()) {
+            dbFile.delete();
+        }
+    }
+
+    @Test
+    @DisplayName("FTS-1: Seeded books are searchable by substring")
+    public void testSeededBooksIndexed() {
+        ArrayList<Object[]> rows = dbManager.searchBooks("title", "patt", -1, 0);
+
+        assertEquals(1, rows.size());
+        assertEquals("Design Patterns", rows.get(0)[1]);
+        assertEquals(2, dbManager.searchBooks("subject", "software", -1, 0).size());
+    }
+
+    @Test
+    @DisplayName("FTS-2: Insert, update and delete are reflected")
+    public void testTriggersKeepTableInSync() {
+        int id = dbManager.insertBook("Refactoring", "Martin Fowler", "Software Engineering", false);
+        assertEquals(1, dbManager.searchBooks("author", "fowler", -1, 0).size());
+
+        dbManager.updateBook(id, "Refactoring 2nd Edition", "M. Fowler", "Software Engineering");
+        assertEquals(1, dbManager.searchBooks("title", "2nd", -1, 0).size());
+        assertTrue(dbManager.searchBooks("author", "martin fowler", -1, 0).isEmpty());
+
+        dbManager.deleteBook(id);
+        assertTrue(dbManager.searchBooks("title", "refactoring", -1, 0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("FTS-3: LIMIT and OFFSET page through the results")
+    public void testPaging() {
+        for (int i = 0; i < 5; i++) {
+            dbManager.insertBook("Java Volume " + i, "Author", "Programming", false);
+        }
+
+        assertEquals(2, dbManager.searchBooks("title", "java", 2, 0).size());
+        assertEquals(1, dbManager.searchBooks("title", "java", 2, 4).size());
+    }
+
+    @Test
+    @DisplayName("FTS-4: Short terms fall back to LIKE")
+    public void testShortTerm() {
+        assertEquals(2, dbManager.searchBooks("title", "de", -1, 0).size());
+    }
+
+    @Test
+    @DisplayName("FTS-5: Library.searchForBooks queries the database")
+    public void testLibrarySearchUsesDatabase() {
+        // Catalog never loaded into memory
+        ArrayList<Book> result = library.searchForBooks("3", "elmasri");
+
+        assertEquals(1, result.size());
+        assertEquals("Database Systems", result.get(0).getTitle());
+        assertEquals(0, Book.getIDCount(), "detached books must not advance the id counter");
+    }
+}
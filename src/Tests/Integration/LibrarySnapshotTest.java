@@ -0,0 +1,227 @@
+package Tests.Integration;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+
+/**
+ * Integration Tests for the startup snapshot
+ *
+ * Test Scenarios:
+ * 1. A library loaded from a fresh snapshot equals one loaded with populateLibrary
+ * 2. Inserts, updates and deletes made after the snapshot are replayed from the ChangeLog
+ * 3. A corrupt snapshot is rejected and the library is left empty
+ * 4. A snapshot the pruned ChangeLog no longer reaches is rejected as stale
+ * 5. A snapshot written for the other loan history mode is rejected
+ * 6. A snapshot written from another database file is rejected
+ * 7. With the change log off nothing is logged, no snapshot is written, and older snapshots are stale
+ * 8. Periodic snapshots are refused unless the database profile uses WAL
+ */
+public class LibrarySnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    private DatabaseManager dbManager;
+    private Path snapshot;
+
+    @BeforeEach
+    public void setUp() {
+        Library.resetInstance();
+        Book.setIDCount(0);
+
+        File dbFile = new File("database/library.db");
+        if (dbFile.exists()) dbFile.delete();
+
+        dbManager = DatabaseManager.getInstance();
+        dbManager.setChangeLog(true);
+        dbManager.connect(); // seeds the sample data
+        snapshot = dir.resolve("library.snap");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Library.resetInstance();
+        dbManager.closeConnection();
+        dbManager.setChangeLog(false);
+        File dbFile = new File("database/library.db");
+        if (dbFile.exists()) {
+            dbFile.delete();
+        }
+    }
+
+    @Test
+    @DisplayName("SNAPSHOT-1: Snapshot load equals a full load")
+    public void testSameAsFullLoad() throws Exception {
+        LibrarySnapshot.write(dbManager, snapshot, false);
+
+        assertEquals(describe(fullLoad()), describe(snapshotLoad(false)));
+    }
+
+    @Test
+    @DisplayName("SNAPSHOT-2: Changes after the snapshot are replayed")
+    public void testReplay() throws Exception {
+        LibrarySnapshot.write(dbManager, snapshot, false);
+
+        int refactoring = dbManager.insertBook("Refactoring", "Martin Fowler", "Software Engineering", false);
+        dbManager.updateBook(2, "Design Patterns (2nd ed.)", "Gang of Four", "Software Engineering");
+        dbManager.updateBookIssuedStatus(refactoring, true);
+        dbManager.deleteBook(3);
+        int carol = dbManager.insertPerson("Carol", "pw", "789 Campus Rd", 5556789, "Borrower");
+        dbManager.insertLoan(carol, refactoring, 2, new Date());
+        dbManager.insertHoldRequest(2, carol, new Date());
+
+        assertEquals(describe(fullLoad()), describe(snapshotLoad(false)));
+    }
+
+    @Test
+    @DisplayName("SNAPSHOT-3: Corrupt snapshot is rejected")
+    public void testCorrupt() throws Exception {
+        LibrarySnapshot.write(dbManager, snapshot, false);
+
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(snapshot, bytes);
+
+        Library.resetInstance();
+        Library lib = Library.getInstance();
+        assertFalse(LibrarySnapshot.load(lib, dbManager, snapshot, false));
+        assertTrue(lib.getBooks().isEmpty(), "A rejected snapshot must not fill the library");
+    }
+
+    @Test
+    @DisplayName("SNAPSHOT-4: Snapshot older than the pruned log is stale")
+    public void testStale() throws Exception {
+        LibrarySnapshot.write(dbManager, snapshot, false);
+        Path old = dir.resolve("old.snap");
+        Files.copy(snapshot, old);
+
+        dbManager.insertBook("Book A", "Author", "Subject", false);
+        dbManager.insertBook("Book B", "Author", "Subject", false);
+        LibrarySnapshot.write(dbManager, snapshot, false); // prunes the log up to here
+
+        Files.copy(old, snapshot, StandardCopyOption.REPLACE_EXISTING);
+        Library.resetInstance();
+        assertFalse(LibrarySnapshot.load(Library.getInstance(), dbManager, snapshot, false));
+    }
+
+    @Test
+    @DisplayName("SNAPSHOT-5: Loan history mode has to match")
+    public void testModeMismatch() throws Exception {
+        LibrarySnapshot.write(dbManager, snapshot, true);
+
+        Library.resetInstance();
+        assertFalse(LibrarySnapshot.load(Library.getInstance(), dbManager, snapshot, false));
+        assertEquals(describe(fullLoad(true)), describe(snapshotLoad(true)));
+    }
+
+    @Test
+    @DisplayName("SNAPSHOT-6: Snapshot of another database is rejected")
+    public void testOtherDatabase() throws Exception {
+        LibrarySnapshot.write(dbManager, snapshot, false);
+        String id = dbManager.getDatabaseId();
+
+        // Same seed data and change sequence, but a new file
+        dbManager.closeConnection();
+        new File("database/library.db").delete();
+        dbManager.connect();
+        assertNotEquals(id, dbManager.getDatabaseId());
+
+        Library.resetInstance();
+        assertFalse(LibrarySnapshot.load(Library.getInstance(), dbManager, snapshot, false));
+    }
+
+    @Test
+    @DisplayName("SNAPSHOT-7: Turning the change log off makes older snapshots stale")
+    public void testChangeLogOff() throws Exception {
+        LibrarySnapshot.write(dbManager, snapshot, false);
+
+        dbManager.setChangeLog(false);
+        long seq = dbManager.getChangeSeq();
+        dbManager.insertBook("Unlogged", "Author", "Subject", false);
+        assertEquals(seq, dbManager.getChangeSeq(), "Nothing is logged while the log is off");
+        assertEquals(seq, dbManager.getOldestChangeSeq(), "Only the gap entry is left");
+        assertThrows(java.io.IOException.class, () -> LibrarySnapshot.write(dbManager, dir.resolve("off.snap"), false));
+
+        dbManager.setChangeLog(true);
+        Library.resetInstance();
+        assertFalse(LibrarySnapshot.load(Library.getInstance(), dbManager, snapshot, false));
+
+        LibrarySnapshot.write(dbManager, snapshot, false);
+        assertEquals(describe(fullLoad()), describe(snapshotLoad(false)));
+    }
+
+    @Test
+    @DisplayName("SNAPSHOT-8: Periodic snapshots only run under WAL")
+    public void testPeriodicNeedsWal() {
+        Library lib = Library.getInstance();
+        lib.setSnapshots(true);
+        lib.setSnapshotInterval(60);
+
+        assertFalse(lib.startSnapshots(), "A rollback journal would block desk commits");
+
+        dbManager.setProfile(DatabaseProfile.BALANCED);
+        try {
+            assertTrue(lib.startSnapshots());
+            lib.stopSnapshots();
+        } finally {
+            dbManager.setProfile(DatabaseProfile.DURABLE);
+        }
+
+        lib.setSnapshotInterval(0);
+        assertFalse(lib.startSnapshots(), "No interval, no timer");
+    }
+
+    private Library fullLoad() throws Exception {
+        return fullLoad(false);
+    }
+
+    private Library fullLoad(boolean lazy) throws Exception {
+        Library.resetInstance();
+        Library lib = Library.getInstance();
+        lib.setLazyLoanHistory(lazy);
+        lib.populateLibrary(null);
+        return lib;
+    }
+
+    private Library snapshotLoad(boolean lazy) {
+        Library.resetInstance();
+        Library lib = Library.getInstance();
+        lib.setLazyLoanHistory(lazy);
+        assertTrue(LibrarySnapshot.load(lib, dbManager, snapshot, lazy));
+        return lib;
+    }
+
+    private String describe(Library lib) {
+        StringBuilder sb = new StringBuilder();
+
+        for (Book b : lib.getBooks()) {
+            sb.append("book ").append(b.getID()).append(' ').append(b.getTitle()).append(' ')
+                    .append(b.getAuthor()).append(' ').append(b.getSubject()).append(' ')
+                    .append(b.getIssuedStatus()).append(" holds=")
+                    .append(b.getHoldRequestOperations().getHoldRequests().size()).append('\n');
+        }
+        for (Person p : Library.persons) {
+            sb.append(p.getClass().getSimpleName()).append(' ').append(p.getID()).append(' ').append(p.getName());
+            if (p instanceof Borrower) {
+                sb.append(" borrowed=").append(((Borrower) p).getBorrowedBooks().size());
+            }
+            sb.append('\n');
+        }
+        sb.append("librarian ").append(Library.librarian.getID()).append('\n');
+        for (Loan l : lib.getLoans()) {
+            sb.append("loan ").append(l.getLoanId()).append(' ').append(l.getBorrower().getID()).append(' ')
+                    .append(l.getBook().getID()).append(' ').append(l.getIssuer().getID()).append(' ')
+                    .append(l.getReceiver() == null ? "-" : l.getReceiver().getID()).append(' ')
+                    .append(l.getFineStatus()).append('\n');
+        }
+        return sb.toString();
+    }
+}
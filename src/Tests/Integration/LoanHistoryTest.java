@@ -0,0 +1,152 @@
+package Tests.Integration;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+
+/**
+ * Integration Tests for lazy loan history
+ *
+ * Test Scenarios:
+ * 1. Only open loans (active, or fine unpaid) are loaded at startup
+ * 2. loanHistory pages settled loans in from the database, in id order, across several pages
+ * 3. loanHistory(borrower) only returns that borrower's loans
+ * 4. A loan settled after startup is not returned twice
+ * 5. Without lazy history everything is loaded, and the history is the loans list
+ */
+public class LoanHistoryTest {
+
+    private static final int SETTLED_LOANS = 1200;
+
+    private DatabaseManager dbManager;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Library.resetInstance();
+        Book.setIDCount(0);
+
+        File dbFile = new File("database/library.db");
+        if (dbFile.exists()) dbFile.delete();
+
+        dbManager = DatabaseManager.getInstance();
+        dbManager.connect(); // seeds the sample data
+
+        // Settled loans: returned to clerk 3 with the fine paid; alternate between borrowers 4 and 5
+        try (Connection c = DriverManager.getConnection("jdbc:sqlite:database/library.db");
+             PreparedStatement ps = c.prepareStatement(
+                     "INSERT INTO Loan(borrowerId, bookId, issuerId, issueDate, receiverId, returnDate, finePaid) "
+                             + "VALUES (?, 2, 2, ?, 3, ?, 1)")) {
+            c.setAutoCommit(false);
+            for (int i = 0; i < SETTLED_LOANS; i++) {
+                ps.setInt(1, 4 + i % 2);
+                ps.setLong(2, 1_000_000L + i);
+                ps.setLong(3, 2_000_000L + i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            c.commit();
+        }
+
+        // One more active loan after the history
+        dbManager.insertLoan(5, 2, 2, new Date());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Library.resetInstance();
+        dbManager.closeConnection();
+        File dbFile = new File("database/library.db");
+        if (dbFile.exists()) {
+            dbFile.delete();
+        }
+    }
+
+    @Test
+    @DisplayName("HISTORY-1: Only open loans are loaded")
+    public void testOnlyOpenLoansLoaded() throws Exception {
+        Library lib = load(true);
+
+        for (Loan l : lib.getLoans()) {
+            assertTrue(l.getReceiver() == null || !l.getFineStatus(), "Settled loan was loaded eagerly");
+        }
+        assertTrue(lib.getLoans().size() < dbManager.loadAllLoans().size());
+    }
+
+    @Test
+    @DisplayName("HISTORY-2: History returns every loan in id order")
+    public void testHistoryInIdOrder() throws Exception {
+        Library lib = load(true);
+
+        ArrayList<Integer> ids = ids(lib.loanHistory());
+        ArrayList<Integer> expected = new ArrayList<>();
+        for (Object[] data : dbManager.loadAllLoans()) {
+            expected.add((Integer) data[0]);
+        }
+
+        assertEquals(expected, ids);
+    }
+
+    @Test
+    @DisplayName("HISTORY-3: Borrower history only holds that borrower's loans")
+    public void testBorrowerHistory() throws Exception {
+        Library lib = load(true);
+        Borrower bob = lib.findBorrowerById(5);
+
+        int count = 0;
+        for (Iterator<Loan> it = lib.loanHistory(bob); it.hasNext(); count++) {
+            assertSame(bob, it.next().getBorrower());
+        }
+
+        int expected = 0;
+        for (Object[] data : dbManager.loadAllLoans()) {
+            if ((Integer) data[1] == 5) expected++;
+        }
+        assertEquals(expected, count);
+    }
+
+    @Test
+    @DisplayName("HISTORY-4: A loan settled after startup appears once")
+    public void testSettledInSessionNotDuplicated() throws Exception {
+        Library lib = load(true);
+        Loan active = lib.getLoans().get(lib.getLoans().size() - 1);
+
+        dbManager.updateLoanReturn(active.getLoanId(), 3, new Date(), true);
+
+        ArrayList<Integer> ids = ids(lib.loanHistory());
+        assertEquals(ids.indexOf(active.getLoanId()), ids.lastIndexOf(active.getLoanId()));
+        assertEquals(dbManager.loadAllLoans().size(), ids.size());
+    }
+
+    @Test
+    @DisplayName("HISTORY-5: Eager mode loads all loans")
+    public void testEagerMode() throws Exception {
+        Library lib = load(false);
+
+        assertEquals(dbManager.loadAllLoans().size(), lib.getLoans().size());
+        assertEquals(lib.getLoans().size(), ids(lib.loanHistory()).size());
+    }
+
+    private Library load(boolean lazy) throws Exception {
+        Library.resetInstance();
+        Library lib = Library.getInstance();
+        lib.setLazyLoanHistory(lazy);
+        lib.populateLibrary(null);
+        return lib;
+    }
+
+    private ArrayList<Integer> ids(Iterator<Loan> history) {
+        ArrayList<Integer> ids = new ArrayList<>();
+        while (history.hasNext()) {
+            ids.add(history.next().getLoanId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,116 @@
+package Tests.Integration;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Date;
+
+/**
+ * Integration Tests for the parallel startup load
+ *
+ * Test Scenarios:
+ * 1. Read connections cannot write
+ * 2. Loading with several threads gives the same library as the sequential load
+ *    (books, persons, loans in order, borrowed books and hold queues)
+ * 3. Loans split into id ranges keep their id order
+ */
+public class ParallelLoadTest {
+
+    private DatabaseManager dbManager;
+
+    @BeforeEach
+    public void setUp() {
+        Library.resetInstance();
+        Book.setIDCount(0);
+
+        File dbFile = new File("database/library.db");
+        if (dbFile.exists()) dbFile.delete();
+
+        dbManager = DatabaseManager.getInstance();
+        dbManager.connect(); // seeds the sample data
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Library.resetInstance();
+        dbManager.closeConnection();
+        File dbFile = new File("database/library.db");
+        if (dbFile.exists()) {
+            dbFile.delete();
+        }
+    }
+
+    @Test
+    @DisplayName("PARALLEL-1: Read connections are read-only")
+    public void testReadConnectionIsReadOnly() throws Exception {
+        try (Connection c = dbManager.openReadConnection()) {
+            assertEquals(dbManager.loadAllBooks().size(), dbManager.forEachBook(c, row -> { }));
+            assertThrows(Exception.class, () -> c.createStatement().executeUpdate("DELETE FROM Book"));
+        }
+    }
+
+    @Test
+    @DisplayName("PARALLEL-2: Parallel load matches the sequential load")
+    public void testSameAsSequential() throws Exception {
+        for (int i = 0; i < 7; i++) {
+            int bookId = dbManager.insertBook("Book " + i, "Author " + i, "Subject", true);
+            dbManager.insertLoan(4 + i % 2, bookId, 2 + i % 2, new Date(1_000_000L * (i + 1)));
+        }
+
+        String sequential = describe(load(0));
+        String parallel = describe(load(4));
+
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    @DisplayName("PARALLEL-3: Loans keep id order across slices")
+    public void testLoanOrder() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            int bookId = dbManager.insertBook("Book " + i, "Author", "Subject", true);
+            dbManager.insertLoan(4, bookId, 2, new Date());
+        }
+
+        ArrayList<Loan> loans = load(3).getLoans();
+        assertEquals(dbManager.loadAllLoans().size(), loans.size());
+        for (int i = 1; i < loans.size(); i++) {
+            assertTrue(loans.get(i - 1).getLoanId() < loans.get(i).getLoanId());
+        }
+    }
+
+    private Library load(int threads) throws Exception {
+        Library.resetInstance();
+        Library lib = Library.getInstance();
+        lib.setLoadThreads(threads);
+        lib.populateLibrary(null);
+        return lib;
+    }
+
+    private String describe(Library lib) {
+        StringBuilder sb = new StringBuilder();
+
+        for (Book b : lib.getBooks()) {
+            sb.append("book ").append(b.getID()).append(' ').append(b.getTitle()).append(' ')
+                    .append(b.getIssuedStatus()).append(" holds=")
+                    .append(b.getHoldRequestOperations().getHoldRequests().size()).append('\n');
+        }
+        for (Person p : Library.persons) {
+            sb.append(p.getClass().getSimpleName()).append(' ').append(p.getID()).append(' ').append(p.getName());
+            if (p instanceof Borrower) {
+                sb.append(" borrowed=").append(((Borrower) p).getBorrowedBooks().size());
+            }
+            sb.append('\n');
+        }
+        sb.append("librarian ").append(Library.librarian.getID()).append('\n');
+        for (Loan l : lib.getLoans()) {
+            sb.append("loan ").append(l.getLoanId()).append(' ').append(l.getBorrower().getID()).append(' ')
+                    .append(l.getBook().getID()).append(' ').append(l.getIssuer().getID()).append(' ')
+                    .append(l.getReceiver() == null ? "-" : l.getReceiver().getID()).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,158 @@
+package Tests.Integration;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Integration Tests for the read connection pool
+ *
+ * Test Scenarios:
+ * 1. Searches and table reads go through the pool and see committed writes
+ * 2. A read finishes while another thread holds the main connection
+ * 3. A read waits for a free connection when the pool is exhausted, and the wait is counted
+ * 4. Nested reads on one thread share its connection
+ * 5. Without WAL there is no pool and reads use the main connection
+ */
+public class ReadPoolTest {
+
+    private DatabaseManager dbManager;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        Library.resetInstance();
+        Book.setIDCount(0);
+        deleteDatabase();
+        dbManager = DatabaseManager.getInstance();
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        dbManager.closeConnection();
+        dbManager.setReadPoolSize(0);
+        dbManager.setProfile(DatabaseProfile.DURABLE);
+        deleteDatabase();
+    }
+
+    @Test
+    @DisplayName("POOL-1: Reads are leased and see committed writes")
+    public void testReadsThroughPool() {
+        connect(DatabaseProfile.BALANCED, 2);
+        ReadConnectionPool pool = dbManager.getReadPool();
+        assertNotNull(pool);
+        assertTrue(dbManager.enableFullTextSearch(), "FTS5 should be available");
+
+        int id = dbManager.insertBook("Pooled Reads", "Some Author", "Databases", false);
+        ArrayList<Object[]> found = dbManager.searchBooks("title", "Pooled", -1, 0);
+
+        assertEquals(1, found.size());
+        assertEquals(id, found.get(0)[0]);
+        assertTrue(dbManager.loadAllBooks().size() > 1);
+        assertEquals(2, pool.getLeaseCount());
+        assertEquals(0, pool.getInUse());
+        assertEquals(1, pool.getOpenCount(), "One connection is enough for reads one after another");
+    }
+
+    @Test
+    @DisplayName("POOL-2: Reads do not wait for the main connection")
+    public void testReadDuringWrite() throws Exception {
+        connect(DatabaseProfile.BALANCED, 2);
+        int books = dbManager.loadAllBooks().size();
+
+        // Holding the monitor stands in for a long write on the main connection
+        synchronized (dbManager) {
+            Future<Integer> read = executor.submit(() -> dbManager.loadAllBooks().size());
+            assertEquals(books, read.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    @DisplayName("POOL-3: An exhausted pool makes readers wait")
+    public void testWaitWhenExhausted() throws Exception {
+        connect(DatabaseProfile.BALANCED, 1);
+        ReadConnectionPool pool = dbManager.getReadPool();
+
+        CountDownLatch leased = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> {
+            StatementCache reader = pool.lease();
+            leased.countDown();
+            try {
+                done.await();
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                pool.release(reader);
+            }
+            return null;
+        });
+        leased.await();
+
+        Future<Integer> read = executor.submit(() -> dbManager.loadAllBooks().size());
+        done.countDown();
+
+        assertTrue(read.get(5, TimeUnit.SECONDS) > 0);
+        holder.get(5, TimeUnit.SECONDS);
+        assertEquals(1, pool.getWaitCount());
+        assertTrue(pool.getMaxWaitMillis() >= 40, "Waited " + pool.getMaxWaitMillis() + " ms");
+        assertEquals(1, pool.getPeakInUse());
+        assertTrue(pool.getUtilization() > 0);
+    }
+
+    @Test
+    @DisplayName("POOL-4: Nested reads share the thread's connection")
+    public void testNestedReads() {
+        connect(DatabaseProfile.BALANCED, 1);
+        ReadConnectionPool pool = dbManager.getReadPool();
+
+        // With one connection a nested read would wait forever if it needed a second lease
+        int[] inner = new int[1];
+        int books = dbManager.forEachBook(row -> {
+            if (inner[0] == 0) {
+                inner[0] = dbManager.loadAllBooks().size();
+            }
+        });
+
+        assertEquals(books, inner[0]);
+        assertEquals(1, pool.getLeaseCount());
+        assertEquals(0, pool.getInUse());
+        assertThrows(IllegalStateException.class, () -> pool.release(new StatementCache(null, 2)));
+    }
+
+    @Test
+    @DisplayName("POOL-5: No pool without WAL")
+    public void testNoPoolWithoutWal() {
+        connect(DatabaseProfile.DURABLE, 4);
+
+        assertNull(dbManager.getReadPool());
+        assertFalse(dbManager.loadAllBooks().isEmpty());
+        assertFalse(dbManager.searchBooks("title", "a", 5, 0).isEmpty());
+    }
+
+    private void connect(DatabaseProfile profile, int readers) {
+        dbManager.setProfile(profile);
+        dbManager.setReadPoolSize(readers);
+        dbManager.connect(); // seeds the sample data
+    }
+
+    private void deleteDatabase() {
+        for (String suffix : new String[]{"", "-wal", "-shm", "-journal"}) {
+            File f = new File("database/library.db" + suffix);
+            if (f.exists()) {
+                f.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package Tests.Integration;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+
+/**
+ * Integration Tests for the versioned schema migrations
+ *
+ * Test Scenarios:
+ * 1. A new database is built up to the latest version, one schema_version row per step
+ * 2. A library.db from before versioning is upgraded in place and keeps its rows
+ * 3. Connecting to an up-to-date database applies nothing
+ * 4. The active loan, hold and loan history queries use the new indexes
+ * 5. A failed step is rolled back and leaves the previous version
+ * 6. A database newer than the program is refused
+ */
+public class SchemaMigrationTest {
+
+    private DatabaseManager dbManager;
+
+    @BeforeEach
+    public void setUp() {
+        Library.resetInstance();
+        Book.setIDCount(0);
+        deleteDatabase();
+        dbManager = DatabaseManager.getInstance();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dbManager.closeConnection();
+        deleteDatabase();
+    }
+
+    @Test
+    @DisplayName("MIGRATE-1: New database reaches the latest version")
+    public void testNewDatabase() throws SQLException {
+        Connection conn = dbManager.connect();
+
+        assertEquals(DatabaseManager.getLatestSchemaVersion(), dbManager.getSchemaVersion());
+        assertEquals(DatabaseManager.getLatestSchemaVersion(),
+                count(conn, "SELECT COUNT(*) FROM schema_version"));
+        assertEquals(5, count(conn, "SELECT COUNT(*) FROM sqlite_master WHERE type = 'index' AND name IN " +
+                "('Loan_active', 'Loan_open', 'Loan_borrower', 'HoldRequest_book', 'HoldRequest_queue')"));
+    }
+
+    @Test
+    @DisplayName("MIGRATE-2: Unversioned library.db is upgraded in place")
+    public void testUpgradeInPlace() throws SQLException {
+        new File("database").mkdirs();
+        try (Connection old = DriverManager.getConnection("jdbc:sqlite:database/library.db");
+             Statement st = old.createStatement()) {
+            // The tables as the program created them before schema_version existed
+            st.execute("CREATE TABLE Person (id INTEGER PRIMARY KEY, name TEXT NOT NULL, password TEXT NOT NULL, " +
+                    "address TEXT, phoneNo INTEGER, type TEXT NOT NULL)");
+            st.execute("CREATE TABLE Book (id INTEGER PRIMARY KEY, title TEXT NOT NULL, author TEXT NOT NULL, " +
+                    "subject TEXT, isIssued INTEGER DEFAULT 0)");
+            st.execute("CREATE TABLE Loan (id INTEGER PRIMARY KEY, borrowerId INTEGER, bookId INTEGER, issuerId INTEGER, " +
+                    "issueDate INTEGER, receiverId INTEGER, returnDate INTEGER, finePaid INTEGER DEFAULT 0)");
+            st.execute("INSERT INTO Person VALUES (7, 'Old Borrower', 'pw', 'Somewhere', 123, 'Borrower')");
+            st.execute("INSERT INTO Book VALUES (3, 'Old Book', 'Old Author', 'History', 1)");
+            st.execute("INSERT INTO Loan VALUES (9, 7, 3, 1, 1000, NULL, NULL, 0)");
+        }
+
+        dbManager.connect();
+
+        assertEquals(DatabaseManager.getLatestSchemaVersion(), dbManager.getSchemaVersion());
+        assertEquals(1, dbManager.loadAllBorrowers().size(), "The old rows are kept, so nothing is seeded");
+        assertEquals("Old Book", dbManager.loadAllBooks().get(0)[1]);
+        assertEquals(9, dbManager.getLoanIdForActiveBook(3, 7));
+        assertTrue(dbManager.loadAllHoldRequests().isEmpty(), "Missing tables are created");
+    }
+
+    @Test
+    @DisplayName("MIGRATE-3: Reconnecting applies nothing")
+    public void testIdempotent() throws SQLException {
+        Connection conn = dbManager.connect();
+        long appliedAt = count(conn, "SELECT MAX(appliedAt) FROM schema_version");
+        dbManager.closeConnection();
+
+        conn = dbManager.connect();
+
+        assertEquals(0, dbManager.migrateSchema());
+        assertEquals(appliedAt, count(conn, "SELECT MAX(appliedAt) FROM schema_version"));
+        assertEquals(DatabaseManager.getLatestSchemaVersion(), count(conn, "SELECT COUNT(*) FROM schema_version"));
+    }
+
+    @Test
+    @DisplayName("MIGRATE-4: Hot queries use the indexes")
+    public void testQueryPlans() throws SQLException {
+        Connection conn = dbManager.connect();
+
+        assertTrue(plan(conn, "SELECT id FROM Loan WHERE bookId = 1 AND borrowerId = 2 AND receiverId IS NULL")
+                .contains("COVERING INDEX Loan_active"));
+        assertTrue(plan(conn, "UPDATE Loan SET issueDate = 0 WHERE bookId = 1 AND borrowerId = 2 AND receiverId IS NULL")
+                .contains("INDEX Loan_active"));
+        assertTrue(plan(conn, "DELETE FROM HoldRequest WHERE bookId = 1 AND borrowerId = 2")
+                .contains("INDEX HoldRequest_book"));
+        assertTrue(plan(conn, "SELECT id, bookId, borrowerId, requestDate FROM HoldRequest ORDER BY requestDate")
+                .contains("COVERING INDEX HoldRequest_queue"));
+        assertTrue(plan(conn, "SELECT * FROM Loan WHERE (receiverId IS NULL OR IFNULL(finePaid, 0) = 0) ORDER BY id")
+                .contains("INDEX Loan_open"));
+        assertTrue(plan(conn, "SELECT * FROM Loan WHERE NOT (receiverId IS NULL OR IFNULL(finePaid, 0) = 0) " +
+                "AND borrowerId = 4 AND id > 0 ORDER BY id LIMIT 10").contains("INDEX Loan_borrower"));
+    }
+
+    @Test
+    @DisplayName("MIGRATE-5: A failed step is rolled back")
+    public void testFailedStep() throws SQLException {
+        SchemaMigrator migrator = new SchemaMigrator()
+                .add(1, "table", st -> st.execute("CREATE TABLE T (id INTEGER PRIMARY KEY, name TEXT)"))
+                .add(2, "broken", st -> {
+                    st.execute("CREATE INDEX T_name ON T(name)");
+                    st.execute("CREATE INDEX T_missing ON T(noSuchColumn)");
+                });
+
+        try (Connection c = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            assertThrows(SQLException.class, () -> migrator.migrate(c));
+
+            assertEquals(1, SchemaMigrator.getVersion(c));
+            assertEquals(0, count(c, "SELECT COUNT(*) FROM sqlite_master WHERE name = 'T_name'"));
+            assertTrue(c.getAutoCommit());
+        }
+        assertThrows(IllegalArgumentException.class, () -> migrator.add(2, "again", st -> { }));
+    }
+
+    @Test
+    @DisplayName("MIGRATE-6: A newer database is refused")
+    public void testNewerDatabase() throws SQLException {
+        Connection conn = dbManager.connect();
+        try (Statement st = conn.createStatement()) {
+            st.execute("INSERT INTO schema_version VALUES (99, 'from the future', 0)");
+        }
+        dbManager.closeConnection();
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> dbManager.connect());
+        ArrayList<String> messages = new ArrayList<>();
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            messages.add(t.getMessage());
+        }
+        assertTrue(messages.toString().contains("newer"), messages.toString());
+    }
+
+    private long count(Connection c, String sql) throws SQLException {
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private String plan(Connection c, String sql) throws SQLException {
+        StringBuilder sb = new StringBuilder();
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("EXPLAIN QUERY PLAN " + sql)) {
+            while (rs.next()) {
+                sb.append(rs.getString(4)).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private void deleteDatabase() {
+        for (String suffix : new String[]{"", "-wal", "-shm", "-journal"}) {
+            File f = new File("database/library.db" + suffix);
+            if (f.exists()) {
+                f.delete();
+            }
+        }
+    }
+}
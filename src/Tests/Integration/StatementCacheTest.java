@@ -0,0 +1,126 @@
+package Tests.Integration;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Date;
+
+/**
+ * Integration Tests for the prepared statement cache
+ *
+ * Test Scenarios:
+ * 1. Repeating the writes of a book issue prepares no new statements
+ * 2. Reused statements still bind fresh parameters
+ * 3. The least recently used statement is closed when the cache is full
+ * 4. Closing the connection closes every cached statement
+ */
+public class StatementCacheTest {
+
+    private DatabaseManager dbManager;
+
+    @BeforeEach
+    public void setUp() {
+        Library.resetInstance();
+        Book.setIDCount(0);
+
+        File dbFile = new File("database/library.db");
+        if (dbFile.exists()) dbFile.delete();
+
+        dbManager = DatabaseManager.getInstance();
+        dbManager.connect(); // seeds the sample data
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dbManager.closeConnection();
+        File dbFile = new File("database/library.db");
+        if (dbFile.exists()) {
+            dbFile.delete();
+        }
+    }
+
+    @Test
+    @DisplayName("STMT-1: Issuing again reuses every statement")
+    public void testIssueReuses() {
+        StatementCache cache = dbManager.getStatementCache();
+
+        issue(2, 4);
+        long misses = cache.getMissCount();
+        long hits = cache.getHitCount();
+
+        issue(2, 5);
+
+        assertEquals(misses, cache.getMissCount(), "No statement should be compiled a second time");
+        assertEquals(hits + 5, cache.getHitCount());
+    }
+
+    @Test
+    @DisplayName("STMT-2: Reused statements bind new values")
+    public void testReuseBindsParameters() {
+        int first = dbManager.insertBook("Refactoring", "Martin Fowler", "Software Engineering", false);
+        int second = dbManager.insertBook("Working Effectively with Legacy Code", "Michael Feathers",
+                "Software Engineering", true);
+
+        assertEquals(first + 1, second);
+        boolean[] seen = {false};
+        dbManager.forEachBook(row -> {
+            if (row.getInt(1) == second) {
+                seen[0] = true;
+                assertEquals("Michael Feathers", row.getString(3));
+                assertTrue(row.getBoolean(5));
+            }
+        });
+        assertTrue(seen[0]);
+    }
+
+    @Test
+    @DisplayName("STMT-3: Evicted statements are closed")
+    public void testEvictionCloses() throws Exception {
+        try (Connection conn = dbManager.openReadConnection()) {
+            StatementCache cache = new StatementCache(conn, 2);
+
+            PreparedStatement a = cache.prepare("SELECT 1");
+            PreparedStatement b = cache.prepare("SELECT 2");
+            assertSame(a, cache.prepare("SELECT 1")); // b is now the least recently used
+            cache.prepare("SELECT 3");
+
+            assertEquals(1, cache.getEvictionCount());
+            assertTrue(b.isClosed());
+            assertFalse(a.isClosed());
+            assertEquals(2, cache.size());
+
+            assertNotSame(b, cache.prepare("SELECT 2"));
+            assertEquals(4, cache.getMissCount());
+            assertEquals(1, cache.getHitCount());
+
+            cache.close();
+            assertTrue(a.isClosed());
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    @DisplayName("STMT-4: Closing the connection closes cached statements")
+    public void testCloseConnection() {
+        StatementCache cache = dbManager.getStatementCache();
+        dbManager.insertBook("Refactoring", "Martin Fowler", "Software Engineering", false);
+        assertTrue(cache.size() > 0);
+
+        dbManager.closeConnection();
+
+        assertEquals(0, cache.size());
+    }
+
+    // The statements one issue and return of a book run
+    private void issue(int bookId, int borrowerId) {
+        dbManager.insertLoan(borrowerId, bookId, 2, new Date());
+        dbManager.updateBookIssuedStatus(bookId, true);
+        int loanId = dbManager.getLoanIdForActiveBook(bookId, borrowerId);
+        dbManager.updateLoanReturn(loanId, 2, new Date(), true);
+        dbManager.updateBookIssuedStatus(bookId, false);
+    }
+}
@@ -0,0 +1,109 @@
+package Tests.Integration;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+
+/**
+ * Integration Tests for streamed table loads
+ *
+ * Test Scenarios:
+ * 1. forEachBook visits every row with typed columns, in the same order as loadAllBooks
+ * 2. NULL receiver / return date of an active loan can be told apart from 0
+ * 3. The fetch size does not change what is read
+ * 4. populateLibrary builds the catalog, staff and loans from the streamed rows
+ */
+public class StreamingLoadTest {
+
+    private Library library;
+    private DatabaseManager dbManager;
+
+    @BeforeEach
+    public void setUp() {
+        Library.resetInstance();
+        Book.setIDCount(0);
+
+        File dbFile = new File("database/library.db");
+        if (dbFile.exists()) dbFile.delete();
+
+        library = Library.getInstance();
+        dbManager = DatabaseManager.getInstance();
+        dbManager.connect(); // seeds the sample data
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dbManager.setFetchSize(1000);
+        dbManager.closeConnection();
+        File dbFile = new File("database/library.db");
+        if (dbFile.exists()) {
+            dbFile.delete();
+        }
+    }
+
+    @Test
+    @DisplayName("STREAM-1: Streamed books match loadAllBooks")
+    public void testBooksMatchLoadAll() {
+        ArrayList<Object[]> expected = dbManager.loadAllBooks();
+        ArrayList<String> titles = new ArrayList<>();
+
+        int count = dbManager.forEachBook(row -> {
+            Object[] data = expected.get(titles.size());
+            assertEquals(data[0], row.getInt(1));
+            assertEquals(data[4], row.getBoolean(5));
+            titles.add(row.getString(2));
+        });
+
+        assertEquals(expected.size(), count);
+        assertTrue(titles.contains("Design Patterns"));
+    }
+
+    @Test
+    @DisplayName("STREAM-2: Active loans keep NULL receiver and return date")
+    public void testActiveLoanNulls() {
+        int bookId = dbManager.insertBook("Refactoring", "Martin Fowler", "Software Engineering", true);
+        int loanId = dbManager.insertLoan(4, bookId, 2, new Date());
+
+        boolean[] seen = {false};
+        dbManager.forEachLoan(row -> {
+            if (row.getInt(1) == loanId) {
+                seen[0] = true;
+                assertTrue(row.isNull(6));
+                assertTrue(row.isNull(7));
+                assertFalse(row.isNull(5));
+            }
+        });
+        assertTrue(seen[0]);
+
+        for (Object[] data : dbManager.loadAllLoans()) {
+            if ((Integer) data[0] == loanId) {
+                assertNull(data[5]);
+                assertNull(data[6]);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("STREAM-3: Fetch size is only a batching hint")
+    public void testFetchSize() {
+        int expected = dbManager.loadAllBorrowers().size();
+
+        dbManager.setFetchSize(1);
+        assertEquals(expected, dbManager.forEachBorrower(row -> { }));
+    }
+
+    @Test
+    @DisplayName("STREAM-4: populateLibrary loads from the streamed rows")
+    public void testPopulateLibrary() throws Exception {
+        library.populateLibrary(null);
+
+        assertEquals(dbManager.loadAllBooks().size(), library.getBooks().size());
+        assertNotNull(library.findClerkById(2));
+        assertNotNull(library.findBorrowerById(4));
+        assertEquals(dbManager.loadAllLoans().size(), library.getLoans().size());
+    }
+}
@@ -0,0 +1,155 @@
+package Tests.Integration;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import org.sqlite.SQLiteCommitListener;
+import org.sqlite.SQLiteConnection;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.sql.Connection;
+
+/**
+ * Integration Tests for units of work
+ *
+ * Test Scenarios:
+ * 1. Issuing a book that was on hold (hold delete, status, loan) is a single commit
+ * 2. Returning a book (status, loan return) is a single commit
+ * 3. A write that fails rolls back the writes before it in the same unit
+ * 4. Writes are dropped when the unit's body throws
+ * 5. Under write-behind a failed unit does not take the rest of its batch with it
+ */
+public class UnitOfWorkTest {
+
+    private Library library;
+    private DatabaseManager dbManager;
+    private Connection conn;
+    private int commits;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Library.resetInstance();
+        Book.setIDCount(0);
+
+        File dbFile = new File("database/library.db");
+        if (dbFile.exists()) dbFile.delete();
+
+        library = Library.getInstance();
+        library.setReturnDeadline(5);
+        library.setFine(20);
+        library.setRequestExpiry(7);
+        dbManager = DatabaseManager.getInstance();
+        conn = dbManager.connect(); // seeds the sample data
+        library.populateLibrary(conn);
+
+        conn.unwrap(SQLiteConnection.class).addCommitListener(new SQLiteCommitListener() {
+            @Override
+            public void onCommit() {
+                commits++;
+            }
+
+            @Override
+            public void onRollback() {
+            }
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Library.resetInstance();
+        dbManager.closeConnection();
+        File dbFile = new File("database/library.db");
+        if (dbFile.exists()) {
+            dbFile.delete();
+        }
+    }
+
+    @Test
+    @DisplayName("UOW-1: An issue is one commit")
+    public void testIssueSingleCommit() {
+        Book designPatterns = library.findBookById(2);
+        Borrower bob = library.findBorrowerById(5);
+        Clerk jane = library.findClerkById(2);
+        int holds = dbManager.loadAllHoldRequests().size();
+
+        designPatterns.issueBook(bob, jane); // Bob is first in the hold queue
+
+        assertEquals(1, commits);
+        assertEquals(holds - 1, dbManager.loadAllHoldRequests().size());
+        assertTrue(dbManager.getLoanIdForActiveBook(2, 5) > 0);
+        assertTrue((Boolean) dbManager.loadAllBooks().get(1)[4]);
+    }
+
+    @Test
+    @DisplayName("UOW-2: A return is one commit")
+    public void testReturnSingleCommit() {
+        Book designPatterns = library.findBookById(2);
+        Borrower bob = library.findBorrowerById(5);
+        Clerk jane = library.findClerkById(2);
+        designPatterns.issueBook(bob, jane);
+        Loan loan = bob.getBorrowedBooks().get(bob.getBorrowedBooks().size() - 1);
+        commits = 0;
+
+        designPatterns.returnBook(bob, loan, jane);
+
+        assertEquals(1, commits);
+        assertEquals(-1, dbManager.getLoanIdForActiveBook(2, 5));
+        assertFalse((Boolean) dbManager.loadAllBooks().get(1)[4]);
+    }
+
+    @Test
+    @DisplayName("UOW-3: A failed write rolls back the whole unit")
+    public void testFailedWriteRollsBack() {
+        assertThrows(RuntimeException.class, () -> dbManager.unitOfWork(() -> {
+            dbManager.write(() -> dbManager.updatePerson(4, "Alice Brown", "123 Student Ave", 111));
+            dbManager.write(() -> {
+                throw new RuntimeException("bad write");
+            });
+        }));
+
+        assertEquals(5554567, phoneOf(4));
+    }
+
+    @Test
+    @DisplayName("UOW-4: Writes are dropped when the body throws")
+    public void testBodyThrows() {
+        assertThrows(IllegalStateException.class, () -> dbManager.unitOfWork(() -> {
+            dbManager.write(() -> dbManager.updatePerson(4, "Alice Brown", "123 Student Ave", 111));
+            throw new IllegalStateException("desk transaction abandoned");
+        }));
+
+        assertEquals(5554567, phoneOf(4));
+    }
+
+    @Test
+    @DisplayName("UOW-5: A failed unit in a write-behind batch leaves the other writes")
+    public void testUnitInBatch() {
+        dbManager.enableWriteBehind(10_000, 100);
+
+        dbManager.write(() -> dbManager.updatePerson(4, "Alice Brown", "123 Student Ave", 111));
+        dbManager.unitOfWork(() -> {
+            dbManager.write(() -> dbManager.updateBookIssuedStatus(2, true));
+            dbManager.write(() -> {
+                throw new RuntimeException("bad write");
+            });
+        });
+        dbManager.write(() -> dbManager.updatePerson(5, "Bob Wilson", "456 College St", 222));
+        assertThrows(IllegalStateException.class, dbManager::flush);
+
+        assertEquals(1, dbManager.getWriteBehindQueue().getFailedCount());
+        assertEquals(1, dbManager.getWriteBehindQueue().discardFailed());
+        assertEquals(111, phoneOf(4));
+        assertEquals(222, phoneOf(5));
+        assertFalse((Boolean) dbManager.loadAllBooks().get(1)[4]);
+    }
+
+    private int phoneOf(int personId) {
+        int[] phone = {-1};
+        dbManager.forEachBorrower(row -> {
+            if (row.getInt(1) == personId) {
+                phone[0] = row.getInt(4);
+            }
+        });
+        return phone[0];
+    }
+}
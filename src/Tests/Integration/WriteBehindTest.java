@@ -0,0 +1,244 @@
+package Tests.Integration;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Integration Tests for write-behind persistence
+ *
+ * Test Scenarios:
+ * 1. Queued writes wait for the batch and are committed together by flush
+ * 2. A full batch is committed without waiting for the time limit
+ * 3. A write that fails does not lose the rest of its batch, and flush reports it
+ * 4. A loan saved and returned through the queue gets its id and return recorded
+ * 5. closeConnection commits whatever is still queued
+ * 6. A failed write is kept and succeeds when retried
+ * 7. A kept write that fails again makes closeConnection throw, but the connection is closed
+ * 8. A queued loan return writes the values it had when it was queued
+ */
+public class WriteBehindTest {
+
+    private static final int LONG_WAIT = 10_000; // batches never time out during a test
+
+    private DatabaseManager dbManager;
+
+    @BeforeEach
+    public void setUp() {
+        Library.resetInstance();
+        Book.setIDCount(0);
+
+        File dbFile = new File("database/library.db");
+        if (dbFile.exists()) dbFile.delete();
+
+        dbManager = DatabaseManager.getInstance();
+        dbManager.connect(); // seeds the sample data
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dbManager.closeConnection();
+        File dbFile = new File("database/library.db");
+        if (dbFile.exists()) {
+            dbFile.delete();
+        }
+    }
+
+    @Test
+    @DisplayName("WRITE-BEHIND-1: flush commits the queued writes as one batch")
+    public void testFlushGroupsWrites() {
+        dbManager.enableWriteBehind(LONG_WAIT, 100);
+        WriteBehindQueue queue = dbManager.getWriteBehindQueue();
+
+        for (int phone = 1; phone <= 5; phone++) {
+            int p = phone;
+            dbManager.write(() -> dbManager.updatePerson(4, "Alice Brown", "123 Student Ave", p));
+        }
+        assertEquals(5, queue.getQueueDepth());
+        assertEquals(0, queue.getAppliedCount());
+
+        dbManager.flush();
+
+        assertEquals(0, queue.getQueueDepth());
+        assertEquals(5, queue.getAppliedCount());
+        assertEquals(1, queue.getBatchCount());
+        assertEquals(5, queue.getMaxQueueDepth());
+        assertTrue(queue.getMaxCommitLatencyMillis() > 0);
+        assertEquals(5, phoneOf(4));
+    }
+
+    @Test
+    @DisplayName("WRITE-BEHIND-2: A full batch is committed at once")
+    public void testFullBatch() throws Exception {
+        dbManager.enableWriteBehind(LONG_WAIT, 2);
+        WriteBehindQueue queue = dbManager.getWriteBehindQueue();
+
+        dbManager.write(() -> dbManager.updateBookIssuedStatus(2, true));
+        dbManager.write(() -> dbManager.updateBookIssuedStatus(3, false));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (queue.getAppliedCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(2, queue.getAppliedCount());
+        assertEquals(1, queue.getBatchCount());
+    }
+
+    @Test
+    @DisplayName("WRITE-BEHIND-3: A failed write does not lose the others")
+    public void testFailedWrite() {
+        dbManager.enableWriteBehind(LONG_WAIT, 100);
+        WriteBehindQueue queue = dbManager.getWriteBehindQueue();
+
+        dbManager.write(() -> dbManager.updatePerson(4, "Alice Brown", "123 Student Ave", 111));
+        dbManager.write(() -> {
+            throw new RuntimeException("bad write");
+        });
+        dbManager.write(() -> dbManager.updatePerson(5, "Bob Wilson", "456 College St", 222));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, dbManager::flush);
+        assertEquals("bad write", e.getCause().getMessage());
+        assertEquals(1, queue.getFailedCount());
+        assertEquals(2, queue.getAppliedCount());
+        assertEquals(1, queue.getKeptFailureCount());
+        assertEquals(111, phoneOf(4));
+        assertEquals(222, phoneOf(5));
+
+        dbManager.flush(); // reported once
+        assertEquals(1, queue.discardFailed());
+    }
+
+    @Test
+    @DisplayName("WRITE-BEHIND-4: Queued loan insert and return are applied in order")
+    public void testLoanThroughQueue() {
+        dbManager.enableWriteBehind(LONG_WAIT, 100);
+
+        Borrower bob = new Borrower(5, "Bob Wilson", "456 College St", 5555678);
+        Book book = new Book(2, "Design Patterns", "Software Engineering", "Gang of Four", false);
+        Clerk jane = new Clerk(2, "Jane Doe", "Front Desk", 5552345, 25000, 1);
+
+        Loan loan = new Loan(bob, book, jane, null, new Date(), null, false);
+        loan.saveToDatabase();
+        assertEquals(-1, loan.getLoanId(), "The id is assigned when the insert is applied");
+
+        loan.setReceiver(jane);
+        loan.setReturnedDate(new Date());
+        loan.setFineStatus(true);
+        loan.updateReturnInDatabase();
+        dbManager.flush();
+
+        int loanId = loan.getLoanId();
+        assertTrue(loanId > 0);
+        boolean[] seen = {false};
+        dbManager.forEachLoan(row -> {
+            if (row.getInt(1) == loanId) {
+                seen[0] = true;
+                assertEquals(2, row.getInt(6));
+                assertTrue(row.getBoolean(8));
+            }
+        });
+        assertTrue(seen[0]);
+    }
+
+    @Test
+    @DisplayName("WRITE-BEHIND-5: closeConnection commits queued writes")
+    public void testCloseIsBarrier() {
+        int holds = dbManager.loadAllHoldRequests().size();
+        dbManager.enableWriteBehind(LONG_WAIT, 100);
+        dbManager.write(() -> dbManager.insertHoldRequest(2, 5, new Date()));
+        dbManager.write(() -> dbManager.updatePerson(4, "Alice Brown", "123 Student Ave", 333));
+
+        dbManager.closeConnection();
+        assertNull(dbManager.getWriteBehindQueue());
+
+        dbManager.connect();
+        assertEquals(holds + 1, dbManager.loadAllHoldRequests().size());
+        assertEquals(333, phoneOf(4));
+    }
+
+    @Test
+    @DisplayName("WRITE-BEHIND-6: A kept write succeeds when retried")
+    public void testRetryFailed() {
+        dbManager.enableWriteBehind(LONG_WAIT, 100);
+        WriteBehindQueue queue = dbManager.getWriteBehindQueue();
+
+        AtomicInteger attempts = new AtomicInteger();
+        dbManager.write(() -> {
+            // The batch and then the write on its own fail; the retry succeeds
+            if (attempts.incrementAndGet() <= 2) {
+                throw new RuntimeException("database is locked");
+            }
+            dbManager.updatePerson(4, "Alice Brown", "123 Student Ave", 444);
+        });
+        assertThrows(IllegalStateException.class, dbManager::flush);
+
+        assertEquals(1, queue.retryFailed());
+        dbManager.flush();
+
+        assertEquals(3, attempts.get());
+        assertEquals(0, queue.getKeptFailureCount());
+        assertEquals(1, queue.getAppliedCount());
+        assertEquals(444, phoneOf(4));
+    }
+
+    @Test
+    @DisplayName("WRITE-BEHIND-7: closeConnection reports lost writes and still closes")
+    public void testCloseReportsLostWrites() {
+        dbManager.enableWriteBehind(LONG_WAIT, 100);
+        dbManager.write(() -> {
+            throw new RuntimeException("bad write");
+        });
+        dbManager.write(() -> dbManager.updatePerson(4, "Alice Brown", "123 Student Ave", 555));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, dbManager::closeConnection);
+        assertTrue(e.getMessage().startsWith("1 "), e.getMessage());
+        assertNull(dbManager.getWriteBehindQueue());
+
+        dbManager.connect();
+        assertEquals(555, phoneOf(4));
+    }
+
+    @Test
+    @DisplayName("WRITE-BEHIND-8: A queued return keeps its values")
+    public void testReturnCapturedAtEnqueue() {
+        dbManager.enableWriteBehind(LONG_WAIT, 100);
+
+        Borrower bob = new Borrower(5, "Bob Wilson", "456 College St", 5555678);
+        Book book = new Book(2, "Design Patterns", "Software Engineering", "Gang of Four", false);
+        Clerk jane = new Clerk(2, "Jane Doe", "Front Desk", 5552345, 25000, 1);
+
+        Loan loan = new Loan(bob, book, jane, null, new Date(), null, false);
+        loan.saveToDatabase();
+        loan.setReceiver(jane);
+        loan.setReturnedDate(new Date());
+        loan.setFineStatus(true);
+        loan.updateReturnInDatabase();
+
+        // Changed after queuing; the queued write must not pick this up
+        loan.setFineStatus(false);
+        dbManager.flush();
+
+        int loanId = loan.getLoanId();
+        boolean[] paid = {false};
+        dbManager.forEachLoan(row -> {
+            if (row.getInt(1) == loanId) {
+                paid[0] = row.getBoolean(8);
+            }
+        });
+        assertTrue(paid[0]);
+    }
+
+    private int phoneOf(int personId) {
+        int[] phone = {-1};
+        dbManager.forEachBorrower(row -> {
+            if (row.getInt(1) == personId) {
+                phone[0] = row.getInt(4);
+            }
+        });
+        return phone[0];
+    }
+}
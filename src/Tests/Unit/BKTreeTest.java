@@ -0,0 +1,95 @@
+package Tests.Unit;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+/**
+ * Unit Tests for BKTree
+ * Covered:
+ *  - distance (Levenshtein)
+ *  - add / search
+ *  - remove and re-add
+ *  - search agrees with a brute force scan
+ */
+
+public class BKTreeTest {
+
+    private BKTree tree;
+
+    @BeforeEach
+    void setUp() {
+        tree = new BKTree();
+        tree.add("elmasri");
+        tree.add("martin");
+        tree.add("gang");
+        tree.add("four");
+        tree.add("fowler");
+    }
+
+    @Test
+    @DisplayName("distance - Basic edit distances")
+    void testDistance() {
+        assertEquals(0, BKTree.distance("code", "code"));
+        assertEquals(1, BKTree.distance("code", "cod"));
+        assertEquals(2, BKTree.distance("elmsari", "elmasri"));
+        assertEquals(3, BKTree.distance("kitten", "sitting"));
+        assertEquals(4, BKTree.distance("", "four"));
+    }
+
+    @Test
+    @DisplayName("search - Finds misspelled term")
+    void testSearchMisspelled() {
+        assertEquals(List.of("elmasri"), tree.search("elmsari", 2));
+        assertTrue(tree.search("elmsari", 1).isEmpty());
+    }
+
+    @Test
+    @DisplayName("remove - Removed term is not returned, re-added term is")
+    void testRemoveAndReAdd() {
+        tree.remove("martin");
+        assertTrue(tree.search("martin", 0).isEmpty());
+        assertEquals(4, tree.size());
+
+        tree.add("martin");
+        assertEquals(List.of("martin"), tree.search("martin", 0));
+        assertEquals(5, tree.size());
+    }
+
+    @Test
+    @DisplayName("search - Agrees with brute force after random adds and removes")
+    void testSearchMatchesBruteForce() {
+        Random random = new Random(11);
+        BKTree big = new BKTree();
+        HashSet<String> live = new HashSet<>();
+
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0, n = 3 + random.nextInt(5); j < n; j++) {
+                sb.append((char) ('a' + random.nextInt(4)));
+            }
+            String term = sb.toString();
+
+            if (random.nextInt(4) == 0) {
+                big.remove(term);
+                live.remove(term);
+            } else {
+                big.add(term);
+                live.add(term);
+            }
+        }
+
+        for (String query : new String[]{"abc", "dddd", "abcdab", "a"}) {
+            HashSet<String> expected = new HashSet<>();
+            for (String term : live) {
+                if (BKTree.distance(query, term) <= 2) {
+                    expected.add(term);
+                }
+            }
+            assertEquals(expected, new HashSet<>(big.search(query, 2)), "query: " + query);
+        }
+        assertEquals(live.size(), big.size());
+    }
+}
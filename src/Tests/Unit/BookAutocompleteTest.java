@@ -0,0 +1,153 @@
+package Tests.Unit;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+/**
+ * Unit Tests for BookAutocomplete
+ * Covered:
+ *  - complete (prefix matching, ranking, k limit, case)
+ *  - update after field changes
+ *  - remove (including node merging)
+ *  - top-k agrees with a brute force ranking
+ *  - clear, and Library.autocomplete after direct changes to getBooks()
+ */
+
+public class BookAutocompleteTest {
+
+    private BookAutocomplete autocomplete;
+    private Book book1;
+    private Book book2;
+    private Book book3;
+    private Book book4;
+
+    @BeforeEach
+    void setUp() {
+        autocomplete = new BookAutocomplete();
+
+        book1 = new Book(1, "Database Systems", "Databases", "Ramez Elmasri", false);
+        book2 = new Book(2, "Data Mining", "Databases", "Jiawei Han", false);
+        book3 = new Book(3, "Design Patterns", "Software Engineering", "Gang of Four", false);
+        book4 = new Book(4, "Database Systems", "Databases", "Ramez Elmasri", true);
+
+        autocomplete.add(book1);
+        autocomplete.add(book2);
+        autocomplete.add(book3);
+        autocomplete.add(book4);
+    }
+
+    @Test
+    @DisplayName("complete - Most common completion first")
+    void testCompleteRanking() {
+        ArrayList<String> result = autocomplete.complete(BookSearchIndex.TITLE, "dat", 5);
+
+        assertEquals(List.of("Database Systems", "Data Mining"), result);
+    }
+
+    @Test
+    @DisplayName("complete - Prefix ending inside an edge")
+    void testCompleteInsideEdge() {
+        assertEquals(List.of("Design Patterns"), autocomplete.complete(BookSearchIndex.TITLE, "DESIGN P", 5));
+    }
+
+    @Test
+    @DisplayName("complete - Respects k")
+    void testCompleteLimit() {
+        assertEquals(1, autocomplete.complete(BookSearchIndex.TITLE, "d", 1).size());
+    }
+
+    @Test
+    @DisplayName("complete - Unknown prefix returns empty list")
+    void testCompleteNoMatch() {
+        assertTrue(autocomplete.complete(BookSearchIndex.AUTHOR, "Shakes", 5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("update - Old title is no longer suggested")
+    void testUpdate() throws Exception {
+        java.lang.reflect.Field title = Book.class.getDeclaredField("title");
+        title.setAccessible(true);
+        title.set(book3, "Refactoring");
+
+        autocomplete.update(book3);
+
+        assertTrue(autocomplete.complete(BookSearchIndex.TITLE, "des", 5).isEmpty());
+        assertEquals(List.of("Refactoring"), autocomplete.complete(BookSearchIndex.TITLE, "ref", 5));
+    }
+
+    @Test
+    @DisplayName("remove - Empty branches are pruned")
+    void testRemove() {
+        int before = autocomplete.nodeCount(BookSearchIndex.TITLE);
+
+        autocomplete.remove(book2);
+
+        assertEquals(List.of("Database Systems"), autocomplete.complete(BookSearchIndex.TITLE, "dat", 5));
+        assertTrue(autocomplete.nodeCount(BookSearchIndex.TITLE) < before);
+    }
+
+    @Test
+    @DisplayName("clear - Nothing is suggested afterwards")
+    void testClear() {
+        autocomplete.clear();
+
+        assertTrue(autocomplete.complete(BookSearchIndex.TITLE, "d", 5).isEmpty());
+        autocomplete.add(book3);
+        assertEquals(List.of("Design Patterns"), autocomplete.complete(BookSearchIndex.TITLE, "d", 5));
+    }
+
+    @Test
+    @DisplayName("Library - Titles removed through getBooks() are no longer suggested")
+    void testLibraryDirectChanges() {
+        Library.resetInstance();
+        Library lib = Library.getInstance();
+        lib.addBookinLibrary(book1);
+        lib.addBookinLibrary(book3);
+        assertEquals(List.of("Database Systems", "Design Patterns"), lib.autocomplete("1", "d", 5));
+
+        lib.getBooks().remove(book3);
+        assertEquals(List.of("Database Systems"), lib.autocomplete("1", "d", 5));
+
+        lib.getBooks().clear();
+        lib.getBooks().add(book2);
+        assertEquals(List.of("Data Mining"), lib.autocomplete("1", "d", 5));
+        Library.resetInstance();
+    }
+
+    @Test
+    @DisplayName("complete - Agrees with brute force after random adds and removes")
+    void testCompleteMatchesBruteForce() {
+        String[] words = {"a", "ab", "abc", "b", "ba", "bab", "c"};
+        Random random = new Random(3);
+        BookAutocomplete trie = new BookAutocomplete();
+        ArrayList<Book> live = new ArrayList<>();
+
+        for (int i = 0; i < 400; i++) {
+            if (!live.isEmpty() && random.nextInt(3) == 0) {
+                trie.remove(live.remove(random.nextInt(live.size())));
+            } else {
+                String title = words[random.nextInt(words.length)] + words[random.nextInt(words.length)];
+                Book b = new Book(i, title, "S", "A", false);
+                live.add(b);
+                trie.add(b);
+            }
+        }
+
+        for (String prefix : new String[]{"", "a", "ab", "ba", "c", "abc"}) {
+            TreeMap<String, Integer> counts = new TreeMap<>();
+            for (Book b : live) {
+                if (b.getTitle().startsWith(prefix)) {
+                    counts.merge(b.getTitle(), 1, Integer::sum);
+                }
+            }
+            ArrayList<String> expected = new ArrayList<>(counts.keySet());
+            expected.sort((x, y) -> counts.get(y) - counts.get(x));
+
+            assertEquals(expected.subList(0, Math.min(4, expected.size())),
+                    trie.complete(BookSearchIndex.TITLE, prefix, 4), "prefix: " + prefix);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package Tests.Unit;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Unit Tests for BookFacets
+ * Covered:
+ *  - counts over a result set and over the whole catalog
+ *  - ordering (largest count first, ties alphabetical)
+ *  - incremental add / change / remove through Library
+ *  - values freed by remove and added again
+ *  - format
+ */
+
+public class BookFacetsTest {
+
+    private Library lib;
+    private Book cleanCode;
+    private Book cleanCoder;
+    private Book designPatterns;
+    private Book databaseSystems;
+
+    @BeforeEach
+    void setUp() {
+        Library.resetInstance();
+        lib = Library.getInstance();
+
+        cleanCode = new Book(1, "Clean Code", "Software Engineering", "Robert C. Martin", false);
+        cleanCoder = new Book(2, "The Clean Coder", "Software Engineering", "Robert C. Martin", false);
+        designPatterns = new Book(3, "Design Patterns", "Software Engineering", "Gang of Four", false);
+        databaseSystems = new Book(4, "Database Systems", "Databases", "Ramez Elmasri", false);
+
+        lib.addBookinLibrary(cleanCode);
+        lib.addBookinLibrary(cleanCoder);
+        lib.addBookinLibrary(designPatterns);
+        lib.addBookinLibrary(databaseSystems);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Library.resetInstance();
+    }
+
+    @Test
+    @DisplayName("counts - Whole catalog, largest first")
+    void testCatalogCounts() {
+        LinkedHashMap<String, Integer> subjects = lib.getFacets().counts(BookSearchIndex.SUBJECT);
+
+        assertEquals(List.of("Software Engineering", "Databases"), List.copyOf(subjects.keySet()));
+        assertEquals(3, subjects.get("Software Engineering"));
+        assertEquals(1, subjects.get("Databases"));
+    }
+
+    @Test
+    @DisplayName("facetCounts - Only books of the result set are counted")
+    void testSearchFacetCounts() {
+        LinkedHashMap<String, Integer> authors = lib.facetCounts("1", "e", BookSearchIndex.AUTHOR);
+
+        // Every title contains an "e"; ties are alphabetical
+        assertEquals(List.of("Robert C. Martin", "Gang of Four", "Ramez Elmasri"), List.copyOf(authors.keySet()));
+        assertEquals(2, authors.get("Robert C. Martin"));
+
+        LinkedHashMap<String, Integer> subjects = lib.facetCounts("1", "clean", BookSearchIndex.SUBJECT);
+        assertEquals(1, subjects.size());
+        assertEquals(2, subjects.get("Software Engineering"));
+
+        assertTrue(lib.facetCounts("1", "zzz", BookSearchIndex.SUBJECT).isEmpty());
+        assertTrue(lib.facetCounts("9", "clean", BookSearchIndex.SUBJECT).isEmpty());
+    }
+
+    @Test
+    @DisplayName("facetCounts - Works on any list of books")
+    void testListFacetCounts() {
+        LinkedHashMap<String, Integer> subjects = lib.facetCounts(lib.scanBooks(b -> b.getID() % 2 == 0),
+                BookSearchIndex.SUBJECT);
+
+        assertEquals(1, subjects.get("Software Engineering"));
+        assertEquals(1, subjects.get("Databases"));
+    }
+
+    @Test
+    @DisplayName("reindexBook - Changed subject moves the book between facets")
+    void testChangeUpdatesCounts() throws Exception {
+        java.lang.reflect.Field subject = Book.class.getDeclaredField("subject");
+        subject.setAccessible(true);
+        subject.set(designPatterns, "Databases");
+        lib.reindexBook(designPatterns);
+
+        LinkedHashMap<String, Integer> subjects = lib.getFacets().counts(BookSearchIndex.SUBJECT);
+        assertEquals(2, subjects.get("Software Engineering"));
+        assertEquals(2, subjects.get("Databases"));
+    }
+
+    @Test
+    @DisplayName("remove - Empty values disappear")
+    void testRemove() {
+        BookFacets facets = new BookFacets();
+        facets.add(0, cleanCode);
+        facets.add(1, databaseSystems);
+        facets.remove(1);
+
+        PostingList all = PostingList.fromSorted(new int[]{0, 1});
+        assertEquals(List.of("Software Engineering"), List.copyOf(facets.counts(BookSearchIndex.SUBJECT, all).keySet()));
+        assertFalse(facets.counts(BookSearchIndex.AUTHOR).containsKey("Ramez Elmasri"));
+    }
+
+    @Test
+    @DisplayName("add - A value freed by remove can come back on another document")
+    void testReuseValue() {
+        BookFacets facets = new BookFacets();
+        facets.add(0, cleanCode);
+        facets.add(1, databaseSystems);
+        facets.remove(1);
+        facets.add(5, designPatterns);
+        facets.add(7, databaseSystems);
+        facets.add(0, databaseSystems); // replaces cleanCode's values
+
+        PostingList all = PostingList.fromSorted(new int[]{0, 1, 5, 7, 40});
+        LinkedHashMap<String, Integer> subjects = facets.counts(BookSearchIndex.SUBJECT, all);
+        assertEquals(List.of("Databases", "Software Engineering"), List.copyOf(subjects.keySet()));
+        assertEquals(2, subjects.get("Databases"));
+        assertEquals(1, subjects.get("Software Engineering"));
+        assertEquals(List.of("Ramez Elmasri", "Gang of Four"),
+                List.copyOf(facets.counts(BookSearchIndex.AUTHOR, all).keySet()));
+    }
+
+    @Test
+    @DisplayName("format - Counts with thousands separators, cut at the limit")
+    void testFormat() {
+        LinkedHashMap<String, Integer> counts = new LinkedHashMap<>();
+        counts.put("Software Engineering", 1204);
+        counts.put("Databases", 312);
+        counts.put("Networks", 5);
+
+        assertEquals("Software Engineering (1,204) / Databases (312) / ...", BookFacets.format(counts, 2));
+        assertEquals("", BookFacets.format(new LinkedHashMap<>(), 5));
+    }
+}
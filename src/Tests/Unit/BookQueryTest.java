@@ -0,0 +1,97 @@
+package Tests.Unit;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit Tests for BookQuery
+ * Covered:
+ *  - field clauses combined with AND / OR / NOT and parentheses
+ *  - BM25 ranking and the top-K limit
+ *  - malformed queries
+ */
+
+public class BookQueryTest {
+
+    private BookSearchIndex index;
+    private Book cleanCode;
+    private Book cleanArchitecture;
+    private Book refactoring;
+    private Book databases;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+
+        cleanCode = new Book(1, "Clean Code", "Software Engineering", "Robert C. Martin", false);
+        cleanArchitecture = new Book(2, "Clean Architecture: A Craftsman's Guide to Software Structure and Design",
+                "Software Engineering", "Robert C. Martin", false);
+        refactoring = new Book(3, "Refactoring: Clean up your code", "Software Engineering", "Martin Fowler", false);
+        databases = new Book(4, "Database Systems", "Databases", "Ramez Elmasri", false);
+
+        index.add(cleanCode);
+        index.add(cleanArchitecture);
+        index.add(refactoring);
+        index.add(databases);
+    }
+
+    @Test
+    @DisplayName("topK - AND with NOT excludes the negated author")
+    void testAndNot() {
+        ArrayList<Book> result = new BookQuery("title:\"clean\" AND subject:\"software\" NOT author:\"robert\"")
+                .topK(index, 10);
+
+        assertEquals(List.of(refactoring), result);
+    }
+
+    @Test
+    @DisplayName("topK - OR with parentheses")
+    void testOrWithParentheses() {
+        BookQuery query = new BookQuery("(author:fowler OR author:elmasri) NOT title:database");
+
+        assertEquals(List.of(refactoring), query.topK(index, 10));
+        assertEquals(1, query.count(index));
+    }
+
+    @Test
+    @DisplayName("topK - Bare term searches every field")
+    void testBareTerm() {
+        assertEquals(3, new BookQuery("martin").count(index));
+    }
+
+    @Test
+    @DisplayName("topK - Shorter title with the word ranks first")
+    void testRanking() {
+        ArrayList<Book> result = new BookQuery("title:clean").topK(index, 10);
+
+        assertEquals(3, result.size());
+        assertSame(cleanCode, result.get(0));
+    }
+
+    @Test
+    @DisplayName("topK - Returns at most k books")
+    void testLimit() {
+        assertEquals(2, new BookQuery("subject:software").topK(index, 2).size());
+        assertTrue(new BookQuery("subject:software").topK(index, 0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("topK - Pure NOT query matches everything else")
+    void testPureNot() {
+        assertEquals(List.of(databases), new BookQuery("NOT subject:software").topK(index, 10));
+    }
+
+    @Test
+    @DisplayName("BookQuery - Malformed queries are rejected")
+    void testMalformed() {
+        assertThrows(IllegalArgumentException.class, () -> new BookQuery(""));
+        assertThrows(IllegalArgumentException.class, () -> new BookQuery("isbn:123"));
+        assertThrows(IllegalArgumentException.class, () -> new BookQuery("title:\"clean"));
+        assertThrows(IllegalArgumentException.class, () -> new BookQuery("(clean"));
+        assertThrows(IllegalArgumentException.class, () -> new BookQuery("clean AND"));
+    }
+}
@@ -0,0 +1,231 @@
+package Tests.Unit;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Unit Tests for BookSearchIndex
+ * Covered:
+ *  - add / search (title, subject, author)
+ *  - substring ("contains") semantics and catalog order
+ *  - trigram search returns exactly what the linear scan returns
+ *  - fuzzySearch (misspelled words)
+ *  - searchPage (page size, continuation tokens, invalid tokens)
+ *  - update after field changes
+ *  - remove
+ */
+
+public class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+    private Book book1;
+    private Book book2;
+    private Book book3;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+
+        book1 = new Book(1, "Clean Code", "Software Engineering", "Robert C. Martin", false);
+        book2 = new Book(2, "Design Patterns", "Software Engineering", "Gang of Four", false);
+        book3 = new Book(3, "Database Systems", "Databases", "Ramez Elmasri", true);
+
+        index.add(book1);
+        index.add(book2);
+        index.add(book3);
+    }
+
+    @Test
+    @DisplayName("search - Whole word matches in catalog order")
+    void testSearchWholeWord() {
+        ArrayList<Book> result = index.search(BookSearchIndex.SUBJECT, "Software");
+
+        assertEquals(2, result.size());
+        assertSame(book1, result.get(0));
+        assertSame(book2, result.get(1));
+    }
+
+    @Test
+    @DisplayName("search - Substring inside a word still matches")
+    void testSearchSubstring() {
+        ArrayList<Book> result = index.search(BookSearchIndex.TITLE, "patt");
+
+        assertEquals(1, result.size());
+        assertSame(book2, result.get(0));
+    }
+
+    @Test
+    @DisplayName("search - Query spanning two words matches")
+    void testSearchAcrossWords() {
+        ArrayList<Book> result = index.search(BookSearchIndex.TITLE, "n co");
+
+        assertEquals(1, result.size());
+        assertSame(book1, result.get(0));
+    }
+
+    @Test
+    @DisplayName("search - Is case insensitive")
+    void testSearchIgnoresCase() {
+        assertEquals(1, index.search(BookSearchIndex.AUTHOR, "ELMASRI").size());
+    }
+
+    @Test
+    @DisplayName("search - Empty query matches every book")
+    void testSearchEmptyQuery() {
+        assertEquals(3, index.search(BookSearchIndex.TITLE, "").size());
+    }
+
+    @Test
+    @DisplayName("search - No match returns empty list")
+    void testSearchNoMatch() {
+        assertTrue(index.search(BookSearchIndex.AUTHOR, "Shakespeare").isEmpty());
+    }
+
+    @Test
+    @DisplayName("search - Same results as the linear scan on a random catalog")
+    void testSearchMatchesLinearScan() {
+        String[] words = {"Clean", "Code", "Design", "Patterns", "Data", "Base", "Systems", "Java", "net", "C++"};
+        Random random = new Random(42);
+        BookSearchIndex big = new BookSearchIndex();
+        ArrayList<Book> catalog = new ArrayList<>();
+
+        for (int i = 0; i < 500; i++) {
+            String title = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+            Book b = new Book(i, title, words[random.nextInt(words.length)], words[random.nextInt(words.length)], false);
+            catalog.add(b);
+            big.add(b);
+        }
+
+        String[] queries = {"", "a", "e ", "cod", "code", "n c", "DATABASE", "ta ba", "c++", "xyz", "patterns java"};
+        for (String q : queries) {
+            ArrayList<Book> expected = new ArrayList<>();
+            for (Book b : catalog) {
+                if (b.getTitle().toLowerCase().contains(q.toLowerCase())) {
+                    expected.add(b);
+                }
+            }
+            assertEquals(expected, big.search(BookSearchIndex.TITLE, q), "query: " + q);
+        }
+    }
+
+    @Test
+    @DisplayName("fuzzySearch - Misspelled author is found")
+    void testFuzzySearchMisspelled() {
+        ArrayList<Book> result = index.fuzzySearch(BookSearchIndex.AUTHOR, "Elmsari", 2);
+
+        assertEquals(1, result.size());
+        assertSame(book3, result.get(0));
+    }
+
+    @Test
+    @DisplayName("fuzzySearch - Every word must match")
+    void testFuzzySearchAllWords() {
+        assertEquals(1, index.fuzzySearch(BookSearchIndex.TITLE, "desing paterns", 2).size());
+        assertTrue(index.fuzzySearch(BookSearchIndex.TITLE, "desing xyzzyq", 2).isEmpty());
+    }
+
+    @Test
+    @DisplayName("fuzzySearch - Distance 0 only matches whole tokens")
+    void testFuzzySearchExact() {
+        assertEquals(2, index.fuzzySearch(BookSearchIndex.SUBJECT, "software", 0).size());
+        assertTrue(index.fuzzySearch(BookSearchIndex.SUBJECT, "softwar", 0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("searchPage - Pages together equal the full search")
+    void testSearchPageWalksAllResults() {
+        Random random = new Random(3);
+        for (int i = 4; i <= 60; i++) {
+            index.add(new Book(i, "Software Volume " + random.nextInt(100), "Software", "Author " + i, false));
+        }
+
+        ArrayList<Book> expected = index.search(BookSearchIndex.TITLE, "soft");
+        ArrayList<Book> paged = new ArrayList<>();
+        String token = null;
+        int pages = 0;
+
+        do {
+            BookPage page = index.searchPage(BookSearchIndex.TITLE, "soft", token, 10);
+            assertTrue(page.getBooks().size() <= 10);
+            paged.addAll(page.getBooks());
+            token = page.getNextPageToken();
+            pages++;
+        } while (token != null);
+
+        assertEquals(expected, paged);
+        assertEquals(6, pages);
+    }
+
+    @Test
+    @DisplayName("searchPage - Last page has no token; size 0 returns everything")
+    void testSearchPageLastPage() {
+        BookPage first = index.searchPage(BookSearchIndex.SUBJECT, "Software", null, 2);
+        assertEquals(2, first.getBooks().size());
+        assertFalse(first.hasNextPage());
+
+        BookPage all = index.searchPage(BookSearchIndex.SUBJECT, "e", null, 0);
+        assertEquals(3, all.getBooks().size());
+        assertFalse(all.hasNextPage());
+
+        assertTrue(index.searchPage(BookSearchIndex.TITLE, "zzz", null, 5).getBooks().isEmpty());
+    }
+
+    @Test
+    @DisplayName("searchPage - Token still valid after a book is removed")
+    void testSearchPageTokenAfterRemove() {
+        BookPage first = index.searchPage(BookSearchIndex.SUBJECT, "a", null, 1);
+        assertSame(book1, first.getBooks().get(0));
+
+        index.remove(book2);
+        BookPage second = index.searchPage(BookSearchIndex.SUBJECT, "a", first.getNextPageToken(), 1);
+
+        assertSame(book3, second.getBooks().get(0));
+        assertFalse(second.hasNextPage());
+    }
+
+    @Test
+    @DisplayName("searchPage - Malformed token is rejected")
+    void testSearchPageInvalidToken() {
+        assertThrows(IllegalArgumentException.class,
+                () -> index.searchPage(BookSearchIndex.TITLE, "code", "abc", 5));
+        assertThrows(IllegalArgumentException.class,
+                () -> index.searchPage(BookSearchIndex.TITLE, "code", "-1", 5));
+    }
+
+    @Test
+    @DisplayName("update - Old tokens are dropped and new ones indexed")
+    void testUpdate() throws Exception {
+        java.lang.reflect.Field title = Book.class.getDeclaredField("title");
+        title.setAccessible(true);
+        title.set(book1, "Refactoring");
+
+        index.update(book1);
+
+        assertTrue(index.search(BookSearchIndex.TITLE, "Clean").isEmpty());
+        assertSame(book1, index.search(BookSearchIndex.TITLE, "factor").get(0));
+    }
+
+    @Test
+    @DisplayName("remove - Book no longer returned")
+    void testRemove() {
+        index.remove(book2);
+
+        assertEquals(2, index.size());
+        assertFalse(index.contains(book2));
+        assertTrue(index.search(BookSearchIndex.TITLE, "Design").isEmpty());
+        assertTrue(index.fuzzySearch(BookSearchIndex.TITLE, "Desing", 2).isEmpty());
+    }
+
+    @Test
+    @DisplayName("fieldForChoice - Maps menu choices")
+    void testFieldForChoice() {
+        assertEquals(BookSearchIndex.TITLE, BookSearchIndex.fieldForChoice("1"));
+        assertEquals(BookSearchIndex.SUBJECT, BookSearchIndex.fieldForChoice("2"));
+        assertEquals(BookSearchIndex.AUTHOR, BookSearchIndex.fieldForChoice("3"));
+        assertEquals(-1, BookSearchIndex.fieldForChoice("4"));
+    }
+}
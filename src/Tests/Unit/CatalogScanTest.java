@@ -0,0 +1,82 @@
+package Tests.Unit;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Unit Tests for CatalogScan
+ * Covered:
+ *  - parallel scan returns exactly the sequential result, in list order
+ *  - small lists and empty lists
+ *  - Library.scanBooks
+ */
+
+public class CatalogScanTest {
+
+    private ArrayList<Book> catalog;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(11);
+        catalog = new ArrayList<>();
+
+        for (int i = 1; i <= 20_000; i++) {
+            catalog.add(new Book(i, "Title " + random.nextInt(1000), "Subject " + random.nextInt(20),
+                    "Author " + random.nextInt(500), random.nextBoolean()));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        Library.resetInstance();
+    }
+
+    @Test
+    @DisplayName("scan - Parallel result equals the sequential loop")
+    void testParallelMatchesSequential() {
+        Predicate<Book> predicate = b -> !b.getIssuedStatus() && b.getTitle().contains("7");
+
+        ArrayList<Book> expected = new ArrayList<>();
+        for (Book b : catalog) {
+            if (predicate.test(b)) {
+                expected.add(b);
+            }
+        }
+
+        assertEquals(expected, CatalogScan.scan(catalog, predicate, 64));
+        assertEquals(expected, CatalogScan.scan(catalog, predicate));
+    }
+
+    @Test
+    @DisplayName("scan - Below the threshold and on empty lists")
+    void testSmallLists() {
+        ArrayList<Book> few = new ArrayList<>(catalog.subList(0, 10));
+
+        assertEquals(few, CatalogScan.scan(few, b -> true));
+        assertTrue(CatalogScan.scan(new ArrayList<>(), b -> true).isEmpty());
+        assertTrue(CatalogScan.scan(catalog, b -> false, 1).isEmpty());
+    }
+
+    @Test
+    @DisplayName("scanBooks - Filters the library catalog")
+    void testLibraryScanBooks() {
+        Library.resetInstance();
+        Library lib = Library.getInstance();
+        for (int i = 0; i < 100; i++) {
+            lib.addBookinLibrary(catalog.get(i));
+        }
+
+        ArrayList<Book> available = lib.scanBooks(b -> !b.getIssuedStatus());
+
+        assertFalse(available.isEmpty());
+        for (Book b : available) {
+            assertFalse(b.getIssuedStatus());
+        }
+        assertEquals(100, lib.scanBooks(b -> true).size());
+    }
+}
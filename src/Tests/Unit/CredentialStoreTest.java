@@ -0,0 +1,158 @@
+package Tests.Unit;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit Tests for CredentialStore and Library.authenticate
+ * Covered:
+ *  - correct and wrong passwords, unknown ids
+ *  - one hash check per session, and at most one per login
+ *  - a replaced person with the same id is enrolled again
+ *  - forget / endSessions
+ *  - enroll returns a salted hash, load registers it without hashing
+ *  - a plain stored password is upgraded once and handed to the hash listener
+ *  - a corrupt stored hash refuses that login without failing the load
+ */
+
+public class CredentialStoreTest {
+
+    private CredentialStore store;
+    private Borrower borrower;
+
+    @BeforeEach
+    void setUp() {
+        store = new CredentialStore();
+        borrower = new Borrower(100, "Ana", "Tirana", 123);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Library.resetInstance();
+    }
+
+    @Test
+    @DisplayName("verify - Right password passes, wrong one fails")
+    void testVerify() {
+        assertTrue(store.verify(borrower, "100"));
+        assertFalse(store.verify(borrower, "101"));
+        assertFalse(store.verify(borrower, null));
+        assertFalse(store.verify(null, "100"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    @DisplayName("verify - Repeated logins within a session skip the hash")
+    void testSessionCache() {
+        assertTrue(store.verify(borrower, "100"));
+        assertTrue(store.verify(borrower, "100"));
+        assertTrue(store.verify(borrower, "100"));
+
+        assertEquals(1, store.getHashCheckCount());
+        assertEquals(2, store.getSessionHitCount());
+
+        // A wrong password is never accepted from the session
+        assertFalse(store.verify(borrower, "wrong"));
+        assertEquals(2, store.getHashCheckCount());
+
+        store.endSessions();
+        assertTrue(store.verify(borrower, "100"));
+        assertEquals(3, store.getHashCheckCount());
+    }
+
+    @Test
+    @DisplayName("verify - A different person with the same id is enrolled again")
+    void testReplacedPerson() {
+        assertTrue(store.verify(borrower, "100"));
+
+        Clerk clerk = new Clerk(100, "Ben", "Durres", 456, 1000, 1);
+        assertTrue(store.verify(clerk, "100"));
+        assertEquals(2, store.getHashCheckCount());
+
+        store.forget(100);
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    @DisplayName("enroll/load - Only the salted hash is kept and reloaded")
+    void testEnrollAndLoad() {
+        String stored = store.enroll(borrower, "secret");
+        assertTrue(stored.startsWith("pbkdf2-sha256$"));
+        assertFalse(stored.contains("secret"));
+        assertNotEquals(stored, store.enroll(borrower, "secret"), "Every enrollment has its own salt");
+
+        CredentialStore reloaded = new CredentialStore();
+        reloaded.load(borrower, stored);
+        assertEquals(0, reloaded.getHashCheckCount(), "Loading does not hash");
+
+        assertTrue(reloaded.verify(borrower, "secret"));
+        assertFalse(reloaded.verify(borrower, "100"));
+        assertEquals(2, reloaded.getHashCheckCount(), "One hash per login");
+    }
+
+    @Test
+    @DisplayName("load - A plain stored password is hashed at the first login")
+    void testUpgradePlain() {
+        String[] upgraded = new String[1];
+        store.setHashListener((id, stored) -> upgraded[0] = id + " " + stored);
+        store.load(borrower, "100");
+
+        assertFalse(store.verify(borrower, "101"));
+        assertNull(upgraded[0]);
+        assertEquals(0, store.getHashCheckCount());
+
+        assertTrue(store.verify(borrower, "100"));
+        assertEquals(1, store.getHashCheckCount());
+        assertTrue(upgraded[0].startsWith("100 pbkdf2-sha256$"));
+
+        store.endSessions();
+        assertTrue(store.verify(borrower, "100"));
+        assertEquals(2, store.getHashCheckCount());
+    }
+
+    @Test
+    @DisplayName("load - A corrupt stored hash locks that login only, until enrolled again")
+    void testCorruptHash() {
+        Borrower other = new Borrower(101, "Ben", "Durres", 456);
+        String good = store.enroll(other, "pw");
+        String salt = good.split("\\$")[2];
+
+        String[] corrupt = {
+                "pbkdf2-sha256$many$" + salt + "$" + salt,
+                "pbkdf2-sha256$10000$not*base64$" + salt,
+                "pbkdf2-sha256$0$" + salt + "$" + salt,
+                "pbkdf2-sha256$10000$" + salt + "$",
+                "pbkdf2-sha256$10000$" + salt,
+        };
+        for (String stored : corrupt) {
+            CredentialStore reloaded = new CredentialStore();
+            assertDoesNotThrow(() -> reloaded.load(borrower, stored), stored);
+            reloaded.load(other, good);
+
+            assertFalse(reloaded.verify(borrower, "100"), stored);
+            assertFalse(reloaded.verify(borrower, stored), "The stored string is not a password: " + stored);
+            assertTrue(reloaded.verify(other, "pw"), "Other persons still log in");
+
+            reloaded.enroll(borrower, "fresh");
+            assertTrue(reloaded.verify(borrower, "fresh"));
+        }
+    }
+
+    @Test
+    @DisplayName("authenticate - Finds librarian, clerks and borrowers by id")
+    void testLibraryAuthenticate() {
+        Library lib = Library.getInstance();
+        Librarian librarian = new Librarian(1, "Admin", "Office", 111, 5000, 101);
+        Library.librarian = librarian;
+        Clerk clerk = new Clerk(2, "Ben", "Durres", 456, 1000, 1);
+        lib.addClerk(clerk);
+        lib.addBorrower(borrower);
+
+        assertSame(librarian, lib.authenticate(1, "1"));
+        assertSame(clerk, lib.authenticate(2, "2"));
+        assertSame(borrower, lib.authenticate(100, "100"));
+        assertNull(lib.authenticate(100, "1"));
+        assertNull(lib.authenticate(999, "999"));
+    }
+}
@@ -0,0 +1,79 @@
+package Tests.Unit;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Unit Tests for IdAllocator
+ * Covered:
+ *  - ids handed out from many threads are all distinct
+ *  - advanceTo only moves the counter forward
+ *  - books and persons built with an explicit id never get it again
+ */
+
+public class IdAllocatorTest {
+
+    @AfterEach
+    void tearDown() {
+        Book.setIDCount(0);
+        Person.setIDCount(0);
+    }
+
+    @Test
+    @DisplayName("next - Concurrent callers get distinct ids")
+    void testConcurrentNext() throws InterruptedException {
+        IdAllocator ids = new IdAllocator();
+        ConcurrentHashMap.KeySetView<Integer, Boolean> seen = ConcurrentHashMap.newKeySet();
+
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    seen.add(ids.next());
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertEquals(80_000, seen.size());
+        assertEquals(80_000, ids.current());
+    }
+
+    @Test
+    @DisplayName("advanceTo - Never moves the counter back")
+    void testAdvanceTo() {
+        IdAllocator ids = new IdAllocator();
+        ids.advanceTo(10);
+        ids.advanceTo(4);
+
+        assertEquals(10, ids.current());
+        assertEquals(11, ids.next());
+    }
+
+    @Test
+    @DisplayName("Constructors - Explicit ids are not handed out again")
+    void testExplicitIds() {
+        Book.setIDCount(0);
+        Book loaded = new Book(5, "Clean Code", "Software Engineering", "Robert C. Martin", false);
+        Book created = new Book(-1, "Refactoring", "Software Engineering", "Martin Fowler", false);
+
+        Person.setIDCount(0);
+        Borrower alice = new Borrower(3, "Alice", "Address", 111);
+        Borrower bob = new Borrower(-1, "Bob", "Address", 222);
+
+        HashSet<Integer> bookIds = new HashSet<>();
+        bookIds.add(loaded.getID());
+        bookIds.add(created.getID());
+        assertEquals(2, bookIds.size());
+        assertEquals(6, created.getID());
+        assertEquals(4, bob.getID());
+        assertNotEquals(alice.getID(), bob.getID());
+    }
+}
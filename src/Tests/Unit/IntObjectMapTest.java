@@ -0,0 +1,138 @@
+package Tests.Unit;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Unit Tests for IntObjectMap and Library's id registries
+ * Covered:
+ *  - put / get / remove against a HashMap, including removal inside probe runs
+ *  - putIfAbsent and null values
+ *  - find*ById after lists are changed directly or replaced
+ *  - find*ById after elements are replaced in place (set, ListIterator.set, subList)
+ */
+
+public class IntObjectMapTest {
+
+    @AfterEach
+    void tearDown() {
+        Library.resetInstance();
+    }
+
+    @Test
+    @DisplayName("Random puts and removes agree with a HashMap")
+    void testMatchesHashMap() {
+        Random random = new Random(9);
+        IntObjectMap<String> map = new IntObjectMap<>();
+        HashMap<Integer, String> expected = new HashMap<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            // A small key range keeps the table crowded, so removals hit long probe runs
+            int key = random.nextInt(5_000) - 2_500;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int key = -2_500; key < 2_500; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+    @Test
+    @DisplayName("putIfAbsent keeps the first value; null values are rejected")
+    void testPutIfAbsent() {
+        IntObjectMap<String> map = new IntObjectMap<>(2);
+
+        assertNull(map.putIfAbsent(0, "first"));
+        assertEquals("first", map.putIfAbsent(0, "second"));
+        assertEquals("first", map.get(0));
+        assertThrows(IllegalArgumentException.class, () -> map.put(1, null));
+    }
+
+    @Test
+    @DisplayName("find*ById - Roles are kept apart")
+    void testFindByRole() {
+        Library lib = Library.getInstance();
+        Borrower borrower = new Borrower(10, "Ana", "Tirana", 123);
+        Clerk clerk = new Clerk(20, "Ben", "Durres", 456, 1000, 1);
+        lib.addBorrower(borrower);
+        lib.addClerk(clerk);
+
+        assertSame(borrower, lib.findBorrowerById(10));
+        assertNull(lib.findBorrowerById(20));
+        assertSame(clerk, lib.findClerkById(20));
+        assertSame(clerk, lib.findStaffById(20));
+        assertNull(lib.findStaffById(10));
+    }
+
+    @Test
+    @DisplayName("find*ById - Lists changed or replaced directly are picked up")
+    void testDirectListChanges() {
+        Library lib = Library.getInstance();
+        Borrower ana = new Borrower(10, "Ana", "Tirana", 123);
+        Borrower ben = new Borrower(11, "Ben", "Durres", 456);
+        lib.addBorrower(ana);
+        assertSame(ana, lib.findBorrowerById(10));
+
+        Library.persons.add(ben);
+        assertSame(ben, lib.findBorrowerById(11));
+
+        Library.persons.remove(ana);
+        assertNull(lib.findBorrowerById(10));
+
+        Library.persons = new ArrayList<>();
+        Library.persons.add(ana);
+        assertSame(ana, lib.findBorrowerById(10));
+        assertNull(lib.findBorrowerById(11));
+
+        Book book = new Book(5, "Clean Code", "Software Engineering", "Robert C. Martin", false);
+        lib.addBookinLibrary(book);
+        assertSame(book, lib.findBookById(5));
+
+        lib.getBooks().clear();
+        assertNull(lib.findBookById(5));
+    }
+
+    @Test
+    @DisplayName("find*ById - Elements replaced in place are picked up")
+    void testReplacedInPlace() {
+        Library lib = Library.getInstance();
+        Borrower ana = new Borrower(10, "Ana", "Tirana", 123);
+        Borrower ben = new Borrower(11, "Ben", "Durres", 456);
+        lib.addBorrower(ana);
+        assertSame(ana, lib.findBorrowerById(10));
+
+        Library.persons.set(0, ben);
+        assertNull(lib.findBorrowerById(10));
+        assertSame(ben, lib.findBorrowerById(11));
+
+        Book cleanCode = new Book(5, "Clean Code", "Software Engineering", "Robert C. Martin", false);
+        Book sicp = new Book(6, "SICP", "Programming", "Abelson", false);
+        Book refactoring = new Book(7, "Refactoring", "Software Engineering", "Martin Fowler", false);
+        lib.addBookinLibrary(cleanCode);
+        assertSame(cleanCode, lib.findBookById(5));
+
+        lib.getBooks().set(0, sicp);
+        assertNull(lib.findBookById(5));
+        assertSame(sicp, lib.findBookById(6));
+
+        java.util.ListIterator<Book> it = lib.getBooks().listIterator();
+        it.next();
+        it.set(cleanCode);
+        assertSame(cleanCode, lib.findBookById(5));
+
+        lib.getBooks().subList(0, 1).set(0, refactoring);
+        assertSame(refactoring, lib.findBookById(7));
+        assertNull(lib.findBookById(5));
+    }
+}
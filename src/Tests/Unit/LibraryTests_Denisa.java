@@ -4,6 +4,9 @@ import LMS.*;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Tests for Library.java – Denisa
  * 20 tests
@@ -84,6 +87,22 @@ public class LibraryTests_Denisa {
         assertEquals(2, library.getBooks().size());
     }
 
+    @Test
+    @DisplayName("createBook - Filed under the id the database gave it")
+    void testCreateBook_DatabaseId() {
+        library.createBook("Clean Code", "SE", "Martin");
+        Book b = library.getBooks().get(0);
+
+        assertSame(b, library.findBookById(b.getID()));
+        boolean[] stored = {false};
+        DatabaseManager.getInstance().forEachBook(row -> {
+            if (row.getInt(1) == b.getID()) {
+                stored[0] = "Clean Code".equals(row.getString(2));
+            }
+        });
+        assertTrue(stored[0]);
+    }
+
     // ======================= getBooks =======================
 
     @Test
@@ -180,6 +199,40 @@ public class LibraryTests_Denisa {
         assertEquals(b2, library.getBooks().get(0));
     }
 
+    @Test
+    @DisplayName("removeBookfromLibrary - Only the removed book leaves the id lookup")
+    void testRemoveBook_IdLookup() {
+        library.createBook("Book1", "S", "A");
+        library.createBook("Book2", "S", "B");
+
+        Book b1 = library.getBooks().get(0);
+        Book b2 = library.getBooks().get(1);
+
+        library.removeBookfromLibrary(b1);
+
+        assertNull(library.findBookById(b1.getID()));
+        assertSame(b2, library.findBookById(b2.getID()));
+    }
+
+    @Test
+    @DisplayName("removeBookfromLibrary - Document numbers are compacted")
+    void testRemoveBook_CompactsDocs() {
+        for (int i = 0; i < 10; i++) {
+            library.createBook("Book" + i, "S", "A");
+        }
+        ArrayList<Book> books = new ArrayList<>(library.getBooks());
+
+        for (int i = 0; i < 8; i++) {
+            library.removeBookfromLibrary(books.get(i));
+        }
+
+        BookSearchIndex index = library.getSearchIndex();
+        assertEquals(2, index.size());
+        assertTrue(index.getDocCount() <= 2 * index.size(), "Doc count " + index.getDocCount());
+        assertEquals(books.subList(8, 10), library.getAvailableBooks());
+        assertEquals(List.of(books.get(9)), library.searchForBooks("1", "book9"));
+    }
+
     @Test
     @DisplayName("removeBookfromLibrary - Removing from empty library does nothing")
     void testRemoveBookFromEmptyLibrary() {
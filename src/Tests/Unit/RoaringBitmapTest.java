@@ -0,0 +1,143 @@
+package Tests.Unit;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Unit Tests for RoaringBitmap and Library's availability filtering
+ * Covered:
+ *  - add / remove / contains / cardinality against a TreeSet
+ *  - array and bitmap chunks, in both directions
+ *  - and(PostingList)
+ *  - searchForAvailableBooks, getAvailableBooks, updateAvailability
+ *  - availability and facet counts after direct changes to getBooks()
+ */
+
+public class RoaringBitmapTest {
+
+    @AfterEach
+    void tearDown() {
+        Library.resetInstance();
+    }
+
+    @Test
+    @DisplayName("Random adds and removes agree with a TreeSet")
+    void testMatchesTreeSet() {
+        Random random = new Random(5);
+        RoaringBitmap bitmap = new RoaringBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            // Dense values near 0 force bitmap chunks, sparse ones stay arrays
+            int x = random.nextBoolean() ? random.nextInt(20_000) : random.nextInt(5_000_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(x), bitmap.remove(x));
+            } else {
+                assertEquals(expected.add(x), bitmap.add(x));
+            }
+        }
+
+        assertEquals(expected.size(), bitmap.cardinality());
+        PostingList all = bitmap.toPostingList();
+        int i = 0;
+        for (int x : expected) {
+            assertEquals(x, all.get(i++));
+        }
+        assertTrue(bitmap.contains(expected.first()));
+    }
+
+    @Test
+    @DisplayName("Chunk switches to a bitmap and back without losing values")
+    void testChunkConversion() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int x = 0; x < 10_000; x++) {
+            bitmap.add(x);
+        }
+        assertEquals(10_000, bitmap.cardinality());
+        assertTrue(bitmap.sizeInBytes() < 10_000 * 2);
+
+        for (int x = 0; x < 9_000; x++) {
+            bitmap.remove(x);
+        }
+        assertEquals(1_000, bitmap.cardinality());
+        assertFalse(bitmap.contains(8_999));
+        assertTrue(bitmap.contains(9_000));
+
+        for (int x = 9_000; x < 10_000; x++) {
+            bitmap.remove(x);
+        }
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    @DisplayName("and - Keeps the listed documents present in the set")
+    void testAndPostingList() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.add(3);
+        bitmap.add(70_000);
+        bitmap.add(200_000);
+
+        PostingList result = bitmap.and(PostingList.fromSorted(new int[]{1, 3, 70_000, 70_001, 300_000}));
+
+        assertEquals(2, result.size());
+        assertEquals(3, result.get(0));
+        assertEquals(70_000, result.get(1));
+    }
+
+    @Test
+    @DisplayName("Library - Available books follow the issued status")
+    void testLibraryAvailability() {
+        Library lib = Library.getInstance();
+        Book cleanCode = new Book(1, "Clean Code", "Software Engineering", "Robert C. Martin", false);
+        Book cleanCoder = new Book(2, "The Clean Coder", "Software Engineering", "Robert C. Martin", true);
+        Book designPatterns = new Book(3, "Design Patterns", "Software Engineering", "Gang of Four", false);
+        lib.addBookinLibrary(cleanCode);
+        lib.addBookinLibrary(cleanCoder);
+        lib.addBookinLibrary(designPatterns);
+
+        assertEquals(List.of(cleanCode), lib.searchForAvailableBooks("1", "clean"));
+        assertEquals(2, lib.getAvailableBookCount());
+
+        cleanCode.isIssued = true;
+        lib.updateAvailability(cleanCode);
+        cleanCoder.isIssued = false;
+        lib.updateAvailability(cleanCoder);
+
+        assertEquals(List.of(cleanCoder), lib.searchForAvailableBooks("1", "clean"));
+        assertEquals(List.of(cleanCoder, designPatterns), lib.getAvailableBooks());
+        assertEquals(new ArrayList<Book>(), lib.searchForAvailableBooks("4", "clean"));
+    }
+
+    @Test
+    @DisplayName("Library - Books removed through getBooks() are not available or counted")
+    void testLibraryDirectChanges() {
+        Library lib = Library.getInstance();
+        Book cleanCode = new Book(1, "Clean Code", "Software Engineering", "Robert C. Martin", false);
+        Book designPatterns = new Book(2, "Design Patterns", "Software Engineering", "Gang of Four", false);
+        Book sicp = new Book(3, "SICP", "Programming", "Abelson", false);
+        lib.addBookinLibrary(cleanCode);
+        lib.addBookinLibrary(designPatterns);
+
+        lib.getBooks().remove(cleanCode);
+        lib.getBooks().add(sicp);
+
+        assertEquals(List.of(designPatterns, sicp), lib.getAvailableBooks());
+        assertEquals(2, lib.getAvailableBookCount());
+        assertEquals(1, lib.facetCounts("2", "software", BookSearchIndex.SUBJECT).get("Software Engineering"));
+        assertEquals(2, lib.getFacets().counts(BookSearchIndex.AUTHOR).size());
+        assertFalse(lib.getFacets().counts(BookSearchIndex.AUTHOR).containsKey("Robert C. Martin"));
+
+        // The rebuild renumbered the documents, leaving none unused
+        assertEquals(2, lib.getSearchIndex().getDocCount());
+
+        lib.getBooks().clear();
+        assertTrue(lib.getAvailableBooks().isEmpty());
+        assertTrue(lib.getFacets().counts(BookSearchIndex.SUBJECT).isEmpty());
+    }
+}
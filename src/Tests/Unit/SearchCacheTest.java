@@ -0,0 +1,171 @@
+package Tests.Unit;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit Tests for SearchCache (through Library.searchForBooks)
+ * Covered:
+ *  - hits, misses and the hit rate
+ *  - normalized keys (case insensitive)
+ *  - invalidation only when an added or changed book flips a cached answer
+ *  - LRU eviction and disabling the cache
+ *  - books added, removed or replaced through getBooks() directly
+ */
+
+public class SearchCacheTest {
+
+    private Library lib;
+    private SearchCache cache;
+    private Book cleanCode;
+    private Book designPatterns;
+
+    @BeforeEach
+    void setUp() {
+        Library.resetInstance();
+        lib = Library.getInstance();
+
+        cleanCode = new Book(1, "Clean Code", "Software Engineering", "Robert C. Martin", false);
+        designPatterns = new Book(2, "Design Patterns", "Software Engineering", "Gang of Four", false);
+        lib.addBookinLibrary(cleanCode);
+        lib.addBookinLibrary(designPatterns);
+
+        cache = lib.getSearchCache();
+    }
+
+    @AfterEach
+    void tearDown() {
+        Library.resetInstance();
+    }
+
+    @Test
+    @DisplayName("searchForBooks - Repeated search is a hit with the same answer")
+    void testRepeatedSearchHits() {
+        ArrayList<Book> first = lib.searchForBooks("1", "code");
+        ArrayList<Book> second = lib.searchForBooks("1", "CODE");
+
+        assertEquals(List.of(cleanCode), first);
+        assertEquals(first, second);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    @DisplayName("addBookinLibrary - Only the answers the new book changes are dropped")
+    void testAddInvalidatesPrecisely() {
+        lib.searchForBooks("1", "code");
+        lib.searchForBooks("1", "patterns");
+
+        Book cleanCoder = new Book(3, "The Clean Coder", "Software Engineering", "Robert C. Martin", false);
+        lib.addBookinLibrary(cleanCoder);
+
+        assertEquals(1, cache.getInvalidationCount());
+        assertEquals(List.of(cleanCode, cleanCoder), lib.searchForBooks("1", "code"));
+        assertEquals(List.of(designPatterns), lib.searchForBooks("1", "patterns"));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    @DisplayName("reindexBook - Changed title moves the book between cached answers")
+    void testChangeInvalidates() throws Exception {
+        lib.searchForBooks("1", "code");
+        lib.searchForBooks("1", "refactor");
+        lib.searchForBooks("2", "software");
+
+        java.lang.reflect.Field title = Book.class.getDeclaredField("title");
+        title.setAccessible(true);
+        title.set(cleanCode, "Refactoring");
+        lib.reindexBook(cleanCode);
+
+        // The subject did not change, so that answer stays cached
+        assertEquals(2, cache.getInvalidationCount());
+        assertEquals(1, cache.size());
+        assertTrue(lib.searchForBooks("1", "code").isEmpty());
+        assertEquals(List.of(cleanCode), lib.searchForBooks("1", "refactor"));
+    }
+
+    @Test
+    @DisplayName("getBooks - Direct list changes reach the index and the cache")
+    void testDirectListChanges() {
+        assertEquals(List.of(cleanCode), lib.searchForBooks("1", "code"));
+
+        lib.getBooks().remove(cleanCode);
+        assertTrue(lib.searchForBooks("1", "code").isEmpty());
+        assertEquals(List.of(designPatterns), lib.searchForBooks("2", "software"));
+
+        Book refactoring = new Book(3, "Refactoring", "Software Engineering", "Martin Fowler", false);
+        lib.getBooks().add(refactoring);
+        assertEquals(List.of(refactoring), lib.searchForBooks("1", "refactor"));
+        assertSame(refactoring, lib.findBookById(3));
+
+        lib.getBooks().clear();
+        assertTrue(lib.searchForBooks("2", "software").isEmpty());
+        assertNull(lib.findBookById(2));
+    }
+
+    @Test
+    @DisplayName("getBooks - A book replaced in place is searched instead of the old one")
+    void testReplacedInPlace() {
+        assertEquals(List.of(cleanCode), lib.searchForBooks("1", "code"));
+
+        Book refactoring = new Book(3, "Refactoring", "Software Engineering", "Martin Fowler", false);
+        lib.getBooks().set(0, refactoring);
+
+        assertTrue(lib.searchForBooks("1", "code").isEmpty());
+        assertEquals(List.of(refactoring), lib.searchForBooks("1", "refactor"));
+        assertEquals(List.of(refactoring, designPatterns), lib.searchForBooks("2", "software"));
+        assertEquals(List.of(refactoring, designPatterns), lib.getAvailableBooks());
+        assertSame(refactoring, lib.findBookById(3));
+        assertNull(lib.findBookById(1));
+    }
+
+    @Test
+    @DisplayName("searchForBooksPage - A complete first page is cached and reused")
+    void testPageUsesCache() {
+        lib.searchForBooksPage("2", "software", null, 10);
+        BookPage page = lib.searchForBooksPage("2", "software", null, 1);
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(List.of(cleanCode), page.getBooks());
+        assertEquals(List.of(designPatterns),
+                lib.searchForBooksPage("2", "software", page.getNextPageToken(), 1).getBooks());
+    }
+
+    @Test
+    @DisplayName("LRU - Least recently used search is evicted")
+    void testEviction() {
+        lib.setSearchCacheSize(2);
+        cache = lib.getSearchCache();
+
+        lib.searchForBooks("1", "clean");
+        lib.searchForBooks("1", "design");
+        lib.searchForBooks("1", "clean");
+        lib.searchForBooks("1", "code");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+
+        lib.searchForBooks("1", "clean");
+        lib.searchForBooks("1", "design");
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    @DisplayName("setSearchCacheSize - Size 0 disables caching")
+    void testDisabled() {
+        lib.setSearchCacheSize(0);
+        cache = lib.getSearchCache();
+
+        lib.searchForBooks("1", "clean");
+        lib.searchForBooks("1", "clean");
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(List.of(cleanCode), lib.searchForBooks("1", "clean"));
+    }
+}
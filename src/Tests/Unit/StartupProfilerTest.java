@@ -0,0 +1,94 @@
+package Tests.Unit;
+
+import LMS.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+
+/**
+ * Unit Tests for StartupProfiler
+ * Covered:
+ *  - nothing is recorded while disabled
+ *  - nesting depth, rows and ordering of phases
+ *  - ending a phase twice keeps the first measurement
+ *  - report and JSON output
+ */
+
+public class StartupProfilerTest {
+
+    private StartupProfiler profiler;
+
+    @BeforeEach
+    void setUp() {
+        StartupProfiler.resetInstance();
+        profiler = StartupProfiler.getInstance();
+    }
+
+    @AfterEach
+    void tearDown() {
+        StartupProfiler.resetInstance();
+    }
+
+    @Test
+    @DisplayName("begin - Disabled profiler records nothing")
+    void testDisabled() {
+        profiler.begin("connect").end();
+
+        assertTrue(profiler.getPhases().isEmpty());
+    }
+
+    @Test
+    @DisplayName("begin - Nested phases get increasing depth")
+    void testNesting() {
+        profiler.setEnabled(true);
+
+        StartupProfiler.Phase outer = profiler.begin("populateLibrary");
+        StartupProfiler.Phase books = profiler.begin("books");
+        books.end(1200);
+        StartupProfiler.Phase loans = profiler.begin("loans");
+        loans.end(30);
+        outer.end();
+        profiler.begin("after").end();
+
+        ArrayList<StartupProfiler.Phase> phases = profiler.getPhases();
+        assertEquals(4, phases.size());
+        assertEquals("populateLibrary", phases.get(0).getName());
+        assertEquals(0, phases.get(0).getDepth());
+        assertEquals(1, phases.get(1).getDepth());
+        assertEquals(1, phases.get(2).getDepth());
+        assertEquals(0, phases.get(3).getDepth());
+        assertEquals(1200, phases.get(1).getRows());
+        assertTrue(phases.get(0).getMillis() >= phases.get(1).getMillis());
+    }
+
+    @Test
+    @DisplayName("end - Second end is ignored")
+    void testEndTwice() {
+        profiler.setEnabled(true);
+
+        StartupProfiler.Phase phase = profiler.begin("books");
+        phase.end(5);
+        phase.end(99);
+
+        assertEquals(5, phase.getRows());
+        assertEquals(0, profiler.begin("next").getDepth());
+    }
+
+    @Test
+    @DisplayName("report / toJson - Every phase is listed")
+    void testOutput() {
+        profiler.setEnabled(true);
+        profiler.begin("books \"main\"").end(1234);
+        profiler.begin("running");
+
+        String report = profiler.report();
+        assertTrue(report.contains("1,234"));
+        assertTrue(report.contains("(running)"));
+
+        String json = profiler.toJson();
+        assertTrue(json.startsWith("["));
+        assertTrue(json.contains("\"name\": \"books \\\"main\\\"\""));
+        assertTrue(json.contains("\"rows\": 1234"));
+    }
+}